@@ -1,11 +1,14 @@
 package com.example.aiservice;
 
+import com.example.aiservice.memory.BoundedChatMemoryRepository;
+import com.example.aiservice.memory.SummarizingChatMemory;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.api.Advisor;
 import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.memory.MessageWindowChatMemory;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.openfeign.EnableFeignClients;
@@ -20,14 +23,34 @@ public class AiServiceApplication {
     }
 
     @Bean
-    public ChatClient chatClient(ChatModel chatModel) {
-        ChatMemory chatMemory = MessageWindowChatMemory.builder().build();
+    public ChatMemory chatMemory(BoundedChatMemoryRepository repository, ChatModel chatModel,
+                                 @Value("${ai.memory.max-messages:20}") int maxMessages,
+                                 @Value("${ai.memory.summarize.enabled:false}") boolean summarize,
+                                 @Value("${ai.memory.summarize.keep-recent:6}") int keepRecent) {
+        if (summarize) {
+            return new SummarizingChatMemory(repository, chatModel, maxMessages, keepRecent);
+        }
+        return MessageWindowChatMemory.builder()
+                .chatMemoryRepository(repository)
+                .maxMessages(maxMessages)
+                .build();
+    }
+
+    /** Conversational client; callers pass the conversation id as the {@link ChatMemory#CONVERSATION_ID} advisor param. */
+    @Bean
+    public ChatClient chatClient(ChatModel chatModel, ChatMemory chatMemory) {
         Advisor memory = MessageChatMemoryAdvisor.builder(chatMemory).build();
         ChatClient.Builder builder = ChatClient.builder(chatModel);
         builder.defaultAdvisors(memory);
         return builder.build();
     }
 
+    /** Stateless client for one-shot generation, so cached completions never depend on chat history. */
+    @Bean
+    public ChatClient generationChatClient(ChatModel chatModel) {
+        return ChatClient.builder(chatModel).build();
+    }
+
     /*@Bean
     public ChatClient chatClient(ChatModel chatModel) {
         ChatClient.Builder builder = ChatClient.builder(chatModel);
@@ -0,0 +1,46 @@
+package com.example.aiservice;
+
+import com.example.aiservice.client.CachingPostClient;
+import com.example.aiservice.dto.ChangeEventDto;
+import com.example.aiservice.embedding.PostEmbeddingService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/** Service-to-service cache control; not routed through the api-gateway. */
+@RestController
+@RequestMapping("/internal")
+public class CacheController {
+    private final CachingPostClient posts;
+    private final PostEmbeddingService embeddings;
+
+    public CacheController(CachingPostClient posts, PostEmbeddingService embeddings) {
+        this.posts = posts;
+        this.embeddings = embeddings;
+    }
+
+    @DeleteMapping("/cache/posts/{id}")
+    public ResponseEntity<Void> evictPost(@PathVariable("id") Long id) {
+        posts.evict(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    /** Webhook target for post-service's change-event stream. */
+    @PostMapping("/events")
+    public ResponseEntity<Void> onChangeEvents(@RequestBody List<ChangeEventDto> events) {
+        List<Long> changed = events.stream()
+                .filter(e -> "post".equals(e.getAggregateType()) && e.getAggregateId() != null)
+                .map(ChangeEventDto::getAggregateId)
+                .distinct()
+                .toList();
+        changed.forEach(posts::evict);
+        if (!changed.isEmpty()) embeddings.refresh(changed);
+        return ResponseEntity.noContent().build();
+    }
+}
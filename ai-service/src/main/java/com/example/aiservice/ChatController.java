@@ -1,18 +1,36 @@
 package com.example.aiservice;
 
-import com.example.aiservice.client.PostClient;
+import com.example.aiservice.cache.GenerationCache;
+import com.example.aiservice.client.CachingPostClient;
 import com.example.aiservice.dto.PostDto;
+import com.example.aiservice.generation.CommentGenerator;
+import com.example.aiservice.stream.TokenStreamMetrics;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.util.UUID;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -21,53 +39,63 @@ import java.util.regex.Pattern;
 public class ChatController {
     private static final Logger log = LoggerFactory.getLogger(ChatController.class);
 
+    static final String CONVERSATION_HEADER = "X-Conversation-Id";
+    private static final int MAX_CONVERSATION_ID_LENGTH = 128;
+
     @Autowired
+    @Qualifier("chatClient")
     private ChatClient chatClient;
 
     @Autowired
-    private PostClient postClient;
+    @Qualifier("generationChatClient")
+    private ChatClient generationClient;
+
+    @Autowired
+    private ChatMemory chatMemory;
+
+    @Autowired
+    private CachingPostClient postClient;
+
+    @Autowired
+    private GenerationCache generationCache;
+
+    @Autowired
+    private TokenStreamMetrics streamMetrics;
+
+    @Autowired
+    private CommentGenerator commentGenerator;
 
     @GetMapping("/chat")
-    public String getResponse(String prompt) {
+    public ResponseEntity<String> getResponse(String prompt,
+                                              @RequestHeader(value = CONVERSATION_HEADER, required = false) String header,
+                                              @RequestParam(required = false) String conversationId) {
+        String id = conversationId(header, conversationId);
         ChatResponse response = chatClient
                 .prompt(prompt)
+                .advisors(a -> a.param(ChatMemory.CONVERSATION_ID, id))
                 .call().chatResponse();
 
-        return response.getResult().getOutput().getText();
+        return ResponseEntity.ok().header(CONVERSATION_HEADER, id).body(response.getResult().getOutput().getText());
+    }
+
+    @DeleteMapping("/chat/{conversationId}")
+    public ResponseEntity<Void> forgetConversation(@PathVariable String conversationId) {
+        chatMemory.clear(conversationId);
+        return ResponseEntity.noContent().build();
     }
 
     @GetMapping("/generatePost")
     public PostDto generatePost(@RequestParam String topic) {
         log.info("Generating AI post for topic: {}", topic);
         // Step 1: Build prompt
-        String prompt = String.format("""
-                You are an expert blog writer.
-                Write a short but engaging blog post about the topic below.
-
-                Topic: %s
-
-                The post should include:
-                - A clear and catchy title
-                - A few paragraphs (around 200 words)
-                - The tone should be professional yet friendly.
-
-                Respond ONLY with valid JSON, no markdown, no explanations, Respond in this exact JSON format:
-                {
-                  "title": "Generated title here",
-                  "content": "Full post content here"
-                }
-                """, topic);
+        String prompt = postPrompt(topic);
 
         //System.out.println(prompt);
 
-        // Step 2: Call AI model
-        ChatResponse response = chatClient
-                .prompt(prompt)
-                .call()
-                .chatResponse();
+        // Step 2: Call AI model (or reuse the completion for an identical prompt)
+        String aiText = generationCache.get(prompt, () -> complete(prompt));
 
         // Step 3: Parse the model output (JSON)
-        String aiText = response.getResult().getOutput().getText();
 
         ObjectMapper mapper = new ObjectMapper();
         PostDto generatedPost;
@@ -109,25 +137,87 @@ public class ChatController {
         // 1. Get post content
         PostDto post = postClient.getPostById(postId);
 
-        // 2. Build prompt
-        String prompt = String.format("""
-                You are a helpful assistant who writes insightful blog comments.
-                Read the following post and generate one short, thoughtful comment
-                that could be posted under it. around 50 words.
+        // 2. Build the prompt, call AI model (or reuse the completion for an identical prompt) and return the comment
+        return commentGenerator.generate(post);
+    }
 
-                Post Title: %s
-                Post Content: %s
-                """, post.getTitle(), post.getContent());
+    @GetMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<String>>> streamResponse(
+            @RequestParam String prompt,
+            @RequestHeader(value = CONVERSATION_HEADER, required = false) String header,
+            @RequestParam(required = false) String conversationId) {
+        String id = conversationId(header, conversationId);
+        Flux<String> tokens = chatClient.prompt(prompt)
+                .advisors(a -> a.param(ChatMemory.CONVERSATION_ID, id))
+                .stream().content();
+        return ResponseEntity.ok().header(CONVERSATION_HEADER, id).body(sse(streamMetrics.record("chat", tokens)));
+    }
 
-        //System.out.println(prompt);
+    @GetMapping(value = "/generatePost/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamPost(@RequestParam String topic) {
+        log.info("Streaming AI post for topic: {}", topic);
+        return sse(streamCached("generatePost", postPrompt(topic)));
+    }
 
-        // 3. Call AI model
-        ChatResponse response = chatClient
+    @GetMapping(value = "/generateComment/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamComment(@RequestParam Long postId) {
+        log.info("Streaming AI comment for postId: {}", postId);
+        return Mono.fromCallable(() -> postClient.getPostById(postId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(post -> sse(streamCached("generateComment", CommentGenerator.prompt(post))));
+    }
+
+    /** Replays a cached completion as one chunk; otherwise streams from the model and caches the full text. */
+    private Flux<String> streamCached(String endpoint, String prompt) {
+        String cached = generationCache.getIfPresent(prompt);
+        if (cached != null) return Flux.just(cached);
+        StringBuilder completion = new StringBuilder();
+        return streamMetrics.record(endpoint, generationClient.prompt(prompt).stream().content())
+                .doOnNext(completion::append)
+                .doOnComplete(() -> generationCache.put(prompt, completion.toString()));
+    }
+
+    private static Flux<ServerSentEvent<String>> sse(Flux<String> tokens) {
+        return tokens
+                .map(token -> ServerSentEvent.builder(token).event("token").build())
+                .concatWith(Mono.just(ServerSentEvent.<String>builder().event("done").build()));
+    }
+
+    /** Header wins over the query param; without either a new conversation is started. */
+    static String conversationId(String header, String param) {
+        String id = StringUtils.hasText(header) ? header.trim() : StringUtils.hasText(param) ? param.trim() : null;
+        if (id == null) return UUID.randomUUID().toString();
+        if (id.length() > MAX_CONVERSATION_ID_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "conversation id longer than " + MAX_CONVERSATION_ID_LENGTH);
+        }
+        return id;
+    }
+
+    private String complete(String prompt) {
+        ChatResponse response = generationClient
                 .prompt(prompt)
                 .call()
                 .chatResponse();
-
-        // 4. Return the generated comment
         return response.getResult().getOutput().getText();
     }
-}
\ No newline at end of file
+
+    private static String postPrompt(String topic) {
+        return String.format("""
+                You are an expert blog writer.
+                Write a short but engaging blog post about the topic below.
+
+                Topic: %s
+
+                The post should include:
+                - A clear and catchy title
+                - A few paragraphs (around 200 words)
+                - The tone should be professional yet friendly.
+
+                Respond ONLY with valid JSON, no markdown, no explanations, Respond in this exact JSON format:
+                {
+                  "title": "Generated title here",
+                  "content": "Full post content here"
+                }
+                """, topic);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.aiservice.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Content-addressed cache for model completions. The key is a SHA-256 of the model options and the
+ * prompt with its Unicode form and whitespace normalized; case is kept, since "US" and "us" or two
+ * spellings of an identifier are different prompts.
+ * <p>
+ * Concurrent misses for one key are single-flighted: the first caller runs the model on its own
+ * thread and everyone else waits for that result. Failures of any kind are not cached, and waiters
+ * see the same failure. Lookups count as hits or misses in {@code cache.gets{cache=ai-generation}}.
+ */
+@Component
+public class GenerationCache {
+    private final AsyncCache<String, String> cache;
+    private final String modelOptions;
+    private final Counter coalesced;
+
+    public GenerationCache(MeterRegistry registry,
+                           @Value("${spring.ai.openai.chat.options.model:}") String model,
+                           @Value("${spring.ai.openai.chat.options.temperature:}") String temperature,
+                           @Value("${ai.generation-cache.maximum-size:1000}") long maximumSize,
+                           @Value("${ai.generation-cache.ttl:30m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        this.modelOptions = "model=" + model + ";temperature=" + temperature;
+        this.coalesced = registry.counter("ai.generation.coalesced");
+        CaffeineCacheMetrics.monitor(registry, cache, "ai-generation");
+    }
+
+    public String get(String prompt, Supplier<String> generator) {
+        String key = key(prompt);
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        // get() rather than asMap().putIfAbsent() so the lookup is recorded as a hit or a miss
+        CompletableFuture<String> entry = cache.get(key, (k, executor) -> mine);
+        if (entry != mine) {
+            if (!entry.isDone()) coalesced.increment();
+            return join(entry);
+        }
+        try {
+            mine.complete(generator.get());
+        } catch (Throwable e) {
+            cache.asMap().remove(key, mine);
+            mine.completeExceptionally(e);
+        }
+        return join(mine);
+    }
+
+    /** Returns a completed entry without waiting on one that is still in flight. */
+    public String getIfPresent(String prompt) {
+        CompletableFuture<String> entry = cache.getIfPresent(key(prompt));
+        return entry != null && entry.isDone() && !entry.isCompletedExceptionally() ? entry.join() : null;
+    }
+
+    public void put(String prompt, String completion) {
+        cache.put(key(prompt), CompletableFuture.completedFuture(completion));
+    }
+
+    String key(String prompt) {
+        String normalized = Normalizer.normalize(prompt, Normalizer.Form.NFKC)
+                .replaceAll("\\s+", " ")
+                .trim();
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(modelOptions.getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) 0);
+            return HexFormat.of().formatHex(sha.digest(normalized.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String join(CompletableFuture<String> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw e;
+        }
+    }
+}
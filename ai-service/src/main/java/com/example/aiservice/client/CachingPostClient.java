@@ -0,0 +1,68 @@
+package com.example.aiservice.client;
+
+import com.example.aiservice.dto.PostDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded near-cache in front of {@link PostClient}. Entries are evicted by size and TTL, and
+ * explicitly when post-service reports a change; failed lookups are never cached.
+ * Hit/miss/eviction counts are published as {@code cache.*} meters tagged {@code cache=post-near-cache}.
+ */
+@Component
+public class CachingPostClient {
+    /** post-service rejects bulk lookups and pages larger than this. */
+    static final int MAX_BATCH_SIZE = 1000;
+
+    private final PostClient delegate;
+    private final Cache<Long, PostDto> cache;
+
+    public CachingPostClient(PostClient delegate, MeterRegistry registry,
+                             @Value("${post-cache.maximum-size:10000}") long maximumSize,
+                             @Value("${post-cache.ttl:5m}") Duration ttl) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl).recordStats().build();
+        CaffeineCacheMetrics.monitor(registry, cache, "post-near-cache");
+    }
+
+    public PostDto getPostById(Long id) {
+        PostDto post = cache.getIfPresent(id);
+        if (post == null) {
+            post = delegate.getPostById(id);
+            if (post != null) cache.put(id, post);
+        }
+        return post;
+    }
+
+    /** Serves cached posts and fetches the rest in bulk; ids that do not exist are absent from the result. */
+    public Map<Long, PostDto> getPostsByIds(Collection<Long> ids) {
+        Map<Long, PostDto> found = new LinkedHashMap<>(cache.getAllPresent(ids));
+        List<Long> missing = ids.stream().filter(id -> !found.containsKey(id)).distinct().toList();
+        for (int i = 0; i < missing.size(); i += MAX_BATCH_SIZE) {
+            for (PostDto post : delegate.getPostsByIds(missing.subList(i, Math.min(missing.size(), i + MAX_BATCH_SIZE)))) {
+                cache.put(post.getId(), post);
+                found.put(post.getId(), post);
+            }
+        }
+        return found;
+    }
+
+    /** Keyset page of posts with ids greater than {@code afterId}; the page also warms the cache. */
+    public List<PostDto> getPostsAfter(long afterId, int limit) {
+        List<PostDto> page = delegate.getPosts(afterId, Math.min(limit, MAX_BATCH_SIZE));
+        page.forEach(post -> cache.put(post.getId(), post));
+        return page;
+    }
+
+    public void evict(Long id) { cache.invalidate(id); }
+}
@@ -0,0 +1,17 @@
+package com.example.aiservice.client;
+
+import com.example.aiservice.dto.CommentDto;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
+import java.util.Map;
+
+/** comment-service over HTTP, spread over its instances (see {@link com.example.loadbalancing.LoadBalancing}). */
+@FeignClient(name = "comment-service")
+public interface CommentClient {
+  /** One result per comment, in order: {@code index}, {@code status} (CREATED/UPDATED/FAILED), {@code id}, {@code error}. */
+  @PostMapping("/comments/batch")
+  List<Map<String, Object>> createComments(@RequestBody List<CommentDto> comments);
+}
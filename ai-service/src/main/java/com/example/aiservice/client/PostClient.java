@@ -1,18 +1,28 @@
 package com.example.aiservice.client;
 
 import com.example.aiservice.dto.PostDto;
-import lombok.Data;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 
-@FeignClient(name = "post-service", url = "http://localhost:8082")
+import java.util.Collection;
+import java.util.List;
+
+/** post-service over HTTP, spread over its instances (see {@link com.example.loadbalancing.LoadBalancing}). */
+@FeignClient(name = "post-service")
 public interface PostClient {
   @GetMapping("/posts/{id}")
   PostDto getPostById(@PathVariable("id") Long id);
 
+  @GetMapping("/posts")
+  List<PostDto> getPostsByIds(@RequestParam("ids") Collection<Long> ids);
+
+  @GetMapping("/posts")
+  List<PostDto> getPosts(@RequestParam("afterId") long afterId, @RequestParam("limit") int limit);
+
   @PostMapping("/posts")
   PostDto createPost(@RequestBody PostDto post);
 }
@@ -0,0 +1,11 @@
+package com.example.aiservice.dto;
+
+import lombok.Data;
+
+@Data
+public class ChangeEventDto {
+    private Long id;
+    private String aggregateType;
+    private Long aggregateId;
+    private String type;
+}
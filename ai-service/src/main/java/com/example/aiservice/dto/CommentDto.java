@@ -0,0 +1,15 @@
+package com.example.aiservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentDto {
+    private Long id;
+    private Long postId;
+    private Long authorId;
+    private String content;
+}
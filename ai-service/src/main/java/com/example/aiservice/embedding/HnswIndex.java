@@ -0,0 +1,403 @@
+package com.example.aiservice.embedding;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Approximate nearest-neighbour index over unit vectors (cosine similarity), using a hierarchical
+ * navigable small-world graph. Vectors live in one flat {@code float[]} and links in {@code int[]}
+ * arrays, so a node costs its vector plus roughly {@code 2 * m} ints.
+ * <p>
+ * Each entry carries a caller-supplied fingerprint of the content it was computed from, so a
+ * reloaded snapshot can tell which entries are stale. Replacing or removing an entry tombstones its
+ * node; tombstoned nodes still route searches but are never returned, and the graph is rebuilt
+ * once they make up a fifth of it.
+ * <p>
+ * Thread-safe: searches share a read lock, writes take the write lock.
+ */
+public class HnswIndex {
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int MIN_TOMBSTONES_TO_REBUILD = 1000;
+    private static final Comparator<Candidate> NEAREST_FIRST = Comparator.comparingDouble(c -> c.distance);
+    private static final Comparator<Candidate> FARTHEST_FIRST = NEAREST_FIRST.reversed();
+
+    private final int dimensions;
+    private final int m;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Integer> nodesById = new HashMap<>();
+    private final BitSet tombstones = new BitSet();
+    private float[] vectors;
+    private long[] ids;
+    private long[] fingerprints;
+    /** {@code links[node][level]}: element 0 is the neighbour count, the rest are neighbour nodes. */
+    private int[][][] links;
+    private int nodes;
+    private int entryPoint = -1;
+    private int topLevel = -1;
+
+    public HnswIndex(int dimensions, int m, int efConstruction) {
+        this.dimensions = dimensions;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.vectors = new float[16 * dimensions];
+        this.ids = new long[16];
+        this.fingerprints = new long[16];
+        this.links = new int[16][][];
+    }
+
+    public int dimensions() { return dimensions; }
+
+    /** Adds or replaces the vector for {@code id}; the vector is normalised on the way in. */
+    public void put(long id, float[] vector, long fingerprint) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            insert(id, normalize(vector), fingerprint);
+            if (tombstones.cardinality() >= Math.max(MIN_TOMBSTONES_TO_REBUILD, nodes / 5)) rebuild();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            return removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try { return nodesById.containsKey(id); } finally { lock.readLock().unlock(); }
+    }
+
+    /** Fingerprint stored with {@code id}, or null if it is not indexed. */
+    public Long fingerprint(long id) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodesById.get(id);
+            return node == null ? null : fingerprints[node];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Copy of the normalised vector stored for {@code id}, or null. */
+    public float[] vector(long id) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodesById.get(id);
+            return node == null ? null : Arrays.copyOfRange(vectors, node * dimensions, (node + 1) * dimensions);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Long> ids() {
+        lock.readLock().lock();
+        try { return new ArrayList<>(nodesById.keySet()); } finally { lock.readLock().unlock(); }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try { return nodesById.size(); } finally { lock.readLock().unlock(); }
+    }
+
+    /**
+     * The {@code k} entries most similar to {@code query}, most similar first. {@code ef} is the
+     * candidate list size on the bottom layer: larger is slower and closer to exact.
+     */
+    public List<Match> search(float[] query, int k, int ef) {
+        if (query.length != dimensions) {
+            throw new IllegalArgumentException("expected " + dimensions + " dimensions but got " + query.length);
+        }
+        float[] q = normalize(query);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) return List.of();
+            int current = entryPoint;
+            for (int level = topLevel; level > 0; level--) current = greedyClosest(q, current, level);
+            List<Candidate> candidates = searchLayer(q, current, Math.max(ef, k), 0);
+            List<Match> matches = new ArrayList<>(k);
+            for (Candidate c : candidates) {
+                if (tombstones.get(c.node)) continue;
+                matches.add(new Match(ids[c.node], 1 - c.distance));
+                if (matches.size() == k) break;
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void write(DataOutput out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(dimensions);
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(nodes);
+            out.writeInt(entryPoint);
+            out.writeInt(topLevel);
+            for (int node = 0; node < nodes; node++) {
+                out.writeLong(ids[node]);
+                out.writeLong(fingerprints[node]);
+                out.writeBoolean(tombstones.get(node));
+                for (int i = node * dimensions; i < (node + 1) * dimensions; i++) out.writeFloat(vectors[i]);
+                out.writeInt(links[node].length);
+                for (int[] level : links[node]) {
+                    out.writeInt(level[0]);
+                    for (int i = 1; i <= level[0]; i++) out.writeInt(level[i]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static HnswIndex read(DataInput in) throws IOException {
+        int version = in.readInt();
+        if (version != SNAPSHOT_VERSION) throw new IOException("unsupported snapshot version " + version);
+        HnswIndex index = new HnswIndex(in.readInt(), in.readInt(), in.readInt());
+        int nodes = in.readInt();
+        index.entryPoint = in.readInt();
+        index.topLevel = in.readInt();
+        index.grow(nodes);
+        for (int node = 0; node < nodes; node++) {
+            index.ids[node] = in.readLong();
+            index.fingerprints[node] = in.readLong();
+            if (in.readBoolean()) index.tombstones.set(node);
+            else index.nodesById.put(index.ids[node], node);
+            for (int i = node * index.dimensions; i < (node + 1) * index.dimensions; i++) index.vectors[i] = in.readFloat();
+            int levels = in.readInt();
+            index.links[node] = new int[levels][];
+            for (int level = 0; level < levels; level++) {
+                int count = in.readInt();
+                int[] neighbours = new int[index.capacity(level) + 1];
+                neighbours[0] = count;
+                for (int i = 1; i <= count; i++) neighbours[i] = in.readInt();
+                index.links[node][level] = neighbours;
+            }
+        }
+        index.nodes = nodes;
+        return index;
+    }
+
+    private boolean removeLocked(long id) {
+        Integer node = nodesById.remove(id);
+        if (node == null) return false;
+        tombstones.set(node);
+        return true;
+    }
+
+    private void insert(long id, float[] vector, long fingerprint) {
+        int node = nodes;
+        grow(node + 1);
+        System.arraycopy(vector, 0, vectors, node * dimensions, dimensions);
+        ids[node] = id;
+        fingerprints[node] = fingerprint;
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) links[node][l] = new int[capacity(l) + 1];
+        nodes++;
+        nodesById.put(id, node);
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            topLevel = level;
+            return;
+        }
+        int current = entryPoint;
+        for (int l = topLevel; l > level; l--) current = greedyClosest(vector, current, l);
+        for (int l = Math.min(level, topLevel); l >= 0; l--) {
+            List<Candidate> candidates = searchLayer(vector, current, efConstruction, l);
+            for (Candidate neighbour : selectNeighbours(candidates, m)) {
+                link(node, neighbour.node, l);
+                link(neighbour.node, node, l);
+            }
+            current = candidates.get(0).node;
+        }
+        if (level > topLevel) {
+            entryPoint = node;
+            topLevel = level;
+        }
+    }
+
+    /** Adds {@code to} to {@code from}'s list on {@code level}, re-pruning the list when it is full. */
+    private void link(int from, int to, int level) {
+        int[] neighbours = links[from][level];
+        int count = neighbours[0];
+        if (count < neighbours.length - 1) {
+            neighbours[count + 1] = to;
+            neighbours[0] = count + 1;
+            return;
+        }
+        List<Candidate> candidates = new ArrayList<>(count + 1);
+        for (int i = 1; i <= count; i++) candidates.add(new Candidate(neighbours[i], distance(from, neighbours[i])));
+        candidates.add(new Candidate(to, distance(from, to)));
+        candidates.sort(NEAREST_FIRST);
+        List<Candidate> kept = selectNeighbours(candidates, capacity(level));
+        neighbours[0] = kept.size();
+        for (int i = 0; i < kept.size(); i++) neighbours[i + 1] = kept.get(i).node;
+    }
+
+    /**
+     * Keeps a candidate only if it is closer to the base than to every neighbour already kept, which
+     * spreads links across directions; leftover slots are filled with the nearest rejected candidates.
+     * {@code candidates} must be sorted nearest first.
+     */
+    private List<Candidate> selectNeighbours(List<Candidate> candidates, int max) {
+        List<Candidate> kept = new ArrayList<>(max);
+        List<Candidate> rejected = new ArrayList<>();
+        for (Candidate c : candidates) {
+            if (kept.size() == max) break;
+            boolean diverse = true;
+            for (Candidate k : kept) {
+                if (distance(c.node, k.node) < c.distance) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) kept.add(c);
+            else rejected.add(c);
+        }
+        for (int i = 0; i < rejected.size() && kept.size() < max; i++) kept.add(rejected.get(i));
+        return kept;
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float best = distance(query, current);
+        for (boolean improved = true; improved; ) {
+            improved = false;
+            int[] neighbours = links[current][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                float d = distance(query, neighbours[i]);
+                if (d < best) {
+                    best = d;
+                    current = neighbours[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /** Best-first search on one layer; returns up to {@code ef} nodes, nearest first. */
+    private List<Candidate> searchLayer(float[] query, int start, int ef, int level) {
+        BitSet visited = new BitSet(nodes);
+        PriorityQueue<Candidate> frontier = new PriorityQueue<>(NEAREST_FIRST);
+        PriorityQueue<Candidate> nearest = new PriorityQueue<>(FARTHEST_FIRST);
+        Candidate first = new Candidate(start, distance(query, start));
+        visited.set(start);
+        frontier.add(first);
+        nearest.add(first);
+        while (!frontier.isEmpty()) {
+            Candidate c = frontier.poll();
+            if (c.distance > nearest.peek().distance && nearest.size() >= ef) break;
+            int[] neighbours = links[c.node][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int n = neighbours[i];
+                if (visited.get(n)) continue;
+                visited.set(n);
+                float d = distance(query, n);
+                if (nearest.size() < ef || d < nearest.peek().distance) {
+                    Candidate next = new Candidate(n, d);
+                    frontier.add(next);
+                    nearest.add(next);
+                    if (nearest.size() > ef) nearest.poll();
+                }
+            }
+        }
+        List<Candidate> result = new ArrayList<>(nearest);
+        result.sort(NEAREST_FIRST);
+        return result;
+    }
+
+    /** Re-inserts every live entry into a fresh graph, dropping tombstoned nodes. */
+    private void rebuild() {
+        int oldNodes = nodes;
+        float[] oldVectors = vectors;
+        long[] oldIds = ids;
+        long[] oldFingerprints = fingerprints;
+        BitSet dead = (BitSet) tombstones.clone();
+
+        nodesById.clear();
+        tombstones.clear();
+        vectors = new float[16 * dimensions];
+        ids = new long[16];
+        fingerprints = new long[16];
+        links = new int[16][][];
+        nodes = 0;
+        entryPoint = -1;
+        topLevel = -1;
+        for (int node = 0; node < oldNodes; node++) {
+            if (dead.get(node)) continue;
+            insert(oldIds[node], Arrays.copyOfRange(oldVectors, node * dimensions, (node + 1) * dimensions), oldFingerprints[node]);
+        }
+    }
+
+    private void grow(int required) {
+        if (required <= ids.length) return;
+        int capacity = Math.max(required, ids.length * 2);
+        vectors = Arrays.copyOf(vectors, capacity * dimensions);
+        ids = Arrays.copyOf(ids, capacity);
+        fingerprints = Arrays.copyOf(fingerprints, capacity);
+        links = Arrays.copyOf(links, capacity);
+    }
+
+    /** The bottom layer keeps twice as many links, as in the original HNSW paper. */
+    private int capacity(int level) { return level == 0 ? 2 * m : m; }
+
+    private float distance(float[] query, int node) {
+        float dot = 0;
+        int offset = node * dimensions;
+        for (int i = 0; i < dimensions; i++) dot += query[i] * vectors[offset + i];
+        return 1 - dot;
+    }
+
+    private float distance(int a, int b) {
+        float dot = 0;
+        int offsetA = a * dimensions;
+        int offsetB = b * dimensions;
+        for (int i = 0; i < dimensions; i++) dot += vectors[offsetA + i] * vectors[offsetB + i];
+        return 1 - dot;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) norm += v * v;
+        float[] unit = new float[vector.length];
+        if (norm == 0) return unit;
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) unit[i] = vector[i] * scale;
+        return unit;
+    }
+
+    public record Match(long id, float score) {}
+
+    private record Candidate(int node, float distance) {}
+}
@@ -0,0 +1,262 @@
+package com.example.aiservice.embedding;
+
+import com.example.aiservice.client.CachingPostClient;
+import com.example.aiservice.dto.PostDto;
+import feign.FeignException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embeddings of every post, kept in an {@link HnswIndex} for related-post and semantic search.
+ * <p>
+ * On startup the last snapshot is loaded, then all posts are paged through {@link CachingPostClient}
+ * and only new or changed ones (by content fingerprint) are sent to the embedding model, in batches
+ * of {@code batchSize}; posts that no longer exist are dropped. After that, post-service's change
+ * events keep the index current. All index writes run on one background thread, so the webhook and
+ * the startup sync never block request threads.
+ * <p>
+ * The snapshot is written after the startup sync, at most every {@code snapshotInterval} while
+ * changes arrive, and on shutdown. It records the embedding model it was built with and is ignored
+ * if that changes.
+ */
+@Component
+public class PostEmbeddingService {
+    private static final Logger log = LoggerFactory.getLogger(PostEmbeddingService.class);
+    private static final int SNAPSHOT_MAGIC = 0x504F5345;
+
+    private final EmbeddingModel model;
+    private final CachingPostClient posts;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("post-embeddings-"));
+    private final String modelName;
+    private final Path snapshotPath;
+    private final Duration snapshotInterval;
+    private final int batchSize;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final Timer embedTime;
+    private volatile HnswIndex index;
+    private volatile boolean dirty;
+    private volatile long lastSnapshotNanos = System.nanoTime();
+
+    public PostEmbeddingService(EmbeddingModel model, CachingPostClient posts, MeterRegistry registry,
+                                @Value("${ai.embeddings.model-name:${spring.ai.openai.embedding.options.model:default}}") String modelName,
+                                @Value("${ai.embeddings.snapshot-path:}") String snapshotPath,
+                                @Value("${ai.embeddings.snapshot-interval:5m}") Duration snapshotInterval,
+                                @Value("${ai.embeddings.batch-size:100}") int batchSize,
+                                @Value("${ai.embeddings.hnsw.m:16}") int m,
+                                @Value("${ai.embeddings.hnsw.ef-construction:100}") int efConstruction,
+                                @Value("${ai.embeddings.hnsw.ef-search:64}") int efSearch) {
+        this.model = model;
+        this.posts = posts;
+        this.modelName = modelName;
+        this.snapshotPath = snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+        this.snapshotInterval = snapshotInterval;
+        this.batchSize = batchSize;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.embedTime = Timer.builder("ai.embeddings.embed.duration").register(registry);
+        Gauge.builder("ai.embeddings.indexed", this, s -> s.index == null ? 0 : s.index.size()).register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        writer.execute(() -> {
+            loadSnapshot();
+            try {
+                sync();
+            } catch (Exception e) {
+                log.warn("Post embedding sync failed, serving what is indexed: {}", e.toString());
+            }
+            saveSnapshot();
+        });
+    }
+
+    /** Pages through all posts, embedding new and changed ones and dropping deleted ones. */
+    void sync() {
+        long start = System.nanoTime();
+        Set<Long> seen = new HashSet<>();
+        int embedded = 0;
+        long afterId = 0;
+        while (true) {
+            List<PostDto> page = posts.getPostsAfter(afterId, batchSize);
+            if (page.isEmpty()) break;
+            embedded += embedStale(page);
+            page.forEach(p -> seen.add(p.getId()));
+            afterId = page.get(page.size() - 1).getId();
+            if (page.size() < batchSize) break;
+        }
+        HnswIndex current = index;
+        if (current != null) {
+            for (Long id : current.ids()) {
+                if (!seen.contains(id)) current.remove(id);
+            }
+        }
+        log.info("Post embeddings synced: {} posts, {} embedded in {} ms", seen.size(), embedded,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /** Re-reads the given posts in the background and updates or drops their embeddings. */
+    public void refresh(Collection<Long> postIds) {
+        List<Long> ids = List.copyOf(postIds);
+        writer.execute(() -> {
+            try {
+                Map<Long, PostDto> found = posts.getPostsByIds(ids);
+                HnswIndex current = index;
+                for (Long id : ids) {
+                    if (!found.containsKey(id) && current != null) current.remove(id);
+                }
+                List<PostDto> present = new ArrayList<>(found.values());
+                for (int i = 0; i < present.size(); i += batchSize) {
+                    embedStale(present.subList(i, Math.min(present.size(), i + batchSize)));
+                }
+                dirty = true;
+                if (System.nanoTime() - lastSnapshotNanos > snapshotInterval.toNanos()) saveSnapshot();
+            } catch (Exception e) {
+                log.warn("Refreshing embeddings for posts {} failed: {}", ids, e.toString());
+            }
+        });
+    }
+
+    /**
+     * Posts closest in meaning to {@code postId}, excluding itself. Empty if the post does not exist;
+     * a post not yet indexed is embedded on the spot.
+     */
+    public Optional<List<HnswIndex.Match>> related(long postId, int limit) {
+        HnswIndex current = index;
+        float[] vector = current == null ? null : current.vector(postId);
+        if (vector == null) {
+            PostDto post;
+            try {
+                post = posts.getPostById(postId);
+            } catch (FeignException.NotFound e) {
+                return Optional.empty();
+            }
+            if (post == null) return Optional.empty();
+            vector = embed(List.of(text(post))).get(0);
+            current = index(vector.length);
+        }
+        List<HnswIndex.Match> matches = new ArrayList<>(limit);
+        for (HnswIndex.Match match : current.search(vector, limit + 1, Math.max(efSearch, limit + 1))) {
+            if (match.id() != postId && matches.size() < limit) matches.add(match);
+        }
+        return Optional.of(matches);
+    }
+
+    public List<HnswIndex.Match> search(String query, int limit) {
+        HnswIndex current = index;
+        if (current == null) return List.of();
+        return current.search(embed(List.of(query)).get(0), limit, Math.max(efSearch, limit));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(30, TimeUnit.SECONDS);
+        if (dirty) saveSnapshot();
+    }
+
+    private int embedStale(List<PostDto> page) {
+        HnswIndex current = index;
+        List<PostDto> stale = page.stream()
+                .filter(p -> current == null || !Long.valueOf(fingerprint(p)).equals(current.fingerprint(p.getId())))
+                .toList();
+        if (stale.isEmpty()) return 0;
+        List<float[]> vectors = embed(stale.stream().map(PostEmbeddingService::text).toList());
+        HnswIndex target = index(vectors.get(0).length);
+        for (int i = 0; i < stale.size(); i++) target.put(stale.get(i).getId(), vectors.get(i), fingerprint(stale.get(i)));
+        dirty = true;
+        return stale.size();
+    }
+
+    private List<float[]> embed(List<String> texts) {
+        return embedTime.record(() -> model.embed(texts));
+    }
+
+    /** The index is sized by the first embedding (or snapshot) seen, since asking the model costs a call. */
+    private synchronized HnswIndex index(int dimensions) {
+        if (index == null) index = new HnswIndex(dimensions, m, efConstruction);
+        return index;
+    }
+
+    private void loadSnapshot() {
+        if (snapshotPath == null || !Files.exists(snapshotPath)) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) throw new IOException("not an embedding snapshot");
+            String builtWith = in.readUTF();
+            if (!builtWith.equals(modelName)) {
+                log.info("Ignoring embedding snapshot built with model {}, now using {}", builtWith, modelName);
+                return;
+            }
+            HnswIndex loaded = HnswIndex.read(in);
+            synchronized (this) {
+                index = loaded;
+            }
+            log.info("Loaded {} post embeddings from {}", loaded.size(), snapshotPath);
+        } catch (IOException e) {
+            log.warn("Could not read embedding snapshot {}: {}", snapshotPath, e.toString());
+        }
+    }
+
+    /** Writes to a temporary file and renames it, so a crash never leaves a truncated snapshot behind. */
+    private void saveSnapshot() {
+        HnswIndex current = index;
+        if (snapshotPath == null || current == null) return;
+        try {
+            Path parent = snapshotPath.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmp = Files.createTempFile(parent, snapshotPath.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeUTF(modelName);
+                current.write(out);
+            }
+            Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+            lastSnapshotNanos = System.nanoTime();
+        } catch (IOException e) {
+            log.warn("Could not write embedding snapshot {}: {}", snapshotPath, e.toString());
+        }
+    }
+
+    static String text(PostDto post) {
+        return (post.getTitle() == null ? "" : post.getTitle()) + "\n\n" + (post.getContent() == null ? "" : post.getContent());
+    }
+
+    /** Cheap change detector: the text's hash in the high half, its length in the low half. */
+    static long fingerprint(PostDto post) {
+        String text = text(post);
+        return ((long) text.hashCode() << 32) | (text.length() & 0xFFFFFFFFL);
+    }
+}
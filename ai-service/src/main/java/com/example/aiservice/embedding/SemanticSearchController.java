@@ -0,0 +1,64 @@
+package com.example.aiservice.embedding;
+
+import com.example.aiservice.client.CachingPostClient;
+import com.example.aiservice.dto.PostDto;
+import lombok.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/ai")
+public class SemanticSearchController {
+    static final int MAX_LIMIT = 100;
+
+    private final PostEmbeddingService embeddings;
+    private final CachingPostClient posts;
+
+    public SemanticSearchController(PostEmbeddingService embeddings, CachingPostClient posts) {
+        this.embeddings = embeddings;
+        this.posts = posts;
+    }
+
+    /** Posts nearest in embedding space to the given one, most similar first. */
+    @GetMapping("/related/{postId}")
+    public ResponseEntity<List<ScoredPost>> related(@PathVariable("postId") long postId,
+                                                    @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) return ResponseEntity.badRequest().build();
+        return embeddings.related(postId, limit)
+                .map(matches -> ResponseEntity.ok(withPosts(matches)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /** Posts nearest in embedding space to the query text; matches meaning rather than exact words. */
+    @GetMapping("/search")
+    public ResponseEntity<List<ScoredPost>> search(@RequestParam("q") String q,
+                                                   @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        if (q.isBlank() || limit < 1 || limit > MAX_LIMIT) return ResponseEntity.badRequest().build();
+        return ResponseEntity.ok(withPosts(embeddings.search(q, limit)));
+    }
+
+    /** Looks the matched posts up in bulk; matches for posts deleted since indexing are dropped. */
+    private List<ScoredPost> withPosts(List<HnswIndex.Match> matches) {
+        Map<Long, PostDto> found = posts.getPostsByIds(matches.stream().map(HnswIndex.Match::id).toList());
+        List<ScoredPost> result = new ArrayList<>(matches.size());
+        for (HnswIndex.Match match : matches) {
+            PostDto post = found.get(match.id());
+            if (post != null) result.add(new ScoredPost(match.score(), post));
+        }
+        return result;
+    }
+
+    @Value
+    public static class ScoredPost {
+        float score;
+        PostDto post;
+    }
+}
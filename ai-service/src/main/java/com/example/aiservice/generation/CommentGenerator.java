@@ -0,0 +1,36 @@
+package com.example.aiservice.generation;
+
+import com.example.aiservice.cache.GenerationCache;
+import com.example.aiservice.dto.PostDto;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+/** Writes one comment for a post, shared by the single-post endpoints and bulk comment jobs. */
+@Component
+public class CommentGenerator {
+    private final ChatClient chatClient;
+    private final GenerationCache generationCache;
+
+    public CommentGenerator(@Qualifier("generationChatClient") ChatClient chatClient, GenerationCache generationCache) {
+        this.chatClient = chatClient;
+        this.generationCache = generationCache;
+    }
+
+    /** Calls the model, or reuses the completion for an identical prompt. */
+    public String generate(PostDto post) {
+        String prompt = prompt(post);
+        return generationCache.get(prompt, () -> chatClient.prompt(prompt).call().content());
+    }
+
+    public static String prompt(PostDto post) {
+        return String.format("""
+                You are a helpful assistant who writes insightful blog comments.
+                Read the following post and generate one short, thoughtful comment
+                that could be posted under it. around 50 words.
+
+                Post Title: %s
+                Post Content: %s
+                """, post.getTitle(), post.getContent());
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.aiservice.job;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+/**
+ * Progress of one bulk comment job. The feeder counts as one outstanding unit until it has handed
+ * out every post, so the job completes exactly once: when the feeder and every item are done.
+ * Successful results are handed to the write-back, if any, a batch at a time and once more with the
+ * remainder before the job completes.
+ */
+public class CommentJob {
+    public enum Status { RUNNING, COMPLETED, CANCELLED }
+
+    private final String id;
+    private final int planned;
+    private final Instant submittedAt = Instant.now();
+    private final List<CommentJobResult> results = new ArrayList<>();
+    private final Sinks.Many<CommentJobResult> sink = Sinks.many().replay().all();
+    private final AtomicInteger outstanding = new AtomicInteger(1);
+    private final AtomicInteger started = new AtomicInteger();
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger written = new AtomicInteger();
+    private final int writeBatchSize;
+    private final ToIntFunction<List<CommentJobResult>> writeBack;
+    private final List<CommentJobResult> unwritten = new ArrayList<>();
+    /** Posts fetched but not yet commented on; bounds how far the feeder runs ahead of the model. */
+    final Semaphore window;
+    private volatile Status status = Status.RUNNING;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    CommentJob(String id, int planned, int window, ToIntFunction<List<CommentJobResult>> writeBack) {
+        this.id = id;
+        this.planned = planned;
+        this.window = new Semaphore(window);
+        this.writeBatchSize = window;
+        this.writeBack = writeBack;
+    }
+
+    public String getId() { return id; }
+    public Status getStatus() { return status; }
+    public int getPlanned() { return planned; }
+    public int getStarted() { return started.get(); }
+    public int getSucceeded() { return succeeded.get(); }
+    public int getFailed() { return failed.get(); }
+    public int getWritten() { return written.get(); }
+    public Instant getSubmittedAt() { return submittedAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    public String getError() { return error; }
+
+    public double getItemsPerSecond() {
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        double seconds = Duration.between(submittedAt, end).toMillis() / 1000.0;
+        return seconds > 0 ? (succeeded.get() + failed.get()) / seconds : 0;
+    }
+
+    public boolean isCancelled() { return status == Status.CANCELLED; }
+
+    public List<CommentJobResult> results() {
+        synchronized (results) {
+            return List.copyOf(results);
+        }
+    }
+
+    /** Every result so far followed by the rest as they arrive; completes when the job does. */
+    public Flux<CommentJobResult> stream() {
+        return sink.asFlux();
+    }
+
+    void cancel() {
+        if (status == Status.RUNNING) status = Status.CANCELLED;
+    }
+
+    void itemStarted() {
+        started.incrementAndGet();
+        outstanding.incrementAndGet();
+    }
+
+    void itemFinished(CommentJobResult result) {
+        (result.isSucceeded() ? succeeded : failed).incrementAndGet();
+        List<CommentJobResult> toWrite = null;
+        synchronized (results) {
+            results.add(result);
+            sink.tryEmitNext(result);
+            if (writeBack != null && result.isSucceeded()) {
+                unwritten.add(result);
+                if (unwritten.size() >= writeBatchSize) toWrite = drainUnwritten();
+            }
+        }
+        if (toWrite != null) write(toWrite);
+        release();
+    }
+
+    void feedingFinished(String error) {
+        if (error != null) this.error = error;
+        release();
+    }
+
+    private List<CommentJobResult> drainUnwritten() {
+        List<CommentJobResult> drained = List.copyOf(unwritten);
+        unwritten.clear();
+        return drained;
+    }
+
+    private void write(List<CommentJobResult> batch) {
+        try {
+            written.addAndGet(writeBack.applyAsInt(batch));
+        } catch (RuntimeException e) {
+            error = "write-back failed: " + e.getMessage();
+        }
+    }
+
+    private void release() {
+        if (outstanding.decrementAndGet() == 0) {
+            if (writeBack != null) {
+                List<CommentJobResult> rest;
+                synchronized (results) {
+                    rest = drainUnwritten();
+                }
+                if (!rest.isEmpty()) write(rest);
+            }
+            if (status == Status.RUNNING) status = Status.COMPLETED;
+            finishedAt = Instant.now();
+            synchronized (results) {
+                sink.tryEmitComplete();
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.aiservice.job;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/** Bulk comment generation: submit a job, then poll its status or stream its results as they finish. */
+@RestController
+@RequestMapping("/ai/jobs/comments")
+public class CommentJobController {
+    private final CommentJobService jobs;
+
+    public CommentJobController(CommentJobService jobs) {
+        this.jobs = jobs;
+    }
+
+    @PostMapping
+    public ResponseEntity<CommentJob> submit(@RequestBody CommentJobRequest request) {
+        CommentJob job;
+        try {
+            job = jobs.submit(request);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "30").build();
+        }
+        return ResponseEntity.accepted().location(URI.create("/ai/jobs/comments/" + job.getId())).body(job);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<CommentJob> status(@PathVariable("id") String id) {
+        return ResponseEntity.of(jobs.find(id));
+    }
+
+    @GetMapping("/{id}/results")
+    public ResponseEntity<List<CommentJobResult>> results(@PathVariable("id") String id) {
+        return ResponseEntity.of(jobs.find(id).map(CommentJob::results));
+    }
+
+    @GetMapping(value = "/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<CommentJobResult>>> stream(@PathVariable("id") String id) {
+        return ResponseEntity.of(jobs.find(id).map(job -> job.stream()
+                .map(result -> ServerSentEvent.builder(result).event("result").build())
+                .concatWith(Mono.just(ServerSentEvent.<CommentJobResult>builder().event("done").build()))));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<CommentJob> cancel(@PathVariable("id") String id) {
+        return ResponseEntity.of(jobs.cancel(id));
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.aiservice.job;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Posts to comment on: either an explicit {@code postIds} list, or up to {@code limit} posts with
+ * ids greater than {@code afterId}. With {@code writeBack}, generated comments are saved to
+ * comment-service in bulk under {@code authorId}.
+ */
+@Data
+public class CommentJobRequest {
+    private List<Long> postIds;
+    private Long afterId;
+    private Integer limit;
+    private boolean writeBack;
+    private Long authorId;
+}
@@ -0,0 +1,23 @@
+package com.example.aiservice.job;
+
+import lombok.Value;
+
+/** Outcome for one post; exactly one of {@code comment} and {@code error} is set. */
+@Value
+public class CommentJobResult {
+    Long postId;
+    String comment;
+    String error;
+
+    static CommentJobResult succeeded(Long postId, String comment) {
+        return new CommentJobResult(postId, comment, null);
+    }
+
+    static CommentJobResult failed(Long postId, String error) {
+        return new CommentJobResult(postId, null, error);
+    }
+
+    public boolean isSucceeded() {
+        return error == null;
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.aiservice.job;
+
+import com.example.aiservice.client.CachingPostClient;
+import com.example.aiservice.client.CommentClient;
+import com.example.aiservice.dto.CommentDto;
+import com.example.aiservice.dto.PostDto;
+import com.example.aiservice.generation.CommentGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs bulk comment generation. Posts are prefetched through {@link CachingPostClient} in batches of
+ * {@code batchSize}, and each job may only run that many posts ahead of the model. Model calls run on
+ * a fixed pool of {@code concurrency} workers shared by all jobs.
+ * <p>
+ * Admission is bounded: a job reserves one slot per planned post up front, and submissions that would
+ * push the total past {@code maxQueued} are rejected instead of queueing without limit.
+ * <p>
+ * With write-back, comments are saved through comment-service's {@code /comments/batch} in batches of
+ * {@code batchSize} as they are generated.
+ */
+@Component
+public class CommentJobService {
+    private static final Logger log = LoggerFactory.getLogger(CommentJobService.class);
+
+    private final CachingPostClient posts;
+    private final CommentClient comments;
+    private final CommentGenerator generator;
+    private final AsyncTaskExecutor feeders;
+    private final ExecutorService workers;
+    private final int batchSize;
+    private final int maxQueued;
+    private final Duration retention;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Map<String, CommentJob> jobs = new ConcurrentHashMap<>();
+    private final Counter succeeded;
+    private final Counter failed;
+    private final Timer itemTime;
+
+    public CommentJobService(CachingPostClient posts, CommentClient comments, CommentGenerator generator,
+                             @Qualifier("applicationTaskExecutor") AsyncTaskExecutor feeders,
+                             MeterRegistry registry,
+                             @Value("${ai.comment-jobs.concurrency:4}") int concurrency,
+                             @Value("${ai.comment-jobs.batch-size:100}") int batchSize,
+                             @Value("${ai.comment-jobs.max-queued:10000}") int maxQueued,
+                             @Value("${ai.comment-jobs.retention:1h}") Duration retention) {
+        this.posts = posts;
+        this.comments = comments;
+        this.generator = generator;
+        this.feeders = feeders;
+        this.workers = Executors.newFixedThreadPool(concurrency, new CustomizableThreadFactory("comment-job-"));
+        this.batchSize = batchSize;
+        this.maxQueued = maxQueued;
+        this.retention = retention;
+        this.succeeded = registry.counter("ai.comment_jobs.items", "outcome", "succeeded");
+        this.failed = registry.counter("ai.comment_jobs.items", "outcome", "failed");
+        this.itemTime = Timer.builder("ai.comment_jobs.item.duration")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        Gauge.builder("ai.comment_jobs.queued", queued, AtomicInteger::get).register(registry);
+        Gauge.builder("ai.comment_jobs.active", jobs,
+                m -> m.values().stream().filter(j -> j.getStatus() == CommentJob.Status.RUNNING).count())
+                .register(registry);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the request names no posts
+     * @throws RejectedExecutionException if accepting the job would exceed the queue limit
+     */
+    public CommentJob submit(CommentJobRequest request) {
+        int planned = planned(request);
+        if (queued.addAndGet(planned) > maxQueued) {
+            queued.addAndGet(-planned);
+            throw new RejectedExecutionException("comment job queue is full");
+        }
+        purgeFinished();
+        CommentJob job = new CommentJob(UUID.randomUUID().toString(), planned, batchSize,
+                request.isWriteBack() ? batch -> writeBack(request.getAuthorId(), batch) : null);
+        jobs.put(job.getId(), job);
+        try {
+            feeders.execute(() -> feed(job, request));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            queued.addAndGet(-planned);
+            throw e;
+        }
+        return job;
+    }
+
+    public Optional<CommentJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /** Stops handing out posts; items already with the model still finish. */
+    public Optional<CommentJob> cancel(String id) {
+        CommentJob job = jobs.get(id);
+        if (job != null) job.cancel();
+        return Optional.ofNullable(job);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private static int planned(CommentJobRequest request) {
+        if (request.isWriteBack() && request.getAuthorId() == null) {
+            throw new IllegalArgumentException("authorId is required with writeBack");
+        }
+        if (request.getPostIds() != null) {
+            if (request.getPostIds().isEmpty()) throw new IllegalArgumentException("postIds is empty");
+            return request.getPostIds().size();
+        }
+        if (request.getLimit() == null || request.getLimit() <= 0) {
+            throw new IllegalArgumentException("either postIds or a positive limit is required");
+        }
+        return request.getLimit();
+    }
+
+    private void feed(CommentJob job, CommentJobRequest request) {
+        int fed = 0;
+        String error = null;
+        try {
+            if (request.getPostIds() != null) {
+                List<Long> ids = request.getPostIds();
+                for (int i = 0; i < ids.size() && !job.isCancelled(); i += batchSize) {
+                    List<Long> batch = ids.subList(i, Math.min(ids.size(), i + batchSize));
+                    Map<Long, PostDto> found = posts.getPostsByIds(batch);
+                    for (Long id : batch) {
+                        PostDto post = found.get(id);
+                        if (post != null) {
+                            dispatch(job, post);
+                        } else {
+                            job.itemStarted();
+                            finish(job, CommentJobResult.failed(id, "post not found"));
+                        }
+                        fed++;
+                    }
+                }
+            } else {
+                long cursor = request.getAfterId() != null ? request.getAfterId() : 0L;
+                int remaining = request.getLimit();
+                while (remaining > 0 && !job.isCancelled()) {
+                    int size = Math.min(batchSize, remaining);
+                    List<PostDto> page = posts.getPostsAfter(cursor, size);
+                    for (PostDto post : page) {
+                        dispatch(job, post);
+                        fed++;
+                    }
+                    remaining -= page.size();
+                    if (page.size() < size) break;
+                    cursor = page.get(page.size() - 1).getId();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "interrupted";
+        } catch (RuntimeException e) {
+            log.warn("Comment job {} stopped fetching posts", job.getId(), e);
+            error = "fetching posts failed: " + e.getMessage();
+        } finally {
+            queued.addAndGet(-(job.getPlanned() - fed));
+            job.feedingFinished(error);
+        }
+    }
+
+    private void dispatch(CommentJob job, PostDto post) throws InterruptedException {
+        job.window.acquire();
+        job.itemStarted();
+        try {
+            workers.execute(() -> generate(job, post));
+        } catch (RejectedExecutionException e) {
+            job.window.release();
+            finish(job, CommentJobResult.failed(post.getId(), "rejected"));
+        }
+    }
+
+    private void generate(CommentJob job, PostDto post) {
+        try {
+            if (job.isCancelled()) {
+                finish(job, CommentJobResult.failed(post.getId(), "cancelled"));
+                return;
+            }
+            long start = System.nanoTime();
+            String comment = generator.generate(post);
+            itemTime.record(Duration.ofNanos(System.nanoTime() - start));
+            finish(job, CommentJobResult.succeeded(post.getId(), comment));
+        } catch (RuntimeException e) {
+            log.debug("Comment generation failed for post {}", post.getId(), e);
+            finish(job, CommentJobResult.failed(post.getId(), e.getMessage()));
+        } finally {
+            job.window.release();
+        }
+    }
+
+    private void finish(CommentJob job, CommentJobResult result) {
+        queued.decrementAndGet();
+        (result.isSucceeded() ? succeeded : failed).increment();
+        job.itemFinished(result);
+    }
+
+    /** Saves a batch of generated comments through comment-service's bulk endpoint; returns how many were created. */
+    private int writeBack(Long authorId, List<CommentJobResult> batch) {
+        List<CommentDto> rows = batch.stream()
+                .map(r -> new CommentDto(null, r.getPostId(), authorId, r.getComment()))
+                .toList();
+        return (int) comments.createComments(rows).stream()
+                .filter(r -> "CREATED".equals(r.get("status")))
+                .count();
+    }
+
+    private void purgeFinished() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(j -> j.getFinishedAt() != null && j.getFinishedAt().isBefore(cutoff));
+    }
+}
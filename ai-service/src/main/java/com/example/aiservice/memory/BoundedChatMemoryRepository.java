@@ -0,0 +1,78 @@
+package com.example.aiservice.memory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * In-memory store for per-conversation history. Conversations idle longer than the timeout are
+ * dropped, and the total size of all stored message text is capped: once the cap is reached the
+ * least recently used conversations are evicted first.
+ */
+@Component
+public class BoundedChatMemoryRepository implements ChatMemoryRepository {
+    private final Cache<String, List<Message>> conversations;
+
+    public BoundedChatMemoryRepository(MeterRegistry registry,
+                                       @Value("${ai.memory.max-total-chars:2000000}") long maxTotalChars,
+                                       @Value("${ai.memory.idle-timeout:30m}") Duration idleTimeout) {
+        this.conversations = Caffeine.newBuilder()
+                .maximumWeight(maxTotalChars)
+                .weigher((String id, List<Message> messages) -> weight(messages))
+                .expireAfterAccess(idleTimeout)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, conversations, "ai-chat-memory");
+        Gauge.builder("ai.memory.weighted_size", conversations,
+                        c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L))
+                .description("Characters of message text held across all conversations")
+                .register(registry);
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        return List.copyOf(conversations.asMap().keySet());
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        List<Message> messages = conversations.getIfPresent(conversationId);
+        return messages != null ? messages : List.of();
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        if (messages.isEmpty()) {
+            conversations.invalidate(conversationId);
+        } else {
+            conversations.put(conversationId, List.copyOf(messages));
+        }
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        conversations.invalidate(conversationId);
+    }
+
+    void cleanUp() {
+        conversations.cleanUp();
+    }
+
+    private static int weight(List<Message> messages) {
+        long chars = 0;
+        for (Message message : messages) {
+            String text = message.getText();
+            chars += text != null ? text.length() : 0;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, chars));
+    }
+}
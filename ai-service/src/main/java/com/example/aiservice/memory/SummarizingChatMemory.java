@@ -0,0 +1,82 @@
+package com.example.aiservice.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Chat memory that keeps prompt size flat over long sessions. When a conversation grows past
+ * {@code maxMessages}, everything but the most recent {@code keepRecent} messages is folded into a
+ * single summary message produced by the model. If summarizing fails, the older messages are
+ * simply dropped, as a plain message window would.
+ */
+public class SummarizingChatMemory implements ChatMemory {
+    private static final Logger log = LoggerFactory.getLogger(SummarizingChatMemory.class);
+
+    static final String SUMMARY_PREFIX = "Summary of the earlier conversation: ";
+
+    private final ChatMemoryRepository repository;
+    private final ChatModel chatModel;
+    private final int maxMessages;
+    private final int keepRecent;
+
+    public SummarizingChatMemory(ChatMemoryRepository repository, ChatModel chatModel, int maxMessages, int keepRecent) {
+        if (keepRecent <= 0 || keepRecent >= maxMessages) {
+            throw new IllegalArgumentException("keepRecent must be between 1 and maxMessages - 1");
+        }
+        this.repository = repository;
+        this.chatModel = chatModel;
+        this.maxMessages = maxMessages;
+        this.keepRecent = keepRecent;
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        List<Message> history = new ArrayList<>(repository.findByConversationId(conversationId));
+        history.addAll(messages);
+        repository.saveAll(conversationId, history.size() > maxMessages ? compact(history) : history);
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        return repository.findByConversationId(conversationId);
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        repository.deleteByConversationId(conversationId);
+    }
+
+    private List<Message> compact(List<Message> history) {
+        int split = history.size() - keepRecent;
+        List<Message> compacted = new ArrayList<>(keepRecent + 1);
+        try {
+            compacted.add(new SystemMessage(SUMMARY_PREFIX + summarize(history.subList(0, split))));
+        } catch (RuntimeException e) {
+            log.warn("Summarizing conversation failed, dropping {} older messages", split, e);
+        }
+        compacted.addAll(history.subList(split, history.size()));
+        return compacted;
+    }
+
+    private String summarize(List<Message> older) {
+        String transcript = older.stream()
+                .map(m -> m.getMessageType().getValue() + ": " + m.getText())
+                .collect(Collectors.joining("\n"));
+        return chatModel.call(new Prompt("""
+                Summarize the conversation below in a few sentences. Keep names, facts and decisions
+                the assistant will need to continue it. Respond with the summary only.
+
+                """ + transcript))
+                .getResult().getOutput().getText();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.aiservice.stream;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records time-to-first-token and tokens/sec for streamed completions. Each streamed chunk from the
+ * model counts as one token, which matches how OpenAI-compatible servers emit deltas.
+ */
+@Component
+public class TokenStreamMetrics {
+    private final MeterRegistry registry;
+
+    public TokenStreamMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public Flux<String> record(String endpoint, Flux<String> tokens) {
+        Timer firstToken = Timer.builder("ai.stream.time_to_first_token")
+                .tag("endpoint", endpoint)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        DistributionSummary rate = DistributionSummary.builder("ai.stream.tokens_per_second")
+                .tag("endpoint", endpoint)
+                .register(registry);
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicLong firstAt = new AtomicLong();
+            AtomicLong count = new AtomicLong();
+            return tokens
+                    .doOnNext(token -> {
+                        if (count.getAndIncrement() == 0) {
+                            firstAt.set(System.nanoTime());
+                            firstToken.record(Duration.ofNanos(firstAt.get() - start));
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        double seconds = (System.nanoTime() - start) / 1e9;
+                        if (count.get() > 0 && seconds > 0) rate.record(count.get() / seconds);
+                    });
+        });
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.aiservice.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenerationCacheTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final GenerationCache cache =
+            new GenerationCache(registry, "llama3.2", "0.7", 100, Duration.ofMinutes(5));
+
+    @Test
+    void normalizedPrompts_shouldShareOneEntry() {
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get("Topic:  Spring Boot\n", () -> "completion " + calls.incrementAndGet());
+        String second = cache.get("Topic: Spring   Boot", () -> "completion " + calls.incrementAndGet());
+
+        assertEquals("completion 1", second);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void promptsDifferingInCase_shouldNotShareAnEntry() {
+        cache.get("Summarize the news from the US", () -> "country");
+
+        assertEquals("pronoun", cache.get("Summarize the news from the us", () -> "pronoun"));
+    }
+
+    @Test
+    void lookups_shouldBeCountedAsHitsAndMisses() {
+        cache.get("counted prompt", () -> "first");
+        cache.get("counted prompt", () -> "second");
+        cache.get("other prompt", () -> "third");
+
+        assertEquals(2.0, registry.get("cache.gets").tags("cache", "ai-generation", "result", "miss").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tags("cache", "ai-generation", "result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void modelOptions_shouldBePartOfTheKey() {
+        GenerationCache other = new GenerationCache(new SimpleMeterRegistry(), "llama3.2", "0.2", 100, Duration.ofMinutes(5));
+
+        assertNotEquals(cache.key("same prompt"), other.key("same prompt"));
+    }
+
+    @Test
+    void concurrentMisses_shouldRunTheModelOnce() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        List<Future<String>> results = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            results.add(callers.submit(() -> cache.get("slow prompt", () -> {
+                calls.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "shared";
+            })));
+        }
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("shared", result.get());
+        }
+        callers.shutdown();
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void failures_shouldNotBeCached() {
+        assertThrows(IllegalStateException.class,
+                () -> cache.get("flaky prompt", () -> { throw new IllegalStateException("model down"); }));
+
+        assertEquals("recovered", cache.get("flaky prompt", () -> "recovered"));
+    }
+
+    @Test
+    void errors_shouldFailWaitersAndNotBeCached() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        Future<String> runner = callers.submit(() -> cache.get("crashing prompt", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new StackOverflowError("model client crashed");
+        }));
+        started.await();
+        Future<String> waiter = callers.submit(() -> cache.get("crashing prompt", () -> "not called"));
+        Thread.sleep(100);
+        release.countDown();
+
+        ExecutionException runnerFailure = assertThrows(ExecutionException.class, () -> runner.get(5, TimeUnit.SECONDS));
+        ExecutionException waiterFailure = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+        callers.shutdown();
+        assertInstanceOf(StackOverflowError.class, runnerFailure.getCause());
+        assertInstanceOf(StackOverflowError.class, waiterFailure.getCause());
+        assertEquals("recovered", cache.get("crashing prompt", () -> "recovered"));
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.aiservice.embedding;
+
+import com.example.aiservice.client.CachingPostClient;
+import com.example.aiservice.dto.PostDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SemanticSearchTests {
+
+    private final CachingPostClient posts = mock(CachingPostClient.class);
+
+    @Test
+    void hnsw_shouldFindMostOfTheExactNearestNeighbours() {
+        Random random = new Random(7);
+        float[][] vectors = new float[3000][];
+        HnswIndex index = new HnswIndex(24, 16, 100);
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = randomVector(random, 24);
+            index.put(i, vectors[i], 0);
+        }
+
+        int found = 0;
+        for (int q = 0; q < 50; q++) {
+            float[] query = randomVector(random, 24);
+            Set<Long> exact = new HashSet<>();
+            IntStream.range(0, vectors.length).boxed()
+                    .sorted(Comparator.comparingDouble(i -> -cosine(query, vectors[i])))
+                    .limit(10)
+                    .forEach(i -> exact.add((long) i));
+            found += (int) index.search(query, 10, 64).stream().filter(m -> exact.contains(m.id())).count();
+        }
+        assertTrue(found >= 450, "recall@10 was " + found / 500.0);
+    }
+
+    @Test
+    void snapshot_shouldRestoreEntriesAndTombstones() throws Exception {
+        HashingEmbeddingModel model = new HashingEmbeddingModel(32);
+        HnswIndex index = new HnswIndex(32, 8, 50);
+        index.put(1, model.embed("red apples and green apples"), 11);
+        index.put(2, model.embed("apples in a basket"), 22);
+        index.put(3, model.embed("bicycle repair"), 33);
+        index.remove(2);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.write(new DataOutputStream(bytes));
+        HnswIndex restored = HnswIndex.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(2, restored.size());
+        assertEquals(11L, restored.fingerprint(1));
+        assertNull(restored.fingerprint(2));
+        assertEquals(index.search(model.embed("apples"), 3, 10), restored.search(model.embed("apples"), 3, 10));
+        assertEquals(1L, restored.search(model.embed("apples"), 1, 10).get(0).id());
+    }
+
+    @Test
+    void related_shouldRankPostsSharingMeaningFirst() throws Exception {
+        givenPosts(post(1, "Sourdough bread", "Feeding the starter and baking bread"),
+                post(2, "Bread at home", "Baking bread with a sourdough starter"),
+                post(3, "Cycling", "Fixing a flat tyre on the road"));
+        PostEmbeddingService service = service(new HashingEmbeddingModel(64), null);
+        service.sync();
+
+        List<HnswIndex.Match> related = service.related(1, 2).orElseThrow();
+        assertEquals(List.of(2L, 3L), related.stream().map(HnswIndex.Match::id).toList());
+        assertTrue(related.get(0).score() > related.get(1).score());
+        assertEquals(3L, service.search("flat tyre", 1).get(0).id());
+    }
+
+    @Test
+    void restart_shouldReuseSnapshotAndOnlyEmbedChangedPosts(@TempDir Path dir) throws Exception {
+        Path snapshot = dir.resolve("posts.hnsw");
+        givenPosts(post(1, "Sourdough bread", "Baking"), post(2, "Cycling", "Tyres"));
+        PostEmbeddingService first = service(new HashingEmbeddingModel(64), snapshot);
+        first.start();
+        first.shutdown();
+        assertTrue(snapshot.toFile().length() > 0);
+
+        givenPosts(post(1, "Sourdough bread", "Baking"), post(3, "Running", "Shoes"));
+        HashingEmbeddingModel model = new HashingEmbeddingModel(64);
+        PostEmbeddingService second = service(model, snapshot);
+        second.start();
+        second.shutdown();
+
+        assertEquals(1, model.calls.get(), "only the new post should be embedded");
+        assertEquals(List.of(3L), second.related(1, 5).orElseThrow().stream().map(HnswIndex.Match::id).toList());
+    }
+
+    private PostEmbeddingService service(HashingEmbeddingModel model, Path snapshot) {
+        return new PostEmbeddingService(model, posts, new SimpleMeterRegistry(), "hashing",
+                snapshot == null ? "" : snapshot.toString(), Duration.ofMinutes(5), 100, 8, 50, 32);
+    }
+
+    private void givenPosts(PostDto... page) {
+        reset(posts);
+        when(posts.getPostsAfter(anyLong(), anyInt())).thenReturn(List.of());
+        when(posts.getPostsAfter(eq(0L), anyInt())).thenReturn(List.of(page));
+    }
+
+    private static PostDto post(long id, String title, String content) {
+        PostDto post = new PostDto();
+        post.setId(id);
+        post.setTitle(title);
+        post.setContent(content);
+        return post;
+    }
+
+    private static float[] randomVector(Random random, int dimensions) {
+        float[] v = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) v[i] = (float) random.nextGaussian();
+        return v;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0, na = 0, nb = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return dot / Math.sqrt(na * nb);
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.aiservice.job;
+
+import com.example.aiservice.client.CachingPostClient;
+import com.example.aiservice.client.CommentClient;
+import com.example.aiservice.dto.CommentDto;
+import com.example.aiservice.dto.PostDto;
+import com.example.aiservice.generation.CommentGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CommentJobServiceTests {
+
+    private final CachingPostClient posts = mock(CachingPostClient.class);
+    private final CommentClient comments = mock(CommentClient.class);
+    private final CommentGenerator generator = mock(CommentGenerator.class);
+    private CommentJobService service;
+
+    @AfterEach
+    void shutdown() {
+        if (service != null) service.shutdown();
+    }
+
+    private CommentJobService service(int concurrency, int maxQueued) {
+        service = new CommentJobService(posts, comments, generator, new SimpleAsyncTaskExecutor(), new SimpleMeterRegistry(),
+                concurrency, 2, maxQueued, Duration.ofHours(1));
+        return service;
+    }
+
+    @Test
+    void postIds_shouldBePrefetchedInBatchesAndCommentedOn() {
+        when(posts.getPostsByIds(anyCollection())).thenAnswer(inv -> {
+            Map<Long, PostDto> found = new HashMap<>();
+            for (Object id : (Collection<?>) inv.getArgument(0)) {
+                if (!id.equals(3L)) found.put((Long) id, post((Long) id));
+            }
+            return found;
+        });
+        when(generator.generate(any())).thenAnswer(inv -> "comment on " + ((PostDto) inv.getArgument(0)).getTitle());
+
+        CommentJob job = service(2, 100).submit(request(List.of(1L, 2L, 3L, 4L)));
+        List<CommentJobResult> streamed = job.stream().collectList().block(Duration.ofSeconds(5));
+
+        assertEquals(CommentJob.Status.COMPLETED, job.getStatus());
+        assertEquals(4, streamed.size());
+        assertEquals(3, job.getSucceeded());
+        assertEquals(1, job.getFailed());
+        assertTrue(job.results().contains(CommentJobResult.failed(3L, "post not found")));
+        assertTrue(job.results().contains(CommentJobResult.succeeded(4L, "comment on Post 4")));
+        verify(posts, times(2)).getPostsByIds(anyCollection());
+    }
+
+    @Test
+    void modelCalls_shouldNotExceedConcurrencyLimit() {
+        when(posts.getPostsAfter(anyLong(), anyInt())).thenAnswer(inv -> {
+            long after = inv.getArgument(0);
+            int limit = inv.getArgument(1);
+            return after >= 10 ? List.of() : LongStream.rangeClosed(after + 1, Math.min(10, after + limit))
+                    .mapToObj(CommentJobServiceTests::post).toList();
+        });
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        when(generator.generate(any())).thenAnswer(inv -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            return "ok";
+        });
+
+        CommentJobRequest request = new CommentJobRequest();
+        request.setLimit(50);
+        CommentJob job = service(3, 100).submit(request);
+        job.stream().blockLast(Duration.ofSeconds(5));
+
+        assertEquals(10, job.getSucceeded());
+        assertTrue(peak.get() <= 3, "peak concurrency " + peak.get());
+        verify(posts).getPostsAfter(eq(0L), anyInt());
+    }
+
+    @Test
+    void submissions_beyondQueueLimit_shouldBeRejected() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(posts.getPostsByIds(anyCollection())).thenAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Map.of();
+        });
+        CommentJobService jobs = service(1, 5);
+
+        CommentJob first = jobs.submit(request(List.of(1L, 2L, 3L, 4L)));
+        assertThrows(RejectedExecutionException.class, () -> jobs.submit(request(List.of(5L, 6L))));
+
+        release.countDown();
+        first.stream().blockLast(Duration.ofSeconds(5));
+        assertNotNull(jobs.submit(request(List.of(5L, 6L))));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void writeBack_shouldSaveCommentsInBatches() {
+        when(posts.getPostsByIds(anyCollection())).thenAnswer(inv -> {
+            Map<Long, PostDto> found = new HashMap<>();
+            for (Object id : (Collection<?>) inv.getArgument(0)) found.put((Long) id, post((Long) id));
+            return found;
+        });
+        when(generator.generate(any())).thenReturn("nice post");
+        when(comments.createComments(anyList())).thenAnswer(inv -> ((List<CommentDto>) inv.getArgument(0)).stream()
+                .map(c -> Map.<String, Object>of("status", "CREATED"))
+                .toList());
+
+        CommentJobRequest request = request(List.of(1L, 2L, 3L));
+        request.setWriteBack(true);
+        request.setAuthorId(7L);
+        CommentJob job = service(2, 100).submit(request);
+        job.stream().blockLast(Duration.ofSeconds(5));
+
+        assertEquals(3, job.getWritten());
+        verify(comments, times(2)).createComments(argThat(batch -> batch.stream().allMatch(c -> c.getAuthorId() == 7L)));
+    }
+
+    @Test
+    void emptyRequest_shouldBeRefused() {
+        assertThrows(IllegalArgumentException.class, () -> service(1, 10).submit(new CommentJobRequest()));
+    }
+
+    private static CommentJobRequest request(List<Long> ids) {
+        CommentJobRequest request = new CommentJobRequest();
+        request.setPostIds(ids);
+        return request;
+    }
+
+    private static PostDto post(long id) {
+        PostDto post = new PostDto();
+        post.setId(id);
+        post.setTitle("Post " + id);
+        post.setContent("Content " + id);
+        return post;
+    }
+}
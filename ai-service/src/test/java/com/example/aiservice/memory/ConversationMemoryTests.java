@@ -0,0 +1,86 @@
+package com.example.aiservice.memory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversationMemoryTests {
+
+    private final BoundedChatMemoryRepository repository =
+            new BoundedChatMemoryRepository(new SimpleMeterRegistry(), 10_000, Duration.ofMinutes(5));
+
+    @Test
+    void conversations_shouldNotSeeEachOthersHistory() {
+        ChatMemory memory = MessageWindowChatMemory.builder().chatMemoryRepository(repository).maxMessages(10).build();
+
+        memory.add("alice", new UserMessage("my name is Alice"));
+        memory.add("bob", new UserMessage("my name is Bob"));
+
+        assertEquals(List.of("my name is Alice"), texts(memory.get("alice")));
+        assertEquals(List.of("my name is Bob"), texts(memory.get("bob")));
+    }
+
+    @Test
+    void totalSize_shouldBeCappedByEvictingConversations() {
+        BoundedChatMemoryRepository small =
+                new BoundedChatMemoryRepository(new SimpleMeterRegistry(), 1_000, Duration.ofMinutes(5));
+
+        for (int i = 0; i < 50; i++) {
+            small.saveAll("c" + i, List.of(new UserMessage("x".repeat(100))));
+        }
+        small.cleanUp();
+
+        assertTrue(small.findConversationIds().size() <= 10);
+    }
+
+    @Test
+    void longConversation_shouldBeCompactedIntoSummary() {
+        AtomicInteger summaries = new AtomicInteger();
+        ChatModel model = prompt -> {
+            summaries.incrementAndGet();
+            return new ChatResponse(List.of(new Generation(new AssistantMessage("they talked about Java"))));
+        };
+        ChatMemory memory = new SummarizingChatMemory(repository, model, 6, 2);
+
+        for (int i = 0; i < 7; i++) {
+            memory.add("long", List.of(new UserMessage("question " + i), new AssistantMessage("answer " + i)));
+        }
+
+        List<Message> history = memory.get("long");
+        assertTrue(history.size() <= 6);
+        assertEquals(MessageType.SYSTEM, history.get(0).getMessageType());
+        assertEquals(SummarizingChatMemory.SUMMARY_PREFIX + "they talked about Java", history.get(0).getText());
+        assertEquals(List.of("question 6", "answer 6"), texts(history.subList(history.size() - 2, history.size())));
+        assertTrue(summaries.get() > 0);
+    }
+
+    @Test
+    void failedSummary_shouldFallBackToWindow() {
+        ChatModel model = prompt -> { throw new IllegalStateException("model down"); };
+        ChatMemory memory = new SummarizingChatMemory(repository, model, 4, 2);
+
+        for (int i = 0; i < 3; i++) {
+            memory.add("flaky", List.of(new UserMessage("question " + i), new AssistantMessage("answer " + i)));
+        }
+
+        assertEquals(List.of("question 2", "answer 2"), texts(memory.get("flaky")));
+    }
+
+    private static List<String> texts(List<Message> messages) {
+        return messages.stream().map(Message::getText).toList();
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.aiservice.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenStreamMetricsTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TokenStreamMetrics metrics = new TokenStreamMetrics(registry);
+
+    @Test
+    void record_shouldPassTokensThroughAndMeasureFirstTokenAndRate() {
+        Flux<String> tokens = Flux.just("Hello", ",", " world").delayElements(Duration.ofMillis(20));
+
+        List<String> seen = metrics.record("chat", tokens).collectList().block();
+
+        assertEquals(List.of("Hello", ",", " world"), seen);
+        assertEquals(1, registry.get("ai.stream.time_to_first_token").tag("endpoint", "chat").timer().count());
+        assertTrue(registry.get("ai.stream.time_to_first_token").timer().totalTime(java.util.concurrent.TimeUnit.MILLISECONDS) >= 20);
+        assertEquals(1, registry.get("ai.stream.tokens_per_second").tag("endpoint", "chat").summary().count());
+        assertTrue(registry.get("ai.stream.tokens_per_second").summary().max() > 0);
+    }
+
+    @Test
+    void record_shouldNotReportRateForEmptyStreams() {
+        metrics.record("chat", Flux.empty()).blockLast();
+
+        assertEquals(0, registry.get("ai.stream.time_to_first_token").timer().count());
+        assertEquals(0, registry.get("ai.stream.tokens_per_second").summary().count());
+    }
+}
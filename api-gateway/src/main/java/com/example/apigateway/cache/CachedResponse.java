@@ -0,0 +1,22 @@
+package com.example.apigateway.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/** A buffered upstream response, held by {@link ResponseCacheFilter} until its TTL runs out. */
+final class CachedResponse {
+  final HttpStatusCode status;
+  final HttpHeaders headers;
+  final byte[] body;
+  final Duration ttl;
+  final Instant storedAt = Instant.now();
+
+  CachedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body, Duration ttl) {
+    this.status = status; this.headers = headers; this.body = body; this.ttl = ttl;
+  }
+
+  long ageSeconds() { return Duration.between(storedAt, Instant.now()).getSeconds(); }
+}
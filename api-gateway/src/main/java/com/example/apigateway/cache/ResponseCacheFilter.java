@@ -0,0 +1,365 @@
+package com.example.apigateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Shared cache for idempotent GETs on the configured paths. Entries are keyed on path, query and
+ * the values of the configured {@code Vary} request headers, bounded by total body size, and kept
+ * for the response's {@code max-age} (or the default TTL), capped at {@code max-ttl}.
+ * <p>
+ * Responses marked {@code no-store}, {@code no-cache} or {@code private}, carrying cookies, varying on
+ * other headers, or streamed are passed through untouched. A request with {@code Cache-Control: no-cache}
+ * skips the lookup and any fetch already in flight, and refreshes the entry. Hits answer
+ * {@code If-None-Match} with 304 when the stored ETag matches.
+ * <p>
+ * A cacheable body is copied as it streams to the client; one that grows past {@code max-entry-bytes}
+ * without announcing its length is let through uncached once it crosses the limit.
+ * <p>
+ * Concurrent misses for one key go upstream once; the others wait for that response. Any non-GET
+ * request through the gateway evicts the whole collection it targets ({@code /posts/**} for
+ * {@code PUT /posts/5}), plus the collections whose responses embed it ({@code gateway.response-cache.embeds}),
+ * and GETs that were already in flight for an evicted collection are not stored.
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.response-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class ResponseCacheFilter implements GlobalFilter, Ordered {
+  static final String X_CACHE = "X-Cache";
+
+  private static final Set<String> UNSTORED_HEADERS = Set.of(
+      "connection", "keep-alive", "transfer-encoding", "te", "trailer", "upgrade",
+      "proxy-authenticate", "proxy-authorization", "content-length", "age", X_CACHE.toLowerCase(Locale.ROOT));
+  private static final List<MediaType> STREAMING_TYPES = List.of(
+      MediaType.TEXT_EVENT_STREAM, MediaType.APPLICATION_NDJSON);
+
+  private final Cache<String, CachedResponse> cache;
+  private final Map<String, CompletableFuture<Optional<CachedResponse>>> inFlight = new ConcurrentHashMap<>();
+  private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+  private final Map<String, Set<String>> embeddedIn = new HashMap<>();
+  private final List<PathPattern> paths;
+  private final List<String> varyHeaders;
+  private final Duration defaultTtl;
+  private final Duration maxTtl;
+  private final long maxEntryBytes;
+  private final Duration waitForLeader;
+  private final Counter coalesced;
+
+  public ResponseCacheFilter(MeterRegistry registry, Environment env,
+                             @Value("${gateway.response-cache.paths:/posts/**,/users/**,/comments/**}") List<String> paths,
+                             @Value("${gateway.response-cache.vary-headers:Accept,Accept-Encoding,Authorization}") List<String> varyHeaders,
+                             @Value("${gateway.response-cache.default-ttl:30s}") Duration defaultTtl,
+                             @Value("${gateway.response-cache.max-ttl:10m}") Duration maxTtl,
+                             @Value("${gateway.response-cache.maximum-weight-bytes:67108864}") long maximumWeightBytes,
+                             @Value("${gateway.response-cache.max-entry-bytes:1048576}") long maxEntryBytes,
+                             @Value("${gateway.response-cache.wait-for-leader:5s}") Duration waitForLeader) {
+    PathPatternParser parser = PathPatternParser.defaultInstance;
+    this.paths = paths.stream().map(parser::parse).collect(Collectors.toList());
+    this.varyHeaders = varyHeaders.stream().map(h -> h.trim().toLowerCase(Locale.ROOT)).collect(Collectors.toList());
+    this.defaultTtl = defaultTtl;
+    this.maxTtl = maxTtl;
+    this.maxEntryBytes = maxEntryBytes;
+    this.waitForLeader = waitForLeader;
+    // embeds: {comments: "posts,users"} means a write to /posts or /users also evicts /comments
+    Binder.get(env).bind("gateway.response-cache.embeds", Bindable.mapOf(String.class, String.class)).orElse(Map.of())
+        .forEach((collection, embedded) -> Arrays.stream(embedded.split(",")).map(String::trim).filter(e -> !e.isEmpty())
+            .forEach(e -> embeddedIn.computeIfAbsent("/" + e, k -> new HashSet<>()).add("/" + collection)));
+    this.cache = Caffeine.newBuilder()
+        .maximumWeight(maximumWeightBytes)
+        .weigher((String key, CachedResponse r) -> key.length() + r.body.length)
+        .expireAfter(new Expiry<String, CachedResponse>() {
+          @Override public long expireAfterCreate(String key, CachedResponse r, long now) { return r.ttl.toNanos(); }
+          @Override public long expireAfterUpdate(String key, CachedResponse r, long now, long current) { return r.ttl.toNanos(); }
+          @Override public long expireAfterRead(String key, CachedResponse r, long now, long current) { return current; }
+        })
+        .recordStats()
+        .build();
+    this.coalesced = registry.counter("gateway.response_cache.coalesced");
+    CaffeineCacheMetrics.monitor(registry, cache, "gateway-response-cache");
+  }
+
+  /**
+   * Runs before the write-response filter so the decorated response sees the upstream body, between the
+   * rate limiter's token buckets and its concurrency limit so hits are throttled but never shed.
+   */
+  @Override
+  public int getOrder() {
+    return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 2;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+    ServerHttpRequest request = exchange.getRequest();
+    String path = request.getPath().pathWithinApplication().value();
+    if (!matches(request.getPath().pathWithinApplication())) return chain.filter(exchange);
+    String collection = collection(path);
+    if (!HttpMethod.GET.equals(request.getMethod())) {
+      if (HttpMethod.HEAD.equals(request.getMethod()) || HttpMethod.OPTIONS.equals(request.getMethod())) {
+        return chain.filter(exchange);
+      }
+      Set<String> evicted = new HashSet<>(embeddedIn.getOrDefault(collection, Set.of()));
+      evicted.add(collection);
+      evicted.forEach(this::invalidate);
+      return chain.filter(exchange).doFinally(signal -> evicted.forEach(this::invalidate));
+    }
+    Set<String> directives = directives(request.getHeaders().getCacheControl());
+    if (directives.contains("no-store")) return chain.filter(exchange);
+
+    String key = key(request);
+    boolean revalidate = directives.contains("no-cache") || directives.contains("max-age=0");
+    if (!revalidate) {
+      CachedResponse hit = cache.getIfPresent(key);
+      if (hit != null) return serve(exchange, hit);
+    }
+    return fetch(exchange, chain, key, collection, !revalidate);
+  }
+
+  /** Goes upstream, or with {@code mayJoin} waits for a fetch of the same key already on its way. */
+  private Mono<Void> fetch(ServerWebExchange exchange, GatewayFilterChain chain, String key, String collection,
+                           boolean mayJoin) {
+    CompletableFuture<Optional<CachedResponse>> mine = new CompletableFuture<>();
+    CompletableFuture<Optional<CachedResponse>> leader = inFlight.putIfAbsent(key, mine);
+    if (leader != null && mayJoin) {
+      coalesced.increment();
+      return Mono.fromFuture(leader, true)
+          .timeout(waitForLeader)
+          .flatMap(shared -> shared.isPresent() ? serve(exchange, shared.get()) : chain.filter(exchange))
+          .onErrorResume(e -> chain.filter(exchange));
+    }
+    // leave as soon as there is a result: the exchange finishes after the client already has its response
+    mine.whenComplete((result, e) -> inFlight.remove(key, mine));
+    long generation = generation(collection).get();
+    CapturingResponse capturing = new CapturingResponse(exchange.getResponse(), key, collection, generation, mine);
+    return chain.filter(exchange.mutate().response(capturing).build())
+        .doFinally(signal -> mine.complete(Optional.empty()));
+  }
+
+  private Mono<Void> serve(ServerWebExchange exchange, CachedResponse entry) {
+    ServerHttpResponse response = exchange.getResponse();
+    HttpHeaders headers = response.getHeaders();
+    headers.putAll(entry.headers);
+    headers.set(HttpHeaders.AGE, String.valueOf(entry.ageSeconds()));
+    headers.set(X_CACHE, "HIT");
+    String etag = entry.headers.getETag();
+    if (etag != null && etagMatches(etag, exchange.getRequest().getHeaders().getIfNoneMatch())) {
+      response.setStatusCode(HttpStatus.NOT_MODIFIED);
+      headers.remove(HttpHeaders.CONTENT_TYPE);
+      return response.setComplete();
+    }
+    response.setStatusCode(entry.status);
+    headers.setContentLength(entry.body.length);
+    return response.writeWith(Mono.just(response.bufferFactory().wrap(entry.body)));
+  }
+
+  /** TTL for a cacheable response, or {@code null} if it must not be stored. */
+  private Duration ttl(HttpStatusCode status, HttpHeaders headers) {
+    if (status == null || status.value() != HttpStatus.OK.value()) return null;
+    if (headers.containsKey(HttpHeaders.SET_COOKIE)) return null;
+    MediaType type = headers.getContentType();
+    if (type != null && STREAMING_TYPES.stream().anyMatch(type::isCompatibleWith)) return null;
+    if (headers.getContentLength() > maxEntryBytes) return null;
+    for (String vary : headers.getVary()) {
+      if (!varyHeaders.contains(vary.trim().toLowerCase(Locale.ROOT))) return null;
+    }
+    Set<String> directives = directives(headers.getCacheControl());
+    if (directives.contains("no-store") || directives.contains("no-cache") || directives.contains("private")) return null;
+    Duration ttl = maxAge(directives, "s-maxage=");
+    if (ttl == null) ttl = maxAge(directives, "max-age=");
+    if (ttl == null) ttl = defaultTtl;
+    if (ttl.isZero() || ttl.isNegative()) return null;
+    return ttl.compareTo(maxTtl) > 0 ? maxTtl : ttl;
+  }
+
+  private void store(String key, String collection, long generation, CachedResponse entry) {
+    // a write to the collection while this GET was in flight may have made the body stale
+    if (generation(collection).get() == generation && entry.body.length <= maxEntryBytes) {
+      cache.put(key, entry);
+    }
+  }
+
+  private void invalidate(String collection) {
+    generation(collection).incrementAndGet();
+    cache.asMap().keySet().removeIf(key -> belongsTo(key, collection));
+  }
+
+  private AtomicLong generation(String collection) {
+    return generations.computeIfAbsent(collection, c -> new AtomicLong());
+  }
+
+  private boolean matches(PathContainer path) {
+    for (PathPattern pattern : paths) {
+      if (pattern.matches(path)) return true;
+    }
+    return false;
+  }
+
+  private String key(ServerHttpRequest request) {
+    StringBuilder key = new StringBuilder(request.getPath().pathWithinApplication().value());
+    String query = request.getURI().getRawQuery();
+    if (query != null) key.append('?').append(query);
+    for (String name : varyHeaders) {
+      key.append('\n').append(name).append(':').append(String.join(",", request.getHeaders().getOrEmpty(name)));
+    }
+    return key.toString();
+  }
+
+  /** {@code /posts/5/with-author} and {@code /posts} both belong to {@code /posts}. */
+  static String collection(String path) {
+    int next = path.indexOf('/', 1);
+    return next < 0 ? path : path.substring(0, next);
+  }
+
+  static boolean belongsTo(String key, String collection) {
+    if (!key.startsWith(collection)) return false;
+    if (key.length() == collection.length()) return true;
+    char c = key.charAt(collection.length());
+    return c == '/' || c == '?' || c == '\n';
+  }
+
+  static boolean etagMatches(String etag, List<String> ifNoneMatch) {
+    String stored = weak(etag);
+    for (String candidate : ifNoneMatch) {
+      if ("*".equals(candidate) || weak(candidate).equals(stored)) return true;
+    }
+    return false;
+  }
+
+  private static String weak(String etag) {
+    return etag.startsWith("W/") ? etag.substring(2) : etag;
+  }
+
+  private static Set<String> directives(String cacheControl) {
+    if (cacheControl == null || cacheControl.isEmpty()) return Set.of();
+    return Arrays.stream(cacheControl.split(","))
+        .map(d -> d.trim().toLowerCase(Locale.ROOT).replace(" ", ""))
+        .filter(d -> !d.isEmpty())
+        .collect(Collectors.toSet());
+  }
+
+  private static Duration maxAge(Set<String> directives, String prefix) {
+    for (String d : directives) {
+      if (d.startsWith(prefix)) {
+        try {
+          return Duration.ofSeconds(Long.parseLong(d.substring(prefix.length()).replace("\"", "")));
+        } catch (NumberFormatException e) {
+          return Duration.ZERO;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static HttpHeaders storable(HttpHeaders headers) {
+    HttpHeaders copy = new HttpHeaders();
+    headers.forEach((name, values) -> {
+      if (!UNSTORED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) copy.put(name, new ArrayList<>(values));
+    });
+    return HttpHeaders.readOnlyHttpHeaders(copy);
+  }
+
+  /** Copies a cacheable upstream body as it is written, stores it, and hands it to any requests waiting on the same key. */
+  private final class CapturingResponse extends ServerHttpResponseDecorator {
+    private final String key;
+    private final String collection;
+    private final long generation;
+    private final CompletableFuture<Optional<CachedResponse>> result;
+
+    CapturingResponse(ServerHttpResponse delegate, String key, String collection, long generation,
+                      CompletableFuture<Optional<CachedResponse>> result) {
+      super(delegate);
+      this.key = key; this.collection = collection; this.generation = generation; this.result = result;
+    }
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+      HttpHeaders headers = getHeaders();
+      HttpStatusCode status = getStatusCode();
+      Duration ttl = ttl(status, headers);
+      if (ttl == null) {
+        result.complete(Optional.empty());
+        return super.writeWith(body);
+      }
+      HttpHeaders stored = storable(headers);
+      headers.set(X_CACHE, "MISS");
+      BodyCopy copy = new BodyCopy();
+      return super.writeWith(Flux.from(body)
+          .doOnNext(copy::append)
+          .doOnComplete(() -> {
+            if (copy.overflowed()) return;
+            CachedResponse entry = new CachedResponse(status, stored, copy.bytes(), ttl);
+            store(key, collection, generation, entry);
+            result.complete(Optional.of(entry));
+          }));
+    }
+
+    /** The body so far, until it passes {@code max-entry-bytes}; after that nothing more is kept. */
+    private final class BodyCopy {
+      private ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+      void append(DataBuffer buffer) {
+        if (bytes == null) return;
+        int length = buffer.readableByteCount();
+        if (bytes.size() + length > maxEntryBytes) {
+          bytes = null;
+          // waiters go upstream themselves rather than wait out a body that will not be stored
+          result.complete(Optional.empty());
+          return;
+        }
+        byte[] chunk = new byte[length];
+        int position = buffer.readPosition();
+        buffer.read(chunk);
+        buffer.readPosition(position);
+        bytes.write(chunk, 0, length);
+      }
+
+      boolean overflowed() { return bytes == null; }
+
+      byte[] bytes() { return bytes.toByteArray(); }
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package com.example.apigateway.page;
+
+import com.example.apigateway.ratelimit.ConcurrencyLimitFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * One round trip for a post page: the post, the first page of its comments, and the authors of both,
+ * composed next to the services instead of in the browser. The post and its comments are fetched in
+ * parallel, then all distinct authors in one batched {@code /users?ids=} call (chunked at the
+ * user-service page limit). Only {@code gateway.post-page.comments-page-size} comments are fetched; when
+ * there are more, {@code commentsNextCursor} is the {@code afterId} to page on with {@code /comments?postId=}.
+ * Hosts in the service URLs are service names, resolved to an instance per call by the load balancer.
+ * <p>
+ * Only the post is required. Comments or authors that fail or time out are left out and named in
+ * {@code degraded}; per-dependency latencies are returned in {@code timings} and as {@code Server-Timing}.
+ * With rate limiting on, calls count against each backend's concurrency limit like routed requests do,
+ * and a post the limit sheds answers 503 with the limiter's {@code Retry-After}.
+ */
+@RestController
+@RequestMapping("/pages")
+public class PostPageController {
+  static final int MAX_IDS_PER_CALL = 1000;
+
+  private static final ParameterizedTypeReference<Map<String, Object>> OBJECT =
+      new ParameterizedTypeReference<Map<String, Object>>() {};
+  private static final ParameterizedTypeReference<List<Map<String, Object>>> LIST =
+      new ParameterizedTypeReference<List<Map<String, Object>>>() {};
+
+  private final WebClient posts;
+  private final WebClient comments;
+  private final WebClient users;
+  private final Duration timeout;
+  private final int commentsPageSize;
+  private final MeterRegistry registry;
+
+  public PostPageController(WebClient.Builder builder, MeterRegistry registry,
+                            ReactorLoadBalancerExchangeFilterFunction loadBalancer,
+                            ObjectProvider<ConcurrencyLimitFilter> concurrencyLimit,
+                            @Value("${gateway.post-page.post-service-url:http://post-service}") String postServiceUrl,
+                            @Value("${gateway.post-page.comment-service-url:http://comment-service}") String commentServiceUrl,
+                            @Value("${gateway.post-page.user-service-url:http://user-service}") String userServiceUrl,
+                            @Value("${gateway.post-page.timeout:2s}") Duration timeout,
+                            @Value("${gateway.post-page.comments-page-size:50}") int commentsPageSize,
+                            @Value("${gateway.post-page.max-response-bytes:4194304}") int maxResponseBytes) {
+    WebClient.Builder base = builder.clone();
+    // ahead of the load balancer, which replaces the service name in the URL with an instance
+    concurrencyLimit.ifAvailable(limit -> base.filter(limit.webClientFilter()));
+    base.filter(loadBalancer)
+        .codecs(c -> c.defaultCodecs().maxInMemorySize(maxResponseBytes));
+    this.posts = base.clone().baseUrl(postServiceUrl).build();
+    this.comments = base.clone().baseUrl(commentServiceUrl).build();
+    this.users = base.clone().baseUrl(userServiceUrl).build();
+    this.timeout = timeout;
+    this.commentsPageSize = commentsPageSize;
+    this.registry = registry;
+  }
+
+  @GetMapping("/posts/{id}")
+  public Mono<ResponseEntity<Map<String, Object>>> postPage(@PathVariable("id") long id) {
+    long start = System.nanoTime();
+    Map<String, Long> timings = new ConcurrentHashMap<>();
+    List<String> degraded = new CopyOnWriteArrayList<>();
+
+    Mono<Map<String, Object>> post = timed("post", timings,
+        posts.get().uri("/posts/{id}", id).retrieve().bodyToMono(OBJECT));
+    Mono<ResponseEntity<List<Map<String, Object>>>> postComments = timed("comments", timings,
+        comments.get().uri(u -> u.path("/comments").queryParam("postId", id).queryParam("limit", commentsPageSize).build())
+            .retrieve().toEntity(LIST))
+        .onErrorResume(e -> {
+          degraded.add("comments");
+          return Mono.just(ResponseEntity.ok(Collections.<Map<String, Object>>emptyList()));
+        });
+
+    return Mono.zip(post, postComments)
+        .flatMap(t -> withAuthors(t.getT1(), bodyOrEmpty(t.getT2()), timings, degraded)
+            .doOnNext(page -> page.put("commentsNextCursor", nextCursor(t.getT2()))))
+        .map(page -> {
+          timings.put("total", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+          page.put("timings", millis(timings));
+          page.put("degraded", new ArrayList<>(degraded));
+          return ResponseEntity.ok().header("Server-Timing", serverTiming(timings)).body(page);
+        })
+        .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.just(ResponseEntity.notFound().build()))
+        .onErrorResume(WebClientResponseException.ServiceUnavailable.class, e -> Mono.just(ResponseEntity
+            .status(HttpStatus.SERVICE_UNAVAILABLE).headers(h -> copyRetryAfter(e, h)).<Map<String, Object>>build()))
+        .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.BAD_GATEWAY).build()));
+  }
+
+  private Mono<Map<String, Object>> withAuthors(Map<String, Object> post, List<Map<String, Object>> postComments,
+                                               Map<String, Long> timings, List<String> degraded) {
+    Set<Long> authorIds = new LinkedHashSet<>();
+    addId(authorIds, post.get("authorId"));
+    postComments.forEach(c -> addId(authorIds, c.get("authorId")));
+
+    Mono<Map<Long, Map<String, Object>>> authors = authorIds.isEmpty()
+        ? Mono.just(Collections.<Long, Map<String, Object>>emptyMap())
+        : timed("authors", timings, Flux.fromIterable(chunks(new ArrayList<>(authorIds)))
+              .flatMap(chunk -> users.get().uri(u -> u.path("/users").queryParam("ids", chunk).build())
+                  .retrieve().bodyToFlux(OBJECT))
+              .collectMap(u -> ((Number) u.get("id")).longValue()))
+            .onErrorResume(e -> {
+              degraded.add("authors");
+              return Mono.just(Collections.<Long, Map<String, Object>>emptyMap());
+            });
+
+    return authors.map(byId -> {
+      attachAuthor(post, byId);
+      postComments.forEach(c -> attachAuthor(c, byId));
+      Map<String, Object> page = new LinkedHashMap<>();
+      page.put("post", post);
+      page.put("comments", postComments);
+      return page;
+    });
+  }
+
+  /** Applies the per-dependency timeout and records its latency both in the response and as a meter. */
+  private <T> Mono<T> timed(String dependency, Map<String, Long> timings, Mono<T> call) {
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      // recorded on the value rather than in doFinally, which runs only after downstream has composed the page
+      return call.timeout(timeout)
+          .doOnSuccess(v -> record(dependency, "success", start, timings))
+          .doOnError(e -> record(dependency, "error", start, timings))
+          .doOnCancel(() -> record(dependency, "cancel", start, timings));
+    });
+  }
+
+  private void record(String dependency, String outcome, long start, Map<String, Long> timings) {
+    long elapsed = System.nanoTime() - start;
+    timings.put(dependency, TimeUnit.NANOSECONDS.toMicros(elapsed));
+    Timer.builder("gateway.post_page.dependency")
+        .tag("dependency", dependency)
+        .tag("outcome", outcome)
+        .register(registry)
+        .record(elapsed, TimeUnit.NANOSECONDS);
+  }
+
+  private static void copyRetryAfter(WebClientResponseException e, HttpHeaders headers) {
+    String retryAfter = e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+    if (retryAfter != null) headers.set(HttpHeaders.RETRY_AFTER, retryAfter);
+  }
+
+  private static List<Map<String, Object>> bodyOrEmpty(ResponseEntity<List<Map<String, Object>>> response) {
+    List<Map<String, Object>> body = response.getBody();
+    return body == null ? Collections.<Map<String, Object>>emptyList() : body;
+  }
+
+  private static Long nextCursor(ResponseEntity<?> response) {
+    String cursor = response.getHeaders().getFirst("X-Next-Cursor");
+    return cursor == null ? null : Long.valueOf(cursor);
+  }
+
+  private static void addId(Set<Long> ids, Object id) {
+    if (id instanceof Number) ids.add(((Number) id).longValue());
+  }
+
+  private static void attachAuthor(Map<String, Object> item, Map<Long, Map<String, Object>> byId) {
+    Object authorId = item.get("authorId");
+    if (authorId instanceof Number) {
+      Map<String, Object> author = byId.get(((Number) authorId).longValue());
+      if (author != null) item.put("author", author);
+    }
+  }
+
+  private static List<List<Long>> chunks(List<Long> ids) {
+    List<List<Long>> chunks = new ArrayList<>();
+    for (int i = 0; i < ids.size(); i += MAX_IDS_PER_CALL) {
+      chunks.add(ids.subList(i, Math.min(ids.size(), i + MAX_IDS_PER_CALL)));
+    }
+    return chunks;
+  }
+
+  private static Map<String, Double> millis(Map<String, Long> micros) {
+    Map<String, Double> ordered = new LinkedHashMap<>();
+    for (String key : new String[] {"post", "comments", "authors", "total"}) {
+      Long value = micros.get(key);
+      if (value != null) ordered.put(key, value / 1000.0);
+    }
+    return ordered;
+  }
+
+  static String serverTiming(Map<String, Long> micros) {
+    return millis(micros).entrySet().stream()
+        .map(e -> e.getKey() + ";dur=" + e.getValue())
+        .collect(Collectors.joining(", "));
+  }
+}
@@ -0,0 +1,101 @@
+package com.example.apigateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Adaptive limit on requests in flight to one backend, in the manner of a gradient limiter. Every
+ * completed request feeds its latency into a short and a long moving average; while the short one
+ * stays within {@code tolerance} of the long one the limit creeps up by about its square root, and as
+ * latency climbs past that the limit shrinks in proportion (by at most half per sample). Failures
+ * (5xx, timeouts, refused connections) shrink it by a tenth. The long average decays toward the short
+ * one when latency stays well below it, so a drop in baseline is picked up without a restart.
+ * <p>
+ * Both the in-flight count and the limit state are updated with compare-and-set; nothing blocks.
+ */
+final class ConcurrencyLimit {
+  private static final double SHORT_WEIGHT = 0.1;
+  private static final double LONG_WEIGHT = 0.005;
+  private static final double SMOOTHING = 0.2;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final double tolerance;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicReference<State> state;
+
+  ConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.tolerance = tolerance;
+    this.state = new AtomicReference<>(new State(initialLimit, 0, 0));
+  }
+
+  /** Takes a slot if fewer than the current limit are in flight; the caller must {@link #release} it. */
+  boolean tryAcquire() {
+    int limit = limit();
+    while (true) {
+      int current = inFlight.get();
+      if (current >= limit) return false;
+      if (inFlight.compareAndSet(current, current + 1)) return true;
+    }
+  }
+
+  /** Gives a slot back and adapts the limit to how that request went. */
+  void release(long latencyNanos, boolean failed) {
+    int wasInFlight = inFlight.getAndDecrement();
+    while (true) {
+      State current = state.get();
+      State next = failed ? current.backOff() : current.sample(latencyNanos, wasInFlight);
+      if (state.compareAndSet(current, next)) return;
+    }
+  }
+
+  /** Gives a slot back without a sample, e.g. for a request cancelled before the backend answered. */
+  void releaseUnmeasured() {
+    inFlight.decrementAndGet();
+  }
+
+  int limit() {
+    return (int) state.get().limit;
+  }
+
+  int inFlight() {
+    return inFlight.get();
+  }
+
+  /** Recent latency, a fair guess at how long a shed client should wait before trying again. */
+  long shortLatencyNanos() {
+    return (long) state.get().shortRtt;
+  }
+
+  private final class State {
+    final double limit;
+    final double shortRtt;
+    final double longRtt;
+
+    State(double limit, double shortRtt, double longRtt) {
+      this.limit = limit; this.shortRtt = shortRtt; this.longRtt = longRtt;
+    }
+
+    State sample(long rtt, int wasInFlight) {
+      if (longRtt == 0) return new State(limit, rtt, rtt);
+      double shortAvg = shortRtt + SHORT_WEIGHT * (rtt - shortRtt);
+      double longAvg = longRtt + LONG_WEIGHT * (rtt - longRtt);
+      if (longAvg > 2 * shortAvg) longAvg *= 0.95;
+      // only grow while the limit is actually in use, or an idle route would drift to the maximum
+      if (wasInFlight < limit / 2 && shortAvg <= longAvg * tolerance) return new State(limit, shortAvg, longAvg);
+      double gradient = Math.max(0.5, Math.min(1.0, tolerance * longAvg / shortAvg));
+      double target = limit * gradient + Math.sqrt(limit);
+      return new State(clamp(limit * (1 - SMOOTHING) + target * SMOOTHING), shortAvg, longAvg);
+    }
+
+    State backOff() {
+      return new State(clamp(limit * 0.9), shortRtt, longRtt);
+    }
+
+    private double clamp(double value) {
+      return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+  }
+}
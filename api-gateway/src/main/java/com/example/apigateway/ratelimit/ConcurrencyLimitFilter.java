@@ -0,0 +1,116 @@
+package com.example.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An adaptive {@link ConcurrencyLimit} per backend, held only by requests that actually go to it. It runs
+ * after the response cache, so cache hits and requests answered from a coalesced fetch never take a slot
+ * and are served even while a slow backend is shedding. {@link #webClientFilter()} puts the calls that
+ * composed pages make under the same limits, keyed by the service name in their URL and measured to the
+ * response headers. A full limit answers 503 with {@code Retry-After}.
+ * <p>
+ * Limits default to {@code gateway.rate-limit.default.*} and can be set per route under
+ * {@code gateway.rate-limit.routes.<route-id>.*}. Shed requests are counted in
+ * {@code gateway.rate_limit.requests{outcome=shed}}, after the {@code admitted} count of {@link RateLimitFilter}.
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitFilter implements GlobalFilter, Ordered {
+  private final LimitSettings settings;
+  private final MeterRegistry registry;
+  private final Map<String, Backend> backends = new ConcurrentHashMap<>();
+
+  public ConcurrencyLimitFilter(Environment env, MeterRegistry registry) {
+    this.settings = new LimitSettings(env);
+    this.registry = registry;
+  }
+
+  /** Behind the response cache, so only requests it sends upstream are counted. */
+  @Override
+  public int getOrder() {
+    return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+    Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+    if (route == null) return chain.filter(exchange);
+    Backend backend = backend(route.getId());
+    if (!backend.limit.tryAcquire()) {
+      backend.shed.increment();
+      return RateLimitFilter.refuse(exchange, HttpStatus.SERVICE_UNAVAILABLE, backend.limit.shortLatencyNanos());
+    }
+    long start = System.nanoTime();
+    return chain.filter(exchange)
+        .doFinally(signal -> release(backend.limit, signal, exchange.getResponse().getStatusCode(), System.nanoTime() - start));
+  }
+
+  /** For WebClients whose base URL host is a service name; answers 503 itself when that backend's limit is full. */
+  public ExchangeFilterFunction webClientFilter() {
+    return (request, next) -> {
+      Backend backend = backend(request.url().getHost());
+      if (!backend.limit.tryAcquire()) {
+        backend.shed.increment();
+        return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(RateLimitFilter.retryAfterSeconds(backend.limit.shortLatencyNanos())))
+            .build());
+      }
+      long start = System.nanoTime();
+      AtomicReference<HttpStatusCode> status = new AtomicReference<>();
+      return next.exchange(request)
+          .doOnNext(response -> status.set(response.statusCode()))
+          .doFinally(signal -> release(backend.limit, signal, status.get(), System.nanoTime() - start));
+    };
+  }
+
+  private static void release(ConcurrencyLimit limit, SignalType signal, HttpStatusCode status, long latencyNanos) {
+    if (signal == SignalType.CANCEL) {
+      limit.releaseUnmeasured();
+    } else {
+      limit.release(latencyNanos, signal == SignalType.ON_ERROR || status == null || status.is5xxServerError());
+    }
+  }
+
+  private Backend backend(String id) {
+    return backends.computeIfAbsent(id, Backend::new);
+  }
+
+  private final class Backend {
+    final ConcurrencyLimit limit;
+    final Counter shed;
+
+    Backend(String id) {
+      this.limit = new ConcurrencyLimit(
+          settings.get(id, "initial-limit", Integer.class, 20),
+          settings.get(id, "min-limit", Integer.class, 2),
+          settings.get(id, "max-limit", Integer.class, 200),
+          settings.get(id, "latency-tolerance", Double.class, 1.5));
+      this.shed = registry.counter("gateway.rate_limit.requests", "route", id, "outcome", "shed", "limit", "concurrency");
+      Gauge.builder("gateway.rate_limit.concurrency_limit", limit, ConcurrencyLimit::limit).tag("route", id).register(registry);
+      Gauge.builder("gateway.rate_limit.in_flight", limit, ConcurrencyLimit::inFlight).tag("route", id).register(registry);
+    }
+  }
+}
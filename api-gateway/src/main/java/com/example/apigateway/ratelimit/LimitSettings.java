@@ -0,0 +1,17 @@
+package com.example.apigateway.ratelimit;
+
+import org.springframework.core.env.Environment;
+
+/** Reads {@code gateway.rate-limit.routes.<id>.<name>}, falling back to {@code gateway.rate-limit.default.<name>}. */
+final class LimitSettings {
+  private static final String PREFIX = "gateway.rate-limit.";
+
+  private final Environment env;
+
+  LimitSettings(Environment env) { this.env = env; }
+
+  <T> T get(String id, String name, Class<T> type, T fallback) {
+    T value = env.getProperty(PREFIX + "routes." + id + "." + name, type);
+    return value != null ? value : env.getProperty(PREFIX + "default." + name, type, fallback);
+  }
+}
@@ -0,0 +1,35 @@
+package com.example.apigateway.ratelimit;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+/**
+ * The {@link RateLimitFilter} buckets for the pages composed under {@code /pages}, which are served by
+ * controllers rather than gateway routes and so never reach a global filter. They are limited as a route
+ * named {@value #LIMITS_ID}; the backend calls a page makes are held to the backends' concurrency limits
+ * by {@link ConcurrencyLimitFilter#webClientFilter()}.
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class PageRateLimitFilter implements WebFilter {
+  static final String LIMITS_ID = "pages";
+  private static final PathPattern PAGES = PathPatternParser.defaultInstance.parse("/pages/**");
+
+  private final RateLimitFilter rateLimit;
+
+  public PageRateLimitFilter(RateLimitFilter rateLimit) {
+    this.rateLimit = rateLimit;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    if (!PAGES.matches(exchange.getRequest().getPath().pathWithinApplication())) return chain.filter(exchange);
+    return rateLimit.admit(exchange, LIMITS_ID, () -> chain.filter(exchange));
+  }
+}
@@ -0,0 +1,163 @@
+package com.example.apigateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Token buckets in front of every route, ahead of the response cache so cached answers are throttled too:
+ * <ol>
+ *   <li>a bucket per client and route, so one caller cannot take a route's whole allowance;</li>
+ *   <li>a bucket per route, capping what the gateway answers on that route in total.</li>
+ * </ol>
+ * A refused token answers 429 with {@code Retry-After}. Clients are told apart by remote address, or by
+ * {@code client-header} when its value is one of the {@code api-keys}: the header is the caller's to
+ * choose, so an unknown value, which would otherwise buy a fresh bucket per request, counts against the
+ * address like a request without one. Client buckets live in a bounded Caffeine map and are dropped
+ * once idle; bucket updates are lock-free. {@link PageRateLimitFilter} applies the same
+ * buckets to the composed pages, and {@link ConcurrencyLimitFilter} then guards the backends themselves.
+ * <p>
+ * Rates and bursts default to {@code gateway.rate-limit.default.*} and can be set per route under
+ * {@code gateway.rate-limit.routes.<route-id>.*}; a rate of 0 turns that bucket off. Every decision is
+ * counted in {@code gateway.rate_limit.requests}, tagged with route and outcome.
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitFilter implements GlobalFilter, Ordered {
+  private final LimitSettings settings;
+  private final MeterRegistry registry;
+  private final String clientHeader;
+  private final Set<String> apiKeys;
+  private final Cache<String, TokenBucket> clientBuckets;
+  private final Map<String, RouteBuckets> routes = new ConcurrentHashMap<>();
+
+  public RateLimitFilter(Environment env, MeterRegistry registry,
+                         @Value("${gateway.rate-limit.client-header:}") String clientHeader,
+                         @Value("${gateway.rate-limit.api-keys:}") List<String> apiKeys,
+                         @Value("${gateway.rate-limit.max-clients:100000}") long maxClients,
+                         @Value("${gateway.rate-limit.client-idle-timeout:10m}") Duration clientIdleTimeout) {
+    this.settings = new LimitSettings(env);
+    this.registry = registry;
+    this.clientHeader = clientHeader;
+    this.apiKeys = apiKeys.stream().map(String::trim).filter(key -> !key.isEmpty()).collect(Collectors.toUnmodifiableSet());
+    this.clientBuckets = Caffeine.newBuilder()
+        .maximumSize(maxClients)
+        .expireAfterAccess(clientIdleTimeout)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(registry, clientBuckets, "gateway-rate-limit-clients");
+  }
+
+  /** Ahead of the response cache, so cached answers are throttled too. */
+  @Override
+  public int getOrder() {
+    return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 3;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+    Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+    if (route == null) return chain.filter(exchange);
+    return admit(exchange, route.getId(), () -> chain.filter(exchange));
+  }
+
+  /** Takes a token from the client's and the route's bucket for {@code id}, then runs {@code next}; otherwise answers 429. */
+  Mono<Void> admit(ServerWebExchange exchange, String id, Supplier<Mono<Void>> next) {
+    RouteBuckets buckets = routes.computeIfAbsent(id, this::bucketsFor);
+    long now = System.nanoTime();
+
+    if (buckets.clientRate > 0) {
+      String key = id + '\n' + client(exchange.getRequest());
+      TokenBucket bucket = clientBuckets.get(key, k -> new TokenBucket(buckets.clientRate, buckets.clientBurst, now));
+      long wait = bucket.tryAcquire(now);
+      if (wait > 0) {
+        buckets.throttledClient.increment();
+        return refuse(exchange, HttpStatus.TOO_MANY_REQUESTS, wait);
+      }
+    }
+    if (buckets.routeBucket != null) {
+      long wait = buckets.routeBucket.tryAcquire(now);
+      if (wait > 0) {
+        buckets.throttledRoute.increment();
+        return refuse(exchange, HttpStatus.TOO_MANY_REQUESTS, wait);
+      }
+    }
+    buckets.admitted.increment();
+    return next.get();
+  }
+
+  static Mono<Void> refuse(ServerWebExchange exchange, HttpStatus status, long retryAfterNanos) {
+    ServerHttpResponse response = exchange.getResponse();
+    response.setStatusCode(status);
+    response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds(retryAfterNanos)));
+    return response.setComplete();
+  }
+
+  /** Whole seconds, rounded up and at least one, as {@code Retry-After} wants them. */
+  static long retryAfterSeconds(long nanos) {
+    return Math.max(1, (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+  }
+
+  private String client(ServerHttpRequest request) {
+    if (!clientHeader.isEmpty()) {
+      String value = request.getHeaders().getFirst(clientHeader);
+      if (value != null && apiKeys.contains(value)) return "k:" + value;
+    }
+    InetSocketAddress remote = request.getRemoteAddress();
+    return remote == null ? "unknown" : "a:" + remote.getAddress().getHostAddress();
+  }
+
+  private RouteBuckets bucketsFor(String id) {
+    return new RouteBuckets(id,
+        settings.get(id, "route-rate", Double.class, 0.0),
+        settings.get(id, "route-burst", Integer.class, 100),
+        settings.get(id, "client-rate", Double.class, 0.0),
+        settings.get(id, "client-burst", Integer.class, 20));
+  }
+
+  private final class RouteBuckets {
+    final double clientRate;
+    final int clientBurst;
+    final TokenBucket routeBucket;
+    final Counter admitted;
+    final Counter throttledClient;
+    final Counter throttledRoute;
+
+    RouteBuckets(String id, double routeRate, int routeBurst, double clientRate, int clientBurst) {
+      this.clientRate = clientRate;
+      this.clientBurst = clientBurst;
+      this.routeBucket = routeRate > 0 ? new TokenBucket(routeRate, routeBurst, System.nanoTime()) : null;
+      this.admitted = registry.counter("gateway.rate_limit.requests", "route", id, "outcome", "admitted", "limit", "none");
+      this.throttledClient = registry.counter("gateway.rate_limit.requests", "route", id, "outcome", "throttled", "limit", "client");
+      this.throttledRoute = registry.counter("gateway.rate_limit.requests", "route", id, "outcome", "throttled", "limit", "route");
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package com.example.apigateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket refilled at {@code rate} tokens per second up to {@code burst}, held in one
+ * {@link AtomicLong} so that taking a token is a single compare-and-set. The long is the time at which
+ * the bucket would be full again (the GCRA "theoretical arrival time"): each token pushes it one refill
+ * interval further out, and a request is refused while that lies more than {@code burst} intervals ahead.
+ */
+final class TokenBucket {
+  private final long intervalNanos;
+  private final long toleranceNanos;
+  private final AtomicLong fullAt;
+
+  TokenBucket(double rate, int burst, long nowNanos) {
+    this.intervalNanos = (long) (1_000_000_000L / rate);
+    this.toleranceNanos = intervalNanos * burst;
+    this.fullAt = new AtomicLong(nowNanos);
+  }
+
+  /** Takes a token; returns 0 if one was available, otherwise the nanoseconds until one will be. */
+  long tryAcquire(long nowNanos) {
+    while (true) {
+      long current = fullAt.get();
+      long next = Math.max(current, nowNanos) + intervalNanos;
+      long wait = next - nowNanos - toleranceNanos;
+      if (wait > 0) return wait;
+      if (fullAt.compareAndSet(current, next)) return 0;
+    }
+  }
+
+  /** Whole tokens left right now. */
+  long available(long nowNanos) {
+    long owed = Math.max(0, fullAt.get() - nowNanos);
+    return (toleranceNanos - owed) / intervalNanos;
+  }
+}
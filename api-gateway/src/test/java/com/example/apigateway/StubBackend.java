@@ -0,0 +1,153 @@
+package com.example.apigateway;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stands in for the backend services: one local HTTP server answering each path, or path and query,
+ * with whatever the test registered, and counting the requests that reach it. Anything unregistered is a 404.
+ */
+public final class StubBackend {
+    private final HttpServer server;
+    private final Map<String, Reply> replies = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    public final List<String> requests = new CopyOnWriteArrayList<>();
+
+    private StubBackend(HttpServer server) {
+        this.server = server;
+    }
+
+    public static StubBackend start() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            StubBackend stub = new StubBackend(server);
+            server.createContext("/", stub::handle);
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.start();
+            return stub;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    /** Answers {@code target}, a path with or without its query, with {@code reply}. */
+    public StubBackend on(String target, Reply reply) {
+        replies.put(target, reply);
+        return this;
+    }
+
+    /** Requests for {@code target} since the last reset, counted as {@link #on} matched them. */
+    public int hits(String target) {
+        AtomicInteger count = hits.get(target);
+        return count == null ? 0 : count.get();
+    }
+
+    public int maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    public void reset() {
+        replies.clear();
+        hits.clear();
+        requests.clear();
+        maxInFlight.set(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getRawQuery();
+        String target = query != null && replies.containsKey(path + "?" + query) ? path + "?" + query : path;
+        requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI());
+        hits.computeIfAbsent(target, t -> new AtomicInteger()).incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            Reply reply = replies.getOrDefault(target, Reply.status(404));
+            if (reply.delayMillis > 0) Thread.sleep(reply.delayMillis);
+            byte[] body = reply.body.getBytes(StandardCharsets.UTF_8);
+            reply.headers.forEach((name, value) -> exchange.getResponseHeaders().add(name, value));
+            // a length of 0 sends the body chunked, without Content-Length
+            exchange.sendResponseHeaders(reply.status, body.length == 0 ? -1 : reply.chunked ? 0 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                int first = reply.stallMillis > 0 ? Math.min(reply.stallAfterBytes, body.length) : body.length;
+                out.write(body, 0, first);
+                if (first < body.length) {
+                    out.flush();
+                    Thread.sleep(reply.stallMillis);
+                    out.write(body, first, body.length - first);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    public static final class Reply {
+        final int status;
+        final String body;
+        final Map<String, String> headers = new LinkedHashMap<>();
+        long delayMillis;
+        boolean chunked;
+        int stallAfterBytes;
+        long stallMillis;
+
+        private Reply(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        public static Reply json(String body) {
+            return new Reply(200, body).header("Content-Type", "application/json");
+        }
+
+        public static Reply status(int status) {
+            return new Reply(status, "");
+        }
+
+        public Reply header(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+
+        public Reply delay(long millis) {
+            this.delayMillis = millis;
+            return this;
+        }
+
+        public Reply chunked() {
+            this.chunked = true;
+            return this;
+        }
+
+        /** Sends the first {@code bytes} of the body, then waits {@code millis} before sending the rest. */
+        public Reply stallAfter(int bytes, long millis) {
+            this.stallAfterBytes = bytes;
+            this.stallMillis = millis;
+            return this;
+        }
+    }
+}
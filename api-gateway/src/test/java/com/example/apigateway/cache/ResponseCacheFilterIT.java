@@ -0,0 +1,226 @@
+package com.example.apigateway.cache;
+
+import com.example.apigateway.StubBackend;
+import com.example.apigateway.StubBackend.Reply;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the gateway against a stub backend and checks what the response cache stores, serves, evicts
+ * and coalesces.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"gateway.rate-limit.enabled=false", "gateway.response-cache.max-entry-bytes=1024"})
+class ResponseCacheFilterIT {
+
+    private static final StubBackend backend = StubBackend.start();
+
+    @DynamicPropertySource
+    static void backends(DynamicPropertyRegistry registry) {
+        for (String service : List.of("user-service", "post-service", "comment-service")) {
+            registry.add("spring.cloud.discovery.client.simple.instances." + service + "[0].uri", backend::url);
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private WebTestClient client;
+
+    @BeforeEach
+    void reset() {
+        backend.reset();
+    }
+
+    @AfterAll
+    static void stopBackend() {
+        backend.stop();
+    }
+
+    @Test
+    void secondGet_shouldBeServedFromTheCache() {
+        backend.on("/posts/1", Reply.json("{\"id\":1}"));
+
+        get("/posts/1").expectStatus().isOk().expectHeader().valueEquals("X-Cache", "MISS");
+        get("/posts/1").expectStatus().isOk()
+                .expectHeader().valueEquals("X-Cache", "HIT")
+                .expectHeader().exists(HttpHeaders.AGE)
+                .expectBody().json("{\"id\":1}");
+
+        assertEquals(1, backend.hits("/posts/1"));
+    }
+
+    @Test
+    void varyHeaders_shouldBePartOfTheKey() {
+        backend.on("/users/1", Reply.json("{\"id\":1}"));
+
+        client.get().uri("/users/1").header(HttpHeaders.AUTHORIZATION, "Bearer a").exchange().expectStatus().isOk();
+        client.get().uri("/users/1").header(HttpHeaders.AUTHORIZATION, "Bearer b").exchange()
+                .expectHeader().valueEquals("X-Cache", "MISS");
+        client.get().uri("/users/1").header(HttpHeaders.AUTHORIZATION, "Bearer a").exchange()
+                .expectHeader().valueEquals("X-Cache", "HIT");
+        client.get().uri("/users/1?fields=name").header(HttpHeaders.AUTHORIZATION, "Bearer a").exchange()
+                .expectHeader().valueEquals("X-Cache", "MISS");
+
+        assertEquals(3, backend.hits("/users/1"));
+    }
+
+    @Test
+    void responses_shouldExpireAfterTheirMaxAge() throws InterruptedException {
+        backend.on("/posts/2", Reply.json("{\"id\":2}").header(HttpHeaders.CACHE_CONTROL, "max-age=1"));
+
+        get("/posts/2").expectHeader().valueEquals("X-Cache", "MISS");
+        get("/posts/2").expectHeader().valueEquals("X-Cache", "HIT");
+        Thread.sleep(1100);
+        get("/posts/2").expectHeader().valueEquals("X-Cache", "MISS");
+
+        assertEquals(2, backend.hits("/posts/2"));
+    }
+
+    @Test
+    void uncacheableResponses_shouldPassThrough() {
+        backend.on("/posts/3", Reply.json("{\"id\":3}").header(HttpHeaders.CACHE_CONTROL, "private"));
+        backend.on("/posts/4", Reply.json("{\"id\":4}").header(HttpHeaders.VARY, "Cookie"));
+
+        get("/posts/3").expectHeader().doesNotExist("X-Cache");
+        get("/posts/3").expectHeader().doesNotExist("X-Cache");
+        get("/posts/4");
+        get("/posts/4").expectHeader().doesNotExist("X-Cache");
+
+        assertEquals(2, backend.hits("/posts/3"));
+        assertEquals(2, backend.hits("/posts/4"));
+    }
+
+    @Test
+    void write_shouldEvictItsCollection() {
+        backend.on("/posts/5", Reply.json("{\"id\":5}"));
+        backend.on("/posts", Reply.json("[]"));
+        backend.on("/users/5", Reply.json("{\"id\":5}"));
+        get("/posts/5");
+        get("/posts");
+        get("/users/5");
+
+        client.put().uri("/posts/5").bodyValue("{}").exchange().expectStatus().isOk();
+
+        get("/posts/5").expectHeader().valueEquals("X-Cache", "MISS");
+        get("/posts").expectHeader().valueEquals("X-Cache", "MISS");
+        get("/users/5").expectHeader().valueEquals("X-Cache", "HIT");
+    }
+
+    @Test
+    void write_shouldEvictCollectionsThatEmbedIt() {
+        backend.on("/posts/6/with-author", Reply.json("{\"post\":{\"id\":6},\"author\":{\"id\":2}}"));
+        backend.on("/comments/post/6", Reply.json("[]"));
+        backend.on("/users/2", Reply.json("{\"id\":2}"));
+        backend.on("/posts/6", Reply.json("{\"id\":6}"));
+        get("/posts/6/with-author");
+        get("/comments/post/6");
+
+        client.put().uri("/users/2").bodyValue("{}").exchange().expectStatus().isOk();
+
+        get("/posts/6/with-author").expectHeader().valueEquals("X-Cache", "MISS");
+        get("/comments/post/6").expectHeader().valueEquals("X-Cache", "MISS");
+
+        client.delete().uri("/posts/6").exchange().expectStatus().isOk();
+
+        get("/comments/post/6").expectHeader().valueEquals("X-Cache", "MISS");
+        get("/posts/6/with-author").expectHeader().valueEquals("X-Cache", "MISS");
+    }
+
+    @Test
+    void concurrentMisses_shouldGoUpstreamOnce() {
+        backend.on("/posts/7", Reply.json("{\"id\":7}").delay(300));
+
+        List<String> bodies = Flux.range(0, 6)
+                .flatMap(i -> WebClient.create("http://localhost:" + port).get().uri("/posts/7")
+                        .retrieve().bodyToMono(String.class), 6)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(6, bodies.size());
+        assertTrue(bodies.stream().allMatch("{\"id\":7}"::equals), bodies.toString());
+        assertEquals(1, backend.hits("/posts/7"));
+    }
+
+    @Test
+    void matchingIfNoneMatch_shouldBeAnsweredWith304() {
+        backend.on("/posts/8", Reply.json("{\"id\":8}").header(HttpHeaders.ETAG, "\"3\""));
+        get("/posts/8").expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"");
+
+        client.get().uri("/posts/8").header(HttpHeaders.IF_NONE_MATCH, "\"3\"").exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals("X-Cache", "HIT")
+                .expectBody().isEmpty();
+        client.get().uri("/posts/8").header(HttpHeaders.IF_NONE_MATCH, "\"2\"").exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"id\":8}");
+
+        assertEquals(1, backend.hits("/posts/8"));
+    }
+
+    @Test
+    void bodyOverTheEntryLimit_shouldStreamThroughUncached() {
+        String big = "[" + "\"x\",".repeat(400) + "\"x\"]";
+        backend.on("/comments/post/9", Reply.json(big).chunked());
+
+        get("/comments/post/9").expectStatus().isOk().expectBody(String.class).isEqualTo(big);
+        get("/comments/post/9").expectStatus().isOk().expectBody(String.class).isEqualTo(big);
+
+        assertEquals(2, backend.hits("/comments/post/9"));
+    }
+
+    @Test
+    void bodyOverTheEntryLimit_shouldReachTheClientBeforeTheBackendFinishes() {
+        String big = "[" + "\"x\",".repeat(400) + "\"x\"]";
+        backend.on("/comments/post/11", Reply.json(big).chunked().stallAfter(1200, 1500));
+
+        long start = System.nanoTime();
+        String first = WebClient.create("http://localhost:" + port).get().uri("/comments/post/11")
+                .retrieve().bodyToFlux(DataBuffer.class)
+                .map(buffer -> {
+                    String chunk = buffer.toString(StandardCharsets.UTF_8);
+                    DataBufferUtils.release(buffer);
+                    return chunk;
+                })
+                .blockFirst(Duration.ofSeconds(10));
+        long firstByteMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(first.startsWith("[\"x\""));
+        assertTrue(firstByteMillis < 1000, "first bytes after " + firstByteMillis + " ms");
+    }
+
+    @Test
+    void requestNoCache_shouldRefreshTheEntry() {
+        backend.on("/posts/10", Reply.json("{\"id\":10}"));
+        get("/posts/10");
+
+        client.get().uri("/posts/10").header(HttpHeaders.CACHE_CONTROL, "no-cache").exchange()
+                .expectHeader().valueEquals("X-Cache", "MISS");
+        get("/posts/10").expectHeader().valueEquals("X-Cache", "HIT");
+
+        assertEquals(2, backend.hits("/posts/10"));
+    }
+
+    private WebTestClient.ResponseSpec get(String uri) {
+        return client.get().uri(uri).exchange();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.apigateway.page;
+
+import com.example.apigateway.StubBackend;
+import com.example.apigateway.StubBackend.Reply;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Composes post pages from a stub backend: one page of comments, one batched author lookup, and the
+ * post as the only dependency that can fail the page.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"gateway.rate-limit.enabled=false", "gateway.post-page.comments-page-size=2"})
+class PostPageControllerIT {
+
+    private static final StubBackend backend = StubBackend.start();
+
+    @DynamicPropertySource
+    static void backends(DynamicPropertyRegistry registry) {
+        for (String service : List.of("user-service", "post-service", "comment-service")) {
+            registry.add("spring.cloud.discovery.client.simple.instances." + service + "[0].uri", backend::url);
+        }
+    }
+
+    @Autowired
+    private WebTestClient client;
+
+    @BeforeEach
+    void reset() {
+        backend.reset();
+    }
+
+    @AfterAll
+    static void stopBackend() {
+        backend.stop();
+    }
+
+    @Test
+    void postPage_shouldComposeThePostTheFirstCommentPageAndTheirAuthors() {
+        backend.on("/posts/1", Reply.json("{\"id\":1,\"authorId\":7,\"title\":\"Hello\"}"))
+                .on("/comments?postId=1&limit=2", Reply.json("[{\"id\":10,\"authorId\":8,\"content\":\"First\"},"
+                        + "{\"id\":11,\"authorId\":7,\"content\":\"Second\"}]").header("X-Next-Cursor", "11"))
+                .on("/users", Reply.json("[{\"id\":7,\"name\":\"Ann\"},{\"id\":8,\"name\":\"Bob\"}]"));
+
+        client.get().uri("/pages/posts/1").exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("Server-Timing")
+                .expectBody()
+                .jsonPath("$.post.author.name").isEqualTo("Ann")
+                .jsonPath("$.comments.length()").isEqualTo(2)
+                .jsonPath("$.comments[0].author.name").isEqualTo("Bob")
+                .jsonPath("$.comments[1].author.name").isEqualTo("Ann")
+                .jsonPath("$.commentsNextCursor").isEqualTo(11)
+                .jsonPath("$.degraded").isEmpty();
+
+        assertEquals(1, backend.hits("/comments?postId=1&limit=2"), "only the first page of comments is fetched");
+        assertEquals(1, backend.hits("/users"), "authors are looked up in one batched call");
+    }
+
+    @Test
+    void lastCommentPage_shouldHaveNoCursor() {
+        backend.on("/posts/2", Reply.json("{\"id\":2,\"authorId\":7}"))
+                .on("/comments?postId=2&limit=2", Reply.json("[{\"id\":20,\"authorId\":7,\"content\":\"Only\"}]"))
+                .on("/users", Reply.json("[{\"id\":7,\"name\":\"Ann\"}]"));
+
+        client.get().uri("/pages/posts/2").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.comments.length()").isEqualTo(1)
+                .jsonPath("$.commentsNextCursor").doesNotExist();
+    }
+
+    @Test
+    void failingComments_shouldDegradeThePage() {
+        backend.on("/posts/3", Reply.json("{\"id\":3,\"authorId\":7}"))
+                .on("/comments", Reply.status(500))
+                .on("/users", Reply.json("[{\"id\":7,\"name\":\"Ann\"}]"));
+
+        client.get().uri("/pages/posts/3").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.post.author.name").isEqualTo("Ann")
+                .jsonPath("$.comments").isEmpty()
+                .jsonPath("$.degraded[0]").isEqualTo("comments");
+    }
+
+    @Test
+    void slowAuthors_shouldDegradeThePageAfterTheTimeout() {
+        backend.on("/posts/4", Reply.json("{\"id\":4,\"authorId\":7}"))
+                .on("/comments?postId=4&limit=2", Reply.json("[]"))
+                .on("/users", Reply.json("[{\"id\":7,\"name\":\"Ann\"}]").delay(3000));
+
+        client.get().uri("/pages/posts/4").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.post.author").doesNotExist()
+                .jsonPath("$.degraded[0]").isEqualTo("authors");
+    }
+
+    @Test
+    void missingPost_shouldBe404() {
+        backend.on("/comments?postId=5&limit=2", Reply.json("[]"));
+
+        client.get().uri("/pages/posts/5").exchange().expectStatus().isNotFound();
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.apigateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitTests {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void tryAcquire_shouldStopAtTheLimitUntilASlotIsReleased() {
+        ConcurrencyLimit limit = new ConcurrencyLimit(3, 1, 10, 1.5);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(3, limit.inFlight());
+
+        limit.releaseUnmeasured();
+
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void steadyLatencyUnderLoad_shouldGrowTheLimitUpToTheMaximum() {
+        ConcurrencyLimit limit = new ConcurrencyLimit(10, 2, 50, 1.5);
+
+        rounds(limit, 5, FAST);
+        int grown = limit.limit();
+        rounds(limit, 200, FAST);
+
+        assertTrue(grown > 10, "grew to " + grown);
+        assertEquals(50, limit.limit());
+    }
+
+    @Test
+    void idleRoute_shouldNotGrow() {
+        ConcurrencyLimit limit = new ConcurrencyLimit(10, 2, 50, 1.5);
+
+        for (int i = 0; i < 200; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(FAST, false);
+        }
+
+        assertEquals(10, limit.limit());
+    }
+
+    @Test
+    void risingLatency_shouldShrinkTheLimitDownToTheMinimum() {
+        ConcurrencyLimit limit = new ConcurrencyLimit(40, 4, 50, 1.5);
+        rounds(limit, 3, FAST);
+        int before = limit.limit();
+
+        rounds(limit, 2, SLOW);
+        int shrunk = limit.limit();
+        rounds(limit, 5, SLOW * 20);
+
+        assertTrue(shrunk < before, before + " -> " + shrunk);
+        assertEquals(4, limit.limit());
+    }
+
+    @Test
+    void sustainedLatency_shouldBecomeTheNewBaseline() {
+        ConcurrencyLimit limit = new ConcurrencyLimit(20, 4, 50, 1.5);
+        rounds(limit, 3, FAST);
+        rounds(limit, 5, SLOW * 20);
+        int shed = limit.limit();
+
+        rounds(limit, 200, SLOW * 20);
+
+        assertTrue(limit.limit() > shed, "recovered from " + shed + " to " + limit.limit());
+    }
+
+    @Test
+    void failures_shouldBackOffByATenth() {
+        ConcurrencyLimit limit = new ConcurrencyLimit(20, 2, 50, 1.5);
+
+        assertTrue(limit.tryAcquire());
+        limit.release(FAST, true);
+
+        assertEquals(18, limit.limit());
+        assertEquals(0, limit.inFlight());
+    }
+
+    /** Fills the limit, then releases every slot with the same latency. */
+    private static void rounds(ConcurrencyLimit limit, int rounds, long latencyNanos) {
+        for (int r = 0; r < rounds; r++) {
+            int taken = 0;
+            while (limit.tryAcquire()) taken++;
+            for (int i = 0; i < taken; i++) limit.release(latencyNanos, false);
+        }
+    }
+}
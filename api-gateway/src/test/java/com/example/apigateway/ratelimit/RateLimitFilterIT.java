@@ -0,0 +1,152 @@
+package com.example.apigateway.ratelimit;
+
+import com.example.apigateway.StubBackend;
+import com.example.apigateway.StubBackend.Reply;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the gateway's limits against a stub backend: post-service admits one request at a time, and the
+ * composed pages allow each client two requests. Clients are told apart by known {@code X-Api-Key}s.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"gateway.rate-limit.routes.post-service.initial-limit=1",
+                "gateway.rate-limit.routes.post-service.min-limit=1",
+                "gateway.rate-limit.routes.post-service.max-limit=1",
+                "gateway.rate-limit.routes.post-service.route-rate=0",
+                "gateway.rate-limit.routes.pages.client-rate=0.01",
+                "gateway.rate-limit.routes.pages.client-burst=2",
+                "gateway.rate-limit.client-header=X-Api-Key",
+                "gateway.rate-limit.api-keys=cache,pages,someone-else,shed"})
+class RateLimitFilterIT {
+
+    private static final StubBackend backend = StubBackend.start();
+
+    @DynamicPropertySource
+    static void backends(DynamicPropertyRegistry registry) {
+        for (String service : List.of("user-service", "post-service", "comment-service")) {
+            registry.add("spring.cloud.discovery.client.simple.instances." + service + "[0].uri", backend::url);
+        }
+    }
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private CompletableFuture<Void> slow;
+
+    @BeforeEach
+    void reset() {
+        backend.reset();
+    }
+
+    @AfterEach
+    void finishSlowRequest() throws Exception {
+        if (slow != null) slow.get(10, TimeUnit.SECONDS);
+        slow = null;
+    }
+
+    @AfterAll
+    static void stopBackend() {
+        backend.stop();
+    }
+
+    @Test
+    void cacheHits_shouldBeServedWhileTheBackendIsAtItsLimit() throws Exception {
+        backend.on("/posts/1", Reply.json("{\"id\":1}"));
+        get("/posts/1", "cache").expectStatus().isOk().expectHeader().valueEquals("X-Cache", "MISS");
+        occupyPostService();
+
+        get("/posts/1", "cache").expectStatus().isOk().expectHeader().valueEquals("X-Cache", "HIT");
+        get("/posts/3", "cache").expectStatus().isEqualTo(503).expectHeader().exists(HttpHeaders.RETRY_AFTER);
+
+        assertEquals(0, backend.hits("/posts/3"));
+    }
+
+    @Test
+    void pages_shouldBeThrottledPerClient() {
+        stubPage(5);
+
+        get("/pages/posts/5", "pages").expectStatus().isOk();
+        get("/pages/posts/5", "pages").expectStatus().isOk();
+        get("/pages/posts/5", "pages").expectStatus().isEqualTo(429).expectHeader().exists(HttpHeaders.RETRY_AFTER);
+        get("/pages/posts/5", "someone-else").expectStatus().isOk();
+
+        assertEquals(3, backend.hits("/posts/5"));
+    }
+
+    @Test
+    void unknownApiKeys_shouldShareTheirAddressBucket() {
+        stubPage(7);
+
+        get("/pages/posts/7", "made-up-1").expectStatus().isOk();
+        get("/pages/posts/7", "made-up-2").expectStatus().isOk();
+        get("/pages/posts/7", "made-up-3").expectStatus().isEqualTo(429);
+        client.get().uri("/pages/posts/7").exchange().expectStatus().isEqualTo(429);
+        get("/pages/posts/7", "someone-else").expectStatus().isOk();
+    }
+
+    @Test
+    void pageCalls_shouldCountAgainstTheBackendLimit() throws Exception {
+        stubPage(6);
+        occupyPostService();
+
+        get("/pages/posts/6", "shed").expectStatus().isEqualTo(503).expectHeader().exists(HttpHeaders.RETRY_AFTER);
+
+        assertEquals(0, backend.hits("/posts/6"));
+    }
+
+    private void stubPage(long id) {
+        backend.on("/posts/" + id, Reply.json("{\"id\":" + id + ",\"authorId\":7}"))
+                .on("/comments", Reply.json("[]"))
+                .on("/users", Reply.json("[{\"id\":7,\"name\":\"Ann\"}]"));
+    }
+
+    /** Holds post-service's only slot with a request the backend answers after two seconds. */
+    private void occupyPostService() throws Exception {
+        // a finished request frees its slot only after its response is written, so wait for that first
+        awaitPostServiceIdle();
+        // no-cache, or the second test would be answered with the first one's cached response
+        backend.on("/posts/2", Reply.json("{\"id\":2}").delay(2000));
+        slow = CompletableFuture.runAsync(() -> client.get().uri("/posts/2").header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .exchange().expectStatus().isOk());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (backend.hits("/posts/2") == 0) {
+            if (slow.isDone()) slow.get(); // throws the slow request's failure, say a 503, at once
+            assertTrue(System.nanoTime() < deadline, "slow request never reached the backend");
+            Thread.sleep(10);
+        }
+    }
+
+    private void awaitPostServiceIdle() throws InterruptedException {
+        Gauge inFlight = registry.find("gateway.rate_limit.in_flight").tag("route", "post-service").gauge();
+        if (inFlight == null) return; // no request has gone to post-service yet
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (inFlight.value() > 0) {
+            assertTrue(System.nanoTime() < deadline, "post-service slot never freed");
+            Thread.sleep(10);
+        }
+    }
+
+    private WebTestClient.ResponseSpec get(String uri, String apiKey) {
+        return client.get().uri(uri).header("X-Api-Key", apiKey).exchange();
+    }
+}
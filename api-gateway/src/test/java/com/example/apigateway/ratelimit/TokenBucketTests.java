@@ -0,0 +1,61 @@
+package com.example.apigateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTests {
+
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void fullBucket_shouldAllowExactlyTheBurst() {
+        long now = 1_000_000_000L;
+        TokenBucket bucket = new TokenBucket(10, 5, now);
+
+        assertEquals(5, bucket.available(now));
+        for (int i = 0; i < 5; i++) assertEquals(0, bucket.tryAcquire(now), "token " + i);
+        assertTrue(bucket.tryAcquire(now) > 0);
+        assertEquals(0, bucket.available(now));
+    }
+
+    @Test
+    void refusal_shouldSayWhenTheNextTokenIsDue() {
+        long now = 1_000_000_000L;
+        TokenBucket bucket = new TokenBucket(10, 2, now);
+        bucket.tryAcquire(now);
+        bucket.tryAcquire(now);
+
+        long wait = bucket.tryAcquire(now + INTERVAL / 4);
+
+        assertEquals(INTERVAL * 3 / 4, wait);
+        assertTrue(bucket.tryAcquire(now + INTERVAL - 1) > 0);
+        assertEquals(0, bucket.tryAcquire(now + INTERVAL));
+        assertEquals(1, RateLimitFilter.retryAfterSeconds(wait));
+        assertEquals(2, RateLimitFilter.retryAfterSeconds(TimeUnit.MILLISECONDS.toNanos(1001)));
+    }
+
+    @Test
+    void refill_shouldRunAtTheRateAndStopAtTheBurst() {
+        long now = 1_000_000_000L;
+        TokenBucket bucket = new TokenBucket(10, 5, now);
+        for (int i = 0; i < 5; i++) bucket.tryAcquire(now);
+
+        assertEquals(3, bucket.available(now + 3 * INTERVAL));
+        assertEquals(5, bucket.available(now + 60 * INTERVAL));
+        for (int i = 0; i < 5; i++) assertEquals(0, bucket.tryAcquire(now + 60 * INTERVAL), "token " + i);
+        assertTrue(bucket.tryAcquire(now + 60 * INTERVAL) > 0, "an idle minute does not bank more than the burst");
+    }
+
+    @Test
+    void refusedRequests_shouldNotUseTokens() {
+        long now = 1_000_000_000L;
+        TokenBucket bucket = new TokenBucket(10, 1, now);
+        bucket.tryAcquire(now);
+        for (int i = 0; i < 100; i++) bucket.tryAcquire(now + i);
+
+        assertEquals(0, bucket.tryAcquire(now + INTERVAL));
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.batchwrites;
+
+/** Outcome of one input row of a bulk write, reported in input order. */
+public class BatchRowResult {
+  public enum Status { CREATED, UPDATED, FAILED }
+
+  private int index;
+  private final Status status;
+  private final Long id;
+  private final String error;
+
+  private BatchRowResult(Status status, Long id, String error) {
+    this.status = status; this.id = id; this.error = error;
+  }
+
+  public static BatchRowResult created(Long id) { return new BatchRowResult(Status.CREATED, id, null); }
+  public static BatchRowResult updated(Long id) { return new BatchRowResult(Status.UPDATED, id, null); }
+  public static BatchRowResult failed(String error) { return new BatchRowResult(Status.FAILED, null, error); }
+
+  /** Sets the row's position in the input; called by the writer once the row has been written. */
+  public BatchRowResult at(int index) { this.index = index; return this; }
+
+  public int getIndex() { return index; }
+  public Status getStatus() { return status; }
+  public Long getId() { return id; }
+  public String getError() { return error; }
+}
@@ -0,0 +1,105 @@
+package com.example.batchwrites;
+
+import com.example.changeevents.ChangeEvent;
+import com.example.changeevents.ChangeEventOutbox;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Writes rows in chunks of {@code batch.chunk-size}, one transaction per chunk, so inserts go out as
+ * JDBC batches and a bad row costs at most one chunk. When a chunk fails it is rolled back and
+ * replayed row by row to find out which rows are at fault; the rest of the chunk still commits.
+ * A change event is recorded for every written row in the same transaction as the row.
+ */
+public class BatchWriter {
+  private static final Logger log = LoggerFactory.getLogger(BatchWriter.class);
+
+  /** Inserts or updates one row in the current transaction. */
+  public interface RowWriter<T> {
+    BatchRowResult write(T row);
+  }
+
+  private final TransactionTemplate tx;
+  private final EntityManager em;
+  private final ChangeEventOutbox outbox;
+  private final int chunkSize;
+
+  public BatchWriter(PlatformTransactionManager txManager, EntityManager em, ChangeEventOutbox outbox,
+                     @Value("${batch.chunk-size:500}") int chunkSize) {
+    this.tx = new TransactionTemplate(txManager);
+    this.em = em; this.outbox = outbox; this.chunkSize = chunkSize;
+  }
+
+  /** Consumes {@code rows} lazily; a row the iterator cannot produce (malformed input) ends the batch with a failed result. */
+  public <T> List<BatchRowResult> write(Iterator<T> rows, String aggregateType, RowWriter<T> writer) {
+    List<BatchRowResult> results = new ArrayList<>();
+    List<T> chunk = new ArrayList<>(chunkSize);
+    while (true) {
+      try {
+        if (!rows.hasNext()) break;
+        chunk.add(rows.next());
+      } catch (RuntimeException e) {
+        writeChunk(chunk, aggregateType, writer, results);
+        results.add(BatchRowResult.failed("malformed input: " + message(e)).at(results.size()));
+        return results;
+      }
+      if (chunk.size() == chunkSize) writeChunk(chunk, aggregateType, writer, results);
+    }
+    writeChunk(chunk, aggregateType, writer, results);
+    return results;
+  }
+
+  private <T> void writeChunk(List<T> chunk, String aggregateType, RowWriter<T> writer, List<BatchRowResult> results) {
+    if (chunk.isEmpty()) return;
+    int first = results.size();
+    try {
+      List<BatchRowResult> written = tx.execute(status -> {
+        List<BatchRowResult> out = new ArrayList<>(chunk.size());
+        for (T row : chunk) out.add(writeRow(row, aggregateType, writer));
+        em.flush();
+        em.clear();
+        return out;
+      });
+      for (BatchRowResult r : written) results.add(r.at(results.size()));
+    } catch (RuntimeException e) {
+      log.debug("Chunk of {} {} rows failed, retrying row by row", chunk.size(), aggregateType, e);
+      for (T row : chunk) {
+        BatchRowResult r;
+        try {
+          r = tx.execute(status -> {
+            BatchRowResult one = writeRow(row, aggregateType, writer);
+            em.flush();
+            em.clear();
+            return one;
+          });
+        } catch (RuntimeException rowFailure) {
+          r = BatchRowResult.failed(message(rowFailure));
+        }
+        results.add(r.at(results.size()));
+      }
+    }
+    log.debug("Wrote {} {} rows from index {}", chunk.size(), aggregateType, first);
+    chunk.clear();
+  }
+
+  private <T> BatchRowResult writeRow(T row, String aggregateType, RowWriter<T> writer) {
+    BatchRowResult result = writer.write(row);
+    outbox.record(aggregateType, result.getId(),
+        result.getStatus() == BatchRowResult.Status.CREATED ? ChangeEvent.Type.CREATED : ChangeEvent.Type.UPDATED);
+    return result;
+  }
+
+  private static String message(Throwable e) {
+    Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+    return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+  }
+}
@@ -0,0 +1,15 @@
+package com.example.batchwrites;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Bulk writes for the services' {@code /batch} endpoints: {@link BatchWriter} commits rows in chunks that
+ * go out as JDBC batches, recording a change event for each row, and reports a {@link BatchRowResult} per
+ * row. JDBC batching needs ids from pooled sequences rather than identity columns, so {@link SchemaUpgrade}
+ * comes with it to move an older database over. Auto-configured in every module that depends on this one.
+ */
+@AutoConfiguration
+@Import({BatchWriter.class, SchemaUpgrade.class})
+public class BatchWrites {
+}
@@ -0,0 +1,42 @@
+package com.example.batchwrites;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+/**
+ * Runs the service's {@value #SCRIPT} against PostgreSQL at startup to bring a database from an earlier
+ * release up to the current mapping: it moves the pooled id sequences past ids the old identity columns
+ * handed out and fills in the {@code version} of rows written before optimistic locking. It comes after
+ * Hibernate's ddl-auto, which creates a missing sequence at 1, and after any {@code data.sql}, and is
+ * safe to rerun. Other databases are skipped; the H2 test schema is created fresh each run.
+ */
+@DependsOnDatabaseInitialization
+public class SchemaUpgrade implements InitializingBean {
+  static final String SCRIPT = "db/upgrade-postgresql.sql";
+  private static final Logger log = LoggerFactory.getLogger(SchemaUpgrade.class);
+
+  private final DataSource dataSource;
+
+  /** Takes the EntityManagerFactory only so Hibernate's schema update has run first. */
+  public SchemaUpgrade(DataSource dataSource, EntityManagerFactory schemaUpdated) {
+    this.dataSource = dataSource;
+  }
+
+  @Override
+  public void afterPropertiesSet() throws Exception {
+    String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+    if (DatabaseDriver.fromProductName(product) != DatabaseDriver.POSTGRESQL) return;
+    new ResourceDatabasePopulator(new ClassPathResource(SCRIPT)).execute(dataSource);
+    log.info("Applied {}", SCRIPT);
+  }
+}
@@ -0,0 +1,59 @@
+package com.example.changeevents;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+
+/** Outbox row written in the same transaction as the change it describes. */
+@Entity
+@NoArgsConstructor
+@Table(name = "change_events", indexes = @Index(name = "change_events_occurred_at", columnList = "occurredAt, id"))
+@org.springframework.data.relational.core.mapping.Table("change_events") // written over R2DBC by post-service's "reactive" profile
+public class ChangeEvent {
+  public enum Type { CREATED, UPDATED, DELETED }
+
+  @Id
+  @org.springframework.data.annotation.Id
+  @org.springframework.data.relational.core.mapping.Sequence("change_events_seq")
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "change_events_seq")
+  @SequenceGenerator(name = "change_events_seq", sequenceName = "change_events_seq", allocationSize = 50)
+  private Long id;
+  @Column(length = 32)
+  private String aggregateType;
+  private Long aggregateId;
+  @Enumerated(EnumType.STRING)
+  @JdbcTypeCode(SqlTypes.VARCHAR) // a plain column on every database, so R2DBC can write it as text
+  @Column(length = 16)
+  private Type type;
+  private Instant occurredAt;
+  @JsonIgnore
+  private int attempts;
+  @JsonIgnore
+  private Instant claimedUntil;
+  // set once the dispatcher is done with the row, which stays until the retention runs out (ChangeEventFeed)
+  @JsonIgnore
+  private Instant dispatchedAt;
+
+  public ChangeEvent(String aggregateType, Long aggregateId, Type type) {
+    this.aggregateType = aggregateType;
+    this.aggregateId = aggregateId;
+    this.type = type;
+    this.occurredAt = Instant.now();
+  }
+
+  // getters/setters
+  public Long getId() { return id; }
+  public String getAggregateType() { return aggregateType; }
+  public Long getAggregateId() { return aggregateId; }
+  public Type getType() { return type; }
+  public Instant getOccurredAt() { return occurredAt; }
+  public int getAttempts() { return attempts; }
+  public void setAttempts(int attempts) { this.attempts = attempts; }
+  public Instant getClaimedUntil() { return claimedUntil; }
+  public void setClaimedUntil(Instant claimedUntil) { this.claimedUntil = claimedUntil; }
+  public Instant getDispatchedAt() { return dispatchedAt; }
+}
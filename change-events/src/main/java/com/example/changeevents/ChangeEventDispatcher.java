@@ -0,0 +1,128 @@
+package com.example.changeevents;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Drains the outbox in batches and pushes them to in-process {@link ChangeEventSubscriber} beans
+ * and to the webhooks in {@code change-events.webhooks}. A batch is claimed for
+ * {@code change-events.claim-timeout} in one short transaction and settled in another, so no row lock
+ * or pooled connection is held while subscribers run; rows claimed by an instance that dies become
+ * claimable again once the claim runs out. A row whose batch fails for any subscriber is retried on
+ * the next tick, and after {@code change-events.max-attempts} failures of its own it is dropped so one
+ * dead consumer cannot stall the stream; consumers fall back to their cache TTLs for anything missed.
+ * <p>
+ * Each row goes to one instance. Dispatched and dropped rows are marked rather than deleted and purged
+ * after {@code change-events.retention}, so that {@link ChangeEventFeed} can show them to every instance.
+ */
+public class ChangeEventDispatcher {
+  private static final Logger log = LoggerFactory.getLogger(ChangeEventDispatcher.class);
+
+  private final ChangeEventRepository repo;
+  private final List<ChangeEventSubscriber> subscribers = new ArrayList<>();
+  private final TransactionTemplate tx;
+  private final MeterRegistry registry;
+  private final Counter dispatched;
+  private final Counter dropped;
+  private final int batchSize;
+  private final int maxAttempts;
+  private final Duration claimTimeout;
+  private final Duration retention;
+  // a lock rather than synchronized: a virtual thread blocked on JDBC or HTTP inside synchronized pins its carrier
+  private final Lock lock = new ReentrantLock();
+
+  public ChangeEventDispatcher(ChangeEventRepository repo, List<ChangeEventSubscriber> inProcess,
+                               RestClient.Builder http, PlatformTransactionManager txManager, MeterRegistry registry,
+                               @Value("${change-events.webhooks:}") List<String> webhooks,
+                               @Value("${change-events.batch-size:100}") int batchSize,
+                               @Value("${change-events.max-attempts:5}") int maxAttempts,
+                               @Value("${change-events.claim-timeout:2m}") Duration claimTimeout,
+                               @Value("${change-events.retention:10m}") Duration retention) {
+    this.repo = repo;
+    this.subscribers.addAll(inProcess);
+    RestClient client = http.build();
+    webhooks.stream().map(String::trim).filter(url -> !url.isEmpty())
+        .forEach(url -> subscribers.add(new WebhookSubscriber(client, url)));
+    this.tx = new TransactionTemplate(txManager);
+    this.registry = registry;
+    this.dispatched = registry.counter("change_events.dispatched");
+    this.dropped = registry.counter("change_events.dropped");
+    this.batchSize = batchSize;
+    this.maxAttempts = maxAttempts;
+    this.claimTimeout = claimTimeout;
+    this.retention = retention;
+  }
+
+  @Scheduled(fixedDelayString = "${change-events.dispatch-interval-ms:500}")
+  public void dispatchPending() {
+    lock.lock();
+    try {
+      int sent;
+      do {
+        sent = dispatchBatch();
+      } while (sent == batchSize);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private int dispatchBatch() {
+    List<ChangeEvent> batch = tx.execute(status -> claimNextBatch());
+    if (batch == null || batch.isEmpty()) return 0;
+
+    boolean delivered = true;
+    for (ChangeEventSubscriber subscriber : subscribers) {
+      try {
+        subscriber.onEvents(batch);
+      } catch (Exception e) {
+        delivered = false;
+        registry.counter("change_events.delivery.failures", "subscriber", subscriber.name()).increment();
+        log.warn("Change event delivery to {} failed: {}", subscriber.name(), e.toString());
+      }
+    }
+
+    List<Long> ids = batch.stream().map(ChangeEvent::getId).collect(Collectors.toList());
+    if (delivered) {
+      tx.executeWithoutResult(status -> repo.markDispatched(ids, Instant.now()));
+      dispatched.increment(ids.size());
+      return ids.size();
+    }
+    Integer exhausted = tx.execute(status -> {
+      repo.recordFailedAttempt(ids);
+      return repo.giveUpExhausted(ids, maxAttempts, Instant.now());
+    });
+    if (exhausted != null && exhausted > 0) {
+      dropped.increment(exhausted);
+      log.error("Dropping {} change events after {} failed attempts", exhausted, maxAttempts);
+    }
+    return 0;
+  }
+
+  @Scheduled(fixedDelayString = "${change-events.purge-interval-ms:60000}")
+  public void purgeDispatched() {
+    tx.executeWithoutResult(status -> repo.deleteDispatchedBefore(Instant.now().minus(retention)));
+  }
+
+  private List<ChangeEvent> claimNextBatch() {
+    Instant now = Instant.now();
+    List<ChangeEvent> batch = repo.lockNextBatch(now, Limit.of(batchSize));
+    batch.forEach(e -> e.setClaimedUntil(now.plus(claimTimeout)));
+    return batch;
+  }
+}
@@ -0,0 +1,124 @@
+package com.example.changeevents;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Tails the outbox on every instance and hands each committed event to this instance's
+ * {@link LocalChangeEventSubscriber} beans, whoever dispatched it. Rows are read in {@code occurredAt}
+ * order from a high-water mark held in memory. That time is taken on the writer's clock before commit,
+ * so rows can commit behind the mark: each poll re-reads the last {@code change-events.feed-overlap} and
+ * skips the ids it has already delivered. A row whose transaction took longer than the overlap is missed.
+ * <p>
+ * The dispatcher keeps rows for {@code change-events.retention}. An instance that has not polled for
+ * longer than that may have missed purged rows, so it asks its subscribers to resync before going on.
+ */
+public class ChangeEventFeed {
+  private static final Logger log = LoggerFactory.getLogger(ChangeEventFeed.class);
+
+  private final ChangeEventRepository repo;
+  private final List<LocalChangeEventSubscriber> subscribers;
+  private final TransactionTemplate readOnlyTx;
+  private final MeterRegistry registry;
+  private final Counter delivered;
+  private final int batchSize;
+  private final Duration overlap;
+  private final Duration retention;
+  // ids delivered within the overlap, by occurredAt; guarded by lock
+  private final Map<Long, Instant> seen = new HashMap<>();
+  private Instant highWaterMark;
+  private Instant lastPolled;
+  // a lock rather than synchronized: a virtual thread blocked on JDBC inside synchronized pins its carrier
+  private final Lock lock = new ReentrantLock();
+
+  public ChangeEventFeed(ChangeEventRepository repo, List<LocalChangeEventSubscriber> subscribers,
+                         PlatformTransactionManager txManager, MeterRegistry registry,
+                         @Value("${change-events.batch-size:100}") int batchSize,
+                         @Value("${change-events.feed-overlap:30s}") Duration overlap,
+                         @Value("${change-events.retention:10m}") Duration retention) {
+    this.repo = repo;
+    this.subscribers = subscribers;
+    this.readOnlyTx = new TransactionTemplate(txManager);
+    this.readOnlyTx.setReadOnly(true);
+    this.registry = registry;
+    this.delivered = registry.counter("change_events.feed.delivered");
+    this.batchSize = batchSize;
+    this.overlap = overlap;
+    this.retention = retention;
+    // subscribers load the tables once the application is ready; anything older is already in them
+    this.highWaterMark = Instant.now();
+    this.lastPolled = highWaterMark;
+  }
+
+  @Scheduled(fixedDelayString = "${change-events.feed-interval-ms:500}")
+  public void poll() {
+    if (subscribers.isEmpty()) return;
+    lock.lock();
+    try {
+      Instant now = Instant.now();
+      if (lastPolled.plus(retention).minus(overlap).isBefore(now)) {
+        log.warn("Change event feed last polled at {}, before the retention; resyncing", lastPolled);
+        for (LocalChangeEventSubscriber subscriber : subscribers) subscriber.resync();
+      }
+      readNewEvents();
+      lastPolled = now;
+    } catch (Exception e) {
+      log.warn("Change event feed poll failed: {}", e.toString());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void readNewEvents() throws Exception {
+    Instant afterTime = highWaterMark.minus(overlap);
+    long afterId = Long.MIN_VALUE;
+    List<ChangeEvent> page;
+    do {
+      Instant t = afterTime;
+      long id = afterId;
+      page = readOnlyTx.execute(status -> repo.findAfter(t, id, Limit.of(batchSize)));
+      if (page == null || page.isEmpty()) break;
+      List<ChangeEvent> fresh = page.stream().filter(e -> !seen.containsKey(e.getId())).collect(Collectors.toList());
+      if (!fresh.isEmpty()) deliver(fresh);
+      ChangeEvent last = page.get(page.size() - 1);
+      afterTime = last.getOccurredAt();
+      afterId = last.getId();
+    } while (page.size() == batchSize);
+
+    Instant horizon = highWaterMark.minus(overlap);
+    seen.values().removeIf(occurredAt -> occurredAt.isBefore(horizon));
+  }
+
+  /** Nothing is marked seen unless every subscriber took the batch, so a failure is retried on the next poll. */
+  private void deliver(List<ChangeEvent> events) throws Exception {
+    for (LocalChangeEventSubscriber subscriber : subscribers) {
+      try {
+        subscriber.onEvents(events);
+      } catch (Exception e) {
+        registry.counter("change_events.delivery.failures", "subscriber", subscriber.name()).increment();
+        throw e;
+      }
+    }
+    for (ChangeEvent e : events) {
+      seen.put(e.getId(), e.getOccurredAt());
+      if (e.getOccurredAt().isAfter(highWaterMark)) highWaterMark = e.getOccurredAt();
+    }
+    delivered.increment(events.size());
+  }
+}
@@ -0,0 +1,16 @@
+package com.example.changeevents;
+
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+public class ChangeEventOutbox {
+  private final ChangeEventRepository repo;
+
+  public ChangeEventOutbox(ChangeEventRepository repo) { this.repo = repo; }
+
+  /** Must join the caller's transaction so the event commits or rolls back with the change. */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void record(String aggregateType, Long aggregateId, ChangeEvent.Type type) {
+    repo.save(new ChangeEvent(aggregateType, aggregateId, type));
+  }
+}
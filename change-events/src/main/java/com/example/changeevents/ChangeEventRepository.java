@@ -0,0 +1,47 @@
+package com.example.changeevents;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface ChangeEventRepository extends JpaRepository<ChangeEvent, Long> {
+  // oldest unclaimed first; SKIP LOCKED lets several instances claim at once without handing out the same rows
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+  @Query("select e from ChangeEvent e where e.dispatchedAt is null and (e.claimedUntil is null or e.claimedUntil < :now) order by e.id")
+  List<ChangeEvent> lockNextBatch(@Param("now") Instant now, Limit limit);
+
+  @Modifying
+  @Query("update ChangeEvent e set e.dispatchedAt = :now, e.claimedUntil = null where e.id in :ids")
+  int markDispatched(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+  /** Counts a failure against each row and releases its claim for the next tick. */
+  @Modifying
+  @Query("update ChangeEvent e set e.attempts = e.attempts + 1, e.claimedUntil = null where e.id in :ids")
+  int recordFailedAttempt(@Param("ids") Collection<Long> ids);
+
+  /** Stops dispatching rows that have failed too often; they stay for the retention like delivered ones. */
+  @Modifying
+  @Query("update ChangeEvent e set e.dispatchedAt = :now where e.id in :ids and e.attempts >= :maxAttempts")
+  int giveUpExhausted(@Param("ids") Collection<Long> ids, @Param("maxAttempts") int maxAttempts, @Param("now") Instant now);
+
+  @Modifying
+  @Query("delete from ChangeEvent e where e.dispatchedAt < :cutoff")
+  int deleteDispatchedBefore(@Param("cutoff") Instant cutoff);
+
+  long countByDispatchedAtIsNull();
+
+  /** Keyset page in (occurredAt, id) order, starting after the given row. */
+  @Query("select e from ChangeEvent e where e.occurredAt > :occurredAt or (e.occurredAt = :occurredAt and e.id > :id) order by e.occurredAt, e.id")
+  List<ChangeEvent> findAfter(@Param("occurredAt") Instant occurredAt, @Param("id") long id, Limit limit);
+}
@@ -0,0 +1,13 @@
+package com.example.changeevents;
+
+import java.util.List;
+
+/**
+ * Receives committed change events in id order. Delivery is at-least-once: a batch is redelivered
+ * to every subscriber if any of them fails, so handlers must be idempotent.
+ */
+public interface ChangeEventSubscriber {
+  void onEvents(List<ChangeEvent> events) throws Exception;
+
+  default String name() { return getClass().getSimpleName(); }
+}
@@ -0,0 +1,24 @@
+package com.example.changeevents;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * The change event outbox of the services: {@link ChangeEventOutbox} records an event in the transaction
+ * of the change it describes, {@link ChangeEventDispatcher} delivers each one to a single instance's
+ * {@link ChangeEventSubscriber} beans and webhooks, and {@link ChangeEventFeed} shows every one to the
+ * {@link LocalChangeEventSubscriber} beans of every instance. Auto-configured in every module that depends
+ * on this one; the application must enable scheduling.
+ * <p>
+ * This package is added to the auto-configuration packages, so {@link ChangeEvent} and
+ * {@link ChangeEventRepository} are picked up with the application's own entities and repositories. An
+ * application that declares {@code @EnableJpaRepositories} itself has to list {@link ChangeEventRepository}.
+ */
+@AutoConfiguration(before = {HibernateJpaAutoConfiguration.class, JpaRepositoriesAutoConfiguration.class})
+@AutoConfigurationPackage
+@Import({ChangeEventOutbox.class, ChangeEventDispatcher.class, ChangeEventFeed.class})
+public class ChangeEvents {
+}
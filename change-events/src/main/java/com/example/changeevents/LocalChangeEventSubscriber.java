@@ -0,0 +1,17 @@
+package com.example.changeevents;
+
+import java.util.List;
+
+/**
+ * Receives every committed change event on every instance, through {@link ChangeEventFeed}, for state each
+ * instance keeps for itself; a {@link ChangeEventSubscriber} gets each event on one instance only. Events
+ * arrive in roughly commit order and can be redelivered, so handlers must be idempotent.
+ */
+public interface LocalChangeEventSubscriber {
+  void onEvents(List<ChangeEvent> events) throws Exception;
+
+  /** Called when events may have been missed; rebuild from the tables. */
+  void resync() throws Exception;
+
+  default String name() { return getClass().getSimpleName(); }
+}
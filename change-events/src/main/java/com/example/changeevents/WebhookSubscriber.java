@@ -0,0 +1,22 @@
+package com.example.changeevents;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+
+import java.util.List;
+
+/** POSTs each batch as a JSON array to one configured URL. */
+class WebhookSubscriber implements ChangeEventSubscriber {
+  private final RestClient http;
+  private final String url;
+
+  WebhookSubscriber(RestClient http, String url) { this.http = http; this.url = url; }
+
+  @Override
+  public void onEvents(List<ChangeEvent> events) {
+    http.post().uri(url).contentType(MediaType.APPLICATION_JSON).body(events).retrieve().toBodilessEntity();
+  }
+
+  @Override
+  public String name() { return url; }
+}
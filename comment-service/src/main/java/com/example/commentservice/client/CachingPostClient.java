@@ -0,0 +1,46 @@
+package com.example.commentservice.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Bounded near-cache in front of {@link PostClient}. Entries are evicted by size and TTL, and
+ * explicitly when post-service reports a change; failed lookups are never cached.
+ * Hit/miss/eviction counts are published as {@code cache.*} meters tagged {@code cache=post-near-cache}.
+ * Every post fetched is also handed to {@link PostClientFallbackFactory} as last-known-good data.
+ */
+@Component
+public class CachingPostClient {
+  private final PostClient delegate;
+  private final PostClientFallbackFactory lastKnown;
+  private final Cache<Long, Object> cache;
+
+  public CachingPostClient(PostClient delegate, PostClientFallbackFactory lastKnown, MeterRegistry registry,
+                           @Value("${post-cache.maximum-size:10000}") long maximumSize,
+                           @Value("${post-cache.ttl:5m}") Duration ttl) {
+    this.delegate = delegate;
+    this.lastKnown = lastKnown;
+    this.cache = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl).recordStats().build();
+    CaffeineCacheMetrics.monitor(registry, cache, "post-near-cache");
+  }
+
+  public Object getPostById(Long id) {
+    Object post = cache.getIfPresent(id);
+    if (post == null) {
+      post = delegate.getPostById(id);
+      if (post != null) {
+        cache.put(id, post);
+        lastKnown.remember(id, post);
+      }
+    }
+    return post;
+  }
+
+  public void evict(Long id) { cache.invalidate(id); }
+}
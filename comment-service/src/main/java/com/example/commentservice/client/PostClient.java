@@ -4,7 +4,12 @@ import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 
-@FeignClient(name = "post-service", url = "http://localhost:8082")
+/**
+ * post-service over HTTP, spread over its instances (see {@link com.example.loadbalancing.LoadBalancing}). Calls go through the
+ * {@code post-service} bulkhead and circuit breaker (see {@link ClientResilience}); failures fall back
+ * to {@link PostClientFallbackFactory}.
+ */
+@FeignClient(name = "post-service", fallbackFactory = PostClientFallbackFactory.class)
 public interface PostClient {
   @GetMapping("/posts/{id}")
   Object getPostById(@PathVariable("id") Long id);
@@ -0,0 +1,54 @@
+package com.example.commentservice.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import feign.FeignException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.openfeign.FallbackFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Last-known-good posts for when post-service times out, fails, is shed by the bulkhead or is
+ * short-circuited by the breaker. Unlike the near-cache in {@link CachingPostClient}, entries outlive
+ * change events and the near-cache TTL: a slightly stale post beats none while post-service is down.
+ * A 4xx (such as a deleted post) is always rethrown. Outcomes are counted as {@code feign.fallback{client,outcome}}.
+ */
+@Component
+public class PostClientFallbackFactory implements FallbackFactory<PostClient> {
+  private final Cache<Long, Object> lastKnown;
+  private final MeterRegistry registry;
+
+  public PostClientFallbackFactory(MeterRegistry registry,
+                                   @Value("${post-client.last-known.maximum-size:10000}") long maximumSize,
+                                   @Value("${post-client.last-known.ttl:1h}") Duration ttl) {
+    this.registry = registry;
+    this.lastKnown = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl).recordStats().build();
+    CaffeineCacheMetrics.monitor(registry, lastKnown, "post-last-known");
+  }
+
+  /** Records a post as returned by post-service; a post served from here is not re-recorded, so it still expires. */
+  public void remember(Long id, Object post) {
+    if (post != null && lastKnown.asMap().get(id) != post) lastKnown.put(id, post);
+  }
+
+  @Override
+  public PostClient create(Throwable cause) {
+    return id -> {
+      Object post = cause instanceof FeignException.FeignClientException ? null : lastKnown.getIfPresent(id);
+      if (post == null) {
+        count("rethrown");
+        throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+      }
+      count("served");
+      return post;
+    };
+  }
+
+  private void count(String outcome) {
+    registry.counter("feign.fallback", "client", "post-service", "outcome", outcome).increment();
+  }
+}
@@ -0,0 +1,34 @@
+package com.example.commentservice.controller;
+
+import com.example.commentservice.client.CachingPostClient;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/** Service-to-service cache control; not routed through the api-gateway. */
+@RestController
+@RequestMapping("/internal")
+public class CacheController {
+  private final CachingPostClient posts;
+
+  public CacheController(CachingPostClient posts) { this.posts = posts; }
+
+  @DeleteMapping("/cache/posts/{id}")
+  public ResponseEntity<Void> evictPost(@PathVariable("id") Long id) {
+    posts.evict(id);
+    return ResponseEntity.noContent().build();
+  }
+
+  /** Webhook target for post-service's change-event stream. */
+  @PostMapping("/events")
+  public ResponseEntity<Void> onChangeEvents(@RequestBody List<Map<String, Object>> events) {
+    for (Map<String, Object> event : events) {
+      if ("post".equals(event.get("aggregateType")) && event.get("aggregateId") instanceof Number) {
+        posts.evict(((Number) event.get("aggregateId")).longValue());
+      }
+    }
+    return ResponseEntity.noContent().build();
+  }
+}
@@ -1,36 +1,158 @@
 package com.example.commentservice.controller;
 
+import com.example.batchwrites.BatchRowResult;
+import com.example.batchwrites.BatchWriter;
+import com.example.changeevents.ChangeEvent;
+import com.example.changeevents.ChangeEventOutbox;
 import com.example.commentservice.model.Comment;
 import com.example.commentservice.repository.CommentRepository;
-import com.example.commentservice.client.PostClient;
-import com.example.commentservice.client.UserClient;
+import com.example.commentservice.repository.CommentSummary;
+import com.example.commentservice.search.CommentSearchIndex;
+import com.example.commentservice.service.CommentAggregator;
+import com.example.etags.ETags;
+import com.example.invertedindex.InvertedIndex;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.OptimisticLockException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/comments")
 public class CommentController {
   private static final Logger log = LoggerFactory.getLogger(CommentController.class);
 
+  static final int MAX_PAGE_SIZE = 1000;
+  static final int MAX_SEARCH_PAGE_SIZE = 100;
+  /** Deepest result a search page may reach; ranking keeps every hit up to here in memory. */
+  static final int MAX_SEARCH_DEPTH = 10_000;
+
   private final CommentRepository repo;
-  private final PostClient postClient;
-  private final UserClient userClient;
+  private final CommentAggregator aggregator;
+  private final ChangeEventOutbox outbox;
+  private final BatchWriter batchWriter;
+  private final EntityManager em;
+  private final TransactionTemplate readOnlyTx;
+  private final ObjectMapper mapper;
+  private final CommentSearchIndex searchIndex;
 
-  public CommentController(CommentRepository repo, PostClient postClient, UserClient userClient) {
-    this.repo = repo; this.postClient = postClient; this.userClient = userClient;
+  public CommentController(CommentRepository repo, CommentAggregator aggregator, ChangeEventOutbox outbox,
+                           BatchWriter batchWriter, EntityManager em, PlatformTransactionManager txManager, ObjectMapper mapper,
+                           CommentSearchIndex searchIndex) {
+    this.repo = repo; this.aggregator = aggregator; this.outbox = outbox; this.batchWriter = batchWriter;
+    this.em = em; this.mapper = mapper; this.searchIndex = searchIndex;
+    this.readOnlyTx = new TransactionTemplate(txManager);
+    this.readOnlyTx.setReadOnly(true);
   }
 
+  /**
+   * Keyset page of comments ordered by id. Pass the {@code X-Next-Cursor} response header
+   * back as {@code afterId} to fetch the next page; the header is absent on the last page.
+   */
   @GetMapping
-  public List<Comment> all() { return repo.findAll(); }
+  public ResponseEntity<List<Comment>> all(@RequestParam(value = "afterId", defaultValue = "0") Long afterId,
+                                           @RequestParam(value = "limit", defaultValue = "100") int limit) {
+    int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    List<Comment> page = repo.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(size));
+    ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+    if (page.size() == size) ok.header("X-Next-Cursor", String.valueOf(page.get(size - 1).getId()));
+    return ok.body(page);
+  }
 
+  /**
+   * Streams every comment as newline-delimited JSON straight from a JDBC cursor.
+   * Rows are detached as soon as they are written, so heap use does not grow with the table.
+   */
+  @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> stream() {
+    StreamingResponseBody body = out -> readOnlyTx.executeWithoutResult(status -> {
+      try (Stream<Comment> rows = repo.streamAll()) {
+        rows.forEach(c -> {
+          try {
+            out.write(mapper.writeValueAsBytes(c));
+            out.write('\n');
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          em.detach(c);
+        });
+      }
+    });
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+  }
+
+  /**
+   * Comments whose content matches any term of {@code q}, best BM25 score first, as
+   * {@code {total, page, size, results: [{score, comment}]}}. Reflects writes once their change events
+   * have been dispatched.
+   */
+  @GetMapping("/search")
+  public ResponseEntity<Map<String, Object>> search(@RequestParam("q") String q,
+                                                    @RequestParam(value = "page", defaultValue = "0") int page,
+                                                    @RequestParam(value = "size", defaultValue = "20") int size) {
+    if (q.trim().isEmpty() || page < 0 || size < 1 || size > MAX_SEARCH_PAGE_SIZE
+        || (long) (page + 1) * size > MAX_SEARCH_DEPTH) return ResponseEntity.badRequest().build();
+    InvertedIndex.Hits hits = searchIndex.search(q, page * size, size);
+    Map<Long, Comment> comments = repo.findAllById(hits.getHits().stream().map(InvertedIndex.Hit::getId).collect(Collectors.toList()))
+        .stream().collect(Collectors.toMap(Comment::getId, Function.identity()));
+    List<Map<String, Object>> results = new ArrayList<>();
+    for (InvertedIndex.Hit hit : hits.getHits()) {
+      Comment comment = comments.get(hit.getId());
+      if (comment != null) results.add(Map.of("score", hit.getScore(), "comment", comment));
+    }
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("total", hits.getTotal());
+    body.put("page", page);
+    body.put("size", size);
+    body.put("results", results);
+    return ResponseEntity.ok(body);
+  }
+
+  /** Carries a strong ETag; a matching {@code If-None-Match} gets 304 without a body. */
   @GetMapping("/{id}")
   public ResponseEntity<Comment> get(@PathVariable("id") Long id) {
-    return repo.findById(id).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+    return repo.findById(id).map(comment -> ResponseEntity.ok().eTag(ETags.of(comment.getVersion())).body(comment))
+        .orElse(ResponseEntity.notFound().build());
+  }
+
+  /**
+   * Keyset page of one post's comments without the post or author lookups {@code /post/{postId}} adds;
+   * for callers that already have them. Paged like {@link #all}, through {@code afterId} and {@code X-Next-Cursor}.
+   */
+  @GetMapping(params = "postId")
+  public ResponseEntity<List<CommentSummary>> listByPost(@RequestParam("postId") Long postId,
+                                                         @RequestParam(value = "afterId", defaultValue = "0") Long afterId,
+                                                         @RequestParam(value = "limit", defaultValue = "100") int limit) {
+    int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    List<CommentSummary> page = repo.findSummariesByPostIdAfter(postId, afterId, Limit.of(size));
+    ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+    if (page.size() == size) ok.header("X-Next-Cursor", String.valueOf(page.get(size - 1).getId()));
+    return ok.body(page);
   }
 
   @GetMapping("/post/{postId}")
@@ -38,29 +160,89 @@ public class CommentController {
 
     log.info("Fetching comments for postId={}", postId);
 
-    List<Comment> comments = repo.findByPostId(postId);
-    Object post = null;
-    try { post = postClient.getPostById(postId); } catch (Exception e) { post = Map.of("error","unable to fetch post"); }
-    return ResponseEntity.ok(Map.of("post", post, "comments", comments));
+    try {
+      return ResponseEntity.ok(aggregator.byPost(postId));
+    } catch (TimeoutException e) {
+      return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(Map.of("error", "timed out loading comments"));
+    }
+  }
+
+  @GetMapping("/post/{postId}/count")
+  public Map<String, Object> countByPost(@PathVariable("postId") Long postId) {
+    return Map.of("postId", postId, "count", repo.countByPostId(postId));
+  }
+
+  /** Comment counts for a page of posts in one grouped query; posts without comments map to 0. */
+  @GetMapping("/counts")
+  public ResponseEntity<Map<Long, Long>> countsByPosts(@RequestParam("postIds") List<Long> postIds) {
+    if (postIds.size() > MAX_PAGE_SIZE) return ResponseEntity.badRequest().build();
+    Map<Long, Long> counts = new LinkedHashMap<>();
+    postIds.forEach(id -> counts.put(id, 0L));
+    repo.countByPostIds(postIds).forEach(c -> counts.put(c.getPostId(), c.getCount()));
+    return ResponseEntity.ok(counts);
   }
 
   @PostMapping
-  public Comment create(@RequestBody Comment c) { return repo.save(c); }
+  @Transactional
+  public Comment create(@RequestBody Comment c) {
+    c.setVersion(null);
+    Comment saved = repo.save(c);
+    outbox.record("comment", saved.getId(), ChangeEvent.Type.CREATED);
+    return saved;
+  }
 
+  /**
+   * Creates or updates comments from a JSON array or an NDJSON stream: rows without an id are inserted,
+   * rows with one update that comment (and fail if they carry a stale {@code version}). Returns one result
+   * per input row, in input order.
+   */
+  @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+  public List<BatchRowResult> batch(InputStream body) throws IOException {
+    MappingIterator<Comment> rows = mapper.readerFor(Comment.class).readValues(body);
+    return batchWriter.write(rows, "comment", row -> {
+      if (row.getId() == null) return BatchRowResult.created(repo.save(new Comment(null, row.getPostId(), row.getAuthorId(), row.getContent())).getId());
+      Comment comment = repo.findById(row.getId())
+          .orElseThrow(() -> new EntityNotFoundException("comment " + row.getId() + " not found"));
+      if (row.getVersion() != null && !row.getVersion().equals(comment.getVersion())) {
+        throw new OptimisticLockException("comment " + row.getId() + " is at version " + comment.getVersion());
+      }
+      comment.setContent(row.getContent());
+      comment.setAuthorId(row.getAuthorId());
+      comment.setPostId(row.getPostId());
+      return BatchRowResult.updated(comment.getId());
+    });
+  }
+
+  /** With {@code If-Match}, updates only if the client holds the current version; otherwise 412. */
   @PutMapping("/{id}")
-  public ResponseEntity<Comment> update(@PathVariable("id") Long id, @RequestBody Comment c) {
+  @Transactional
+  public ResponseEntity<Comment> update(@PathVariable("id") Long id, @RequestBody Comment c,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     return repo.findById(id).map(comment -> {
+      if (!ETags.ifMatch(ifMatch, comment.getVersion())) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).eTag(ETags.of(comment.getVersion())).<Comment>build();
+      }
       comment.setContent(c.getContent());
       comment.setAuthorId(c.getAuthorId());
       comment.setPostId(c.getPostId());
-      return ResponseEntity.ok(repo.save(comment));
+      Comment saved = repo.saveAndFlush(comment);
+      outbox.record("comment", id, ChangeEvent.Type.UPDATED);
+      return ResponseEntity.ok().eTag(ETags.of(saved.getVersion())).body(saved);
     }).orElse(ResponseEntity.notFound().build());
   }
 
   @DeleteMapping("/{id}")
+  @Transactional
   public ResponseEntity<Void> delete(@PathVariable("id") Long id) {
     if (!repo.existsById(id)) return ResponseEntity.notFound().build();
     repo.deleteById(id);
+    outbox.record("comment", id, ChangeEvent.Type.DELETED);
     return ResponseEntity.noContent().build();
   }
+
+  /** A concurrent update won between our read and the write; the client's copy is stale. */
+  @ExceptionHandler(OptimisticLockingFailureException.class)
+  public ResponseEntity<Void> staleVersion(OptimisticLockingFailureException e) {
+    return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+  }
 }
@@ -1,22 +1,36 @@
 package com.example.commentservice.model;
 
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @NoArgsConstructor
-@AllArgsConstructor
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+    // (post_id, id) serves findByPostId filtered and already in id order
+    @Index(name = "idx_comments_post_id", columnList = "postId, id"),
+    @Index(name = "idx_comments_author_id", columnList = "authorId")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "comments")
 public class Comment {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "comments_seq")
+  @SequenceGenerator(name = "comments_seq", sequenceName = "comments_seq", allocationSize = 50)
   private Long id;
   private Long postId;
   private Long authorId;
   @Column(length = 2000)
   private String content;
+  /** Bumped on every update; doubles as the optimistic lock and the ETag. */
+  @Version
+  private Long version;
+
+  public Comment(Long id, Long postId, Long authorId, String content) {
+    this.id = id; this.postId = postId; this.authorId = authorId; this.content = content;
+  }
 
   // getters/setters
   public Long getId() { return id; }
@@ -27,4 +41,6 @@ public class Comment {
   public void setAuthorId(Long authorId) { this.authorId = authorId; }
   public String getContent() { return content; }
   public void setContent(String content) { this.content = content; }
+  public Long getVersion() { return version; }
+  public void setVersion(Long version) { this.version = version; }
 }
@@ -1,10 +1,53 @@
 package com.example.commentservice.repository;
 
 import com.example.commentservice.model.Comment;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
+  // query cache: ids per post, invalidated by any write to comments; the rows come from the entity cache
+  @Transactional(readOnly = true)
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
   List<Comment> findByPostId(Long postId);
+
+  @Transactional(readOnly = true)
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+  @Query("select c.id as id, c.authorId as authorId, c.content as content from Comment c where c.postId = :postId order by c.id")
+  List<CommentSummary> findSummariesByPostId(@Param("postId") Long postId);
+
+  // keyset page of one post's comments
+  @Transactional(readOnly = true)
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+  @Query("select c.id as id, c.authorId as authorId, c.content as content from Comment c"
+      + " where c.postId = :postId and c.id > :afterId order by c.id")
+  List<CommentSummary> findSummariesByPostIdAfter(@Param("postId") Long postId, @Param("afterId") Long afterId, Limit limit);
+
+  @Transactional(readOnly = true)
+  long countByPostId(Long postId);
+
+  @Transactional(readOnly = true)
+  @Query("select c.postId as postId, count(c) as count from Comment c where c.postId in :postIds group by c.postId")
+  List<PostCommentCount> countByPostIds(@Param("postIds") Collection<Long> postIds);
+
+  // keyset page: rows strictly after the cursor, in id order
+  @Transactional(readOnly = true)
+  List<Comment> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+  // server-side cursor; must be consumed inside a transaction
+  @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+  @Query("select c from Comment c order by c.id")
+  Stream<Comment> streamAll();
 }
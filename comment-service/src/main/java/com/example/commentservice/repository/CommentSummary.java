@@ -0,0 +1,8 @@
+package com.example.commentservice.repository;
+
+/** Columns a per-post comment listing needs; postId is already known to the caller. */
+public interface CommentSummary {
+  Long getId();
+  Long getAuthorId();
+  String getContent();
+}
@@ -0,0 +1,6 @@
+package com.example.commentservice.repository;
+
+public interface PostCommentCount {
+  Long getPostId();
+  long getCount();
+}
@@ -0,0 +1,116 @@
+package com.example.commentservice.search;
+
+import com.example.changeevents.ChangeEvent;
+import com.example.changeevents.LocalChangeEventSubscriber;
+import com.example.commentservice.model.Comment;
+import com.example.commentservice.repository.CommentRepository;
+import com.example.invertedindex.InvertedIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Full-text index over comment contents. Built from a cursor over the table once the application
+ * is ready, then kept current from the change-event feed: each event re-reads the comment, so
+ * redelivered or reordered events converge on the stored row. Every instance holds its own index and
+ * sees writes made through any of them (see {@link com.example.changeevents.ChangeEventFeed}),
+ * so search results trail writes by up to one feed interval.
+ */
+@Component
+public class CommentSearchIndex implements LocalChangeEventSubscriber {
+  private static final Logger log = LoggerFactory.getLogger(CommentSearchIndex.class);
+
+  private final double compactRatio;
+  private volatile InvertedIndex index;
+  private final CommentRepository repo;
+  private final EntityManager em;
+  private final TransactionTemplate readOnlyTx;
+  private final Timer queries;
+  // a lock rather than synchronized: a virtual thread blocked on JDBC inside synchronized pins its carrier
+  private final Lock lock = new ReentrantLock();
+
+  public CommentSearchIndex(CommentRepository repo, EntityManager em, PlatformTransactionManager txManager, MeterRegistry registry,
+                            @Value("${search.compact-ratio:0.2}") double compactRatio) {
+    this.compactRatio = compactRatio;
+    this.index = new InvertedIndex(compactRatio);
+    this.repo = repo;
+    this.em = em;
+    this.readOnlyTx = new TransactionTemplate(txManager);
+    this.readOnlyTx.setReadOnly(true);
+    this.queries = registry.timer("search.queries", "index", "comments");
+    registry.gauge("search.index.documents", Tags.of("index", "comments"), this, s -> s.index.size());
+    registry.gauge("search.index.terms", Tags.of("index", "comments"), this, s -> s.index.termCount());
+    registry.gauge("search.index.postings.bytes", Tags.of("index", "comments"), this, s -> s.index.postingsBytes());
+  }
+
+  /**
+   * Scans into a new index and swaps it in, so searches keep answering from the old one meanwhile. Holds
+   * the lock for the whole scan so events dispatched meanwhile are applied on top of it, not under it.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    lock.lock();
+    try {
+      long start = System.nanoTime();
+      InvertedIndex rebuilt = new InvertedIndex(compactRatio);
+      readOnlyTx.executeWithoutResult(status -> {
+        try (Stream<Comment> rows = repo.streamAll()) {
+          rows.forEach(c -> {
+            rebuilt.put(c.getId(), c.getContent());
+            em.detach(c);
+          });
+        }
+      });
+      index = rebuilt;
+      log.info("Indexed {} comments for search in {} ms", index.size(), (System.nanoTime() - start) / 1_000_000);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void resync() {
+    rebuild();
+  }
+
+  @Override
+  public void onEvents(List<ChangeEvent> events) {
+    lock.lock();
+    try {
+      Set<Long> ids = events.stream().filter(e -> "comment".equals(e.getAggregateType()))
+          .map(ChangeEvent::getAggregateId).collect(Collectors.toCollection(LinkedHashSet::new));
+      if (ids.isEmpty()) return;
+      Map<Long, Comment> current = repo.findAllById(ids).stream().collect(Collectors.toMap(Comment::getId, Function.identity()));
+      for (Long id : ids) {
+        Comment comment = current.get(id);
+        if (comment == null) index.remove(id);
+        else index.put(id, comment.getContent());
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public InvertedIndex.Hits search(String query, int offset, int limit) {
+    return queries.record(() -> index.search(query, offset, limit));
+  }
+}
@@ -0,0 +1,103 @@
+package com.example.commentservice.service;
+
+import com.example.commentservice.client.CachingPostClient;
+import com.example.commentservice.repository.CommentRepository;
+import com.example.commentservice.repository.CommentSummary;
+import com.example.userclient.BatchingUserClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the {@code /comments/post/{postId}} document by running the local comment query and the
+ * remote post fetch side by side, then resolving all distinct comment authors in one bulk call.
+ * Each remote dependency has its own timeout budget and degrades to an error marker instead of
+ * failing the whole response.
+ */
+@Component
+public class CommentAggregator {
+  private static final Logger log = LoggerFactory.getLogger(CommentAggregator.class);
+
+  private final CommentRepository repo;
+  private final CachingPostClient postClient;
+  private final BatchingUserClient userClient;
+  private final AsyncTaskExecutor executor;
+  private final long commentsTimeoutMillis;
+  private final long postTimeoutMillis;
+  private final long authorsTimeoutMillis;
+
+  public CommentAggregator(CommentRepository repo, CachingPostClient postClient, BatchingUserClient userClient,
+                           @Qualifier("applicationTaskExecutor") AsyncTaskExecutor executor,
+                           @Value("${comments.aggregation.comments-timeout-ms:2000}") long commentsTimeoutMillis,
+                           @Value("${comments.aggregation.post-timeout-ms:1000}") long postTimeoutMillis,
+                           @Value("${comments.aggregation.authors-timeout-ms:1000}") long authorsTimeoutMillis) {
+    this.repo = repo; this.postClient = postClient; this.userClient = userClient; this.executor = executor;
+    this.commentsTimeoutMillis = commentsTimeoutMillis;
+    this.postTimeoutMillis = postTimeoutMillis;
+    this.authorsTimeoutMillis = authorsTimeoutMillis;
+  }
+
+  /**
+   * @throws TimeoutException if the local comment query does not finish within its budget
+   */
+  public Map<String, Object> byPost(Long postId) throws TimeoutException {
+    CompletableFuture<List<CommentSummary>> comments = CompletableFuture.supplyAsync(() -> repo.findSummariesByPostId(postId), executor);
+
+    CompletableFuture<Object> post = CompletableFuture.supplyAsync(() -> postClient.getPostById(postId), executor)
+        .completeOnTimeout(Map.of("error", "timed out fetching post"), postTimeoutMillis, TimeUnit.MILLISECONDS)
+        .exceptionally(e -> {
+          log.warn("Unable to fetch post {}: {}", postId, e.toString());
+          return Map.of("error", "unable to fetch post");
+        });
+
+    // the authors budget starts once the comments are in, not when the request does
+    CompletableFuture<Map<Long, Object>> authors = comments
+        .thenCompose(cs -> CompletableFuture.supplyAsync(() -> userClient.getUsersByIds(
+                cs.stream().map(CommentSummary::getAuthorId).filter(id -> id != null).collect(Collectors.toSet())), executor)
+            .completeOnTimeout(Map.of(), authorsTimeoutMillis, TimeUnit.MILLISECONDS))
+        .exceptionally(e -> {
+          log.warn("Unable to resolve comment authors for post {}: {}", postId, e.toString());
+          return Map.of();
+        });
+
+    List<CommentSummary> found = join(comments, commentsTimeoutMillis);
+    Map<Long, Object> users = join(authors, commentsTimeoutMillis + authorsTimeoutMillis);
+
+    List<Map<String, Object>> inlined = new ArrayList<>(found.size());
+    for (CommentSummary c : found) {
+      Map<String, Object> row = new LinkedHashMap<>();
+      row.put("id", c.getId());
+      row.put("postId", postId);
+      row.put("authorId", c.getAuthorId());
+      row.put("content", c.getContent());
+      Object author = users.get(c.getAuthorId());
+      row.put("author", author != null ? author : Map.of("error", "unable to fetch user"));
+      inlined.add(row);
+    }
+    return Map.of("post", join(post, postTimeoutMillis), "comments", inlined);
+  }
+
+  private static <T> T join(CompletableFuture<T> future, long timeoutMillis) throws TimeoutException {
+    try {
+      return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -1,4 +1,5 @@
-INSERT INTO comments (post_id, author_id, content) VALUES
-                                                       (1, 2, 'Nice post, Alice!'),
-                                                       (1, 3, 'Great explanation.'),
-                                                       (2, 3, 'Interesting follow-up.');
+INSERT INTO comments (id, post_id, author_id, content, version) VALUES
+                                                       (1, 1, 2, 'Nice post, Alice!', 0),
+                                                       (2, 1, 3, 'Great explanation.', 0),
+                                                       (3, 2, 3, 'Interesting follow-up.', 0)
+ON CONFLICT (id) DO NOTHING;
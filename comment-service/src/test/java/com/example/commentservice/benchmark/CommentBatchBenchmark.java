@@ -0,0 +1,79 @@
+package com.example.commentservice.benchmark;
+
+import com.example.batchwrites.BatchRowResult;
+import com.example.changeevents.ChangeEventRepository;
+import com.example.commentservice.CommentServiceApplication;
+import com.example.commentservice.controller.CommentController;
+import com.example.commentservice.model.Comment;
+import com.example.commentservice.repository.CommentRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Comments through {@code POST /comments/batch} versus one {@code POST /comments} call per row, against the
+ * in-memory test database. Both paths go through the controller, so each row also records a change event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CommentBatchBenchmark {
+
+    @Param({"1000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private CommentController controller;
+    private CommentRepository repo;
+    private ChangeEventRepository changeEvents;
+    private byte[] ndjson;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(CommentServiceApplication.class)
+                .profiles("test")
+                .properties("server.port=0", "spring.jpa.show-sql=false", "logging.level.root=WARN")
+                .run();
+        controller = context.getBean(CommentController.class);
+        repo = context.getBean(CommentRepository.class);
+        changeEvents = context.getBean(ChangeEventRepository.class);
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            body.append("{\"postId\":1,\"authorId\":1,\"content\":\"Comment " + i + "\"}").append('\n');
+        }
+        ndjson = body.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() {
+        repo.deleteAllInBatch();
+        changeEvents.deleteAllInBatch();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public int singleRow() {
+        for (int i = 0; i < rows; i++) {
+            controller.create(new Comment(null, 1L, 1L, "Comment " + i));
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public List<BatchRowResult> batch() throws IOException {
+        return controller.batch(new ByteArrayInputStream(ndjson));
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static io.restassured.RestAssured.*;
@@ -32,12 +33,18 @@ class CommentControllerIT {
     @Autowired
     private CommentRepository repo;
 
+    @Autowired
+    private org.springframework.jdbc.core.JdbcTemplate jdbc;
+
+    @Autowired
+    private com.example.changeevents.ChangeEventFeed feed;
+
     // Mock external Feign clients (PostClient and UserClient)
     @MockitoBean
     private com.example.commentservice.client.PostClient postClient;
 
     @MockitoBean
-    private com.example.commentservice.client.UserClient userClient;
+    private com.example.userclient.UserClient userClient;
 
     @BeforeEach
     void setup() {
@@ -143,4 +150,319 @@ class CommentControllerIT {
                 .body("post.id", equalTo(100))
                 .body("post.title", equalTo("Mock Post"));
     }
+
+    @Test
+    @Order(7)
+    void getAllComments_shouldPageWithKeysetCursor() {
+        repo.saveAll(List.of(
+                new Comment(null, 1L, 1L, "C1"),
+                new Comment(null, 1L, 1L, "C2"),
+                new Comment(null, 1L, 1L, "C3")
+        ));
+
+        String cursor = given()
+                .queryParam("limit", 2)
+                .when()
+                .get("/comments")
+                .then()
+                .statusCode(200)
+                .body("size()", is(2))
+                .body("[1].content", equalTo("C2"))
+                .header("X-Next-Cursor", notNullValue())
+                .extract().header("X-Next-Cursor");
+
+        given()
+                .queryParam("afterId", cursor)
+                .queryParam("limit", 2)
+                .when()
+                .get("/comments")
+                .then()
+                .statusCode(200)
+                .body("size()", is(1))
+                .body("[0].content", equalTo("C3"))
+                .header("X-Next-Cursor", nullValue());
+    }
+
+    @Test
+    @Order(8)
+    void streamComments_shouldWriteOneJsonObjectPerLine() {
+        repo.saveAll(List.of(
+                new Comment(null, 1L, 1L, "First comment"),
+                new Comment(null, 2L, 1L, "Second comment")
+        ));
+
+        String body = when()
+                .get("/comments/stream")
+                .then()
+                .statusCode(200)
+                .contentType("application/x-ndjson")
+                .extract().asString();
+
+        String[] lines = body.split("\n");
+        Assertions.assertEquals(2, lines.length);
+        Assertions.assertTrue(lines[0].contains("\"content\":\"First comment\""));
+    }
+
+    @Test
+    @Order(9)
+    void getCommentsByPost_shouldInlineAuthorsFromOneBulkLookup() {
+        repo.saveAll(List.of(
+                new Comment(null, 200L, 1L, "From one"),
+                new Comment(null, 200L, 2L, "From two"),
+                new Comment(null, 200L, 1L, "One again")
+        ));
+
+        when(postClient.getPostById(200L))
+                .thenReturn(new java.util.HashMap<>(java.util.Map.of("id", 200L, "title", "Mock Post")));
+        when(userClient.getUsersByIds(anyCollection())).thenReturn(List.of(
+                java.util.Map.of("id", 1L, "name", "User One"),
+                java.util.Map.of("id", 2L, "name", "User Two")
+        ));
+
+        when()
+                .get("/comments/post/{postId}", 200L)
+                .then()
+                .statusCode(200)
+                .body("post.title", equalTo("Mock Post"))
+                .body("comments.size()", is(3))
+                .body("comments.author.name", contains("User One", "User Two", "User One"));
+
+        verify(userClient, times(1)).getUsersByIds(anyCollection());
+        verify(userClient, never()).getUserById(anyLong());
+    }
+
+    @Test
+    @Order(10)
+    void getCommentsByPost_shouldKeepCommentsWhenPostServiceIsSlow() {
+        repo.save(new Comment(null, 300L, 1L, "Still here"));
+
+        when(postClient.getPostById(300L)).thenAnswer(inv -> {
+            Thread.sleep(1000);
+            return java.util.Map.of("id", 300L);
+        });
+
+        when()
+                .get("/comments/post/{postId}", 300L)
+                .then()
+                .statusCode(200)
+                .body("post.error", notNullValue())
+                .body("comments.size()", is(1))
+                .body("comments[0].content", equalTo("Still here"));
+    }
+
+    @Test
+    @Order(11)
+    void countCommentsByPost_shouldReturnCountOnly() {
+        repo.saveAll(List.of(
+                new Comment(null, 400L, 1L, "One"),
+                new Comment(null, 400L, 2L, "Two"),
+                new Comment(null, 401L, 1L, "Other post")
+        ));
+
+        when()
+                .get("/comments/post/{postId}/count", 400L)
+                .then()
+                .statusCode(200)
+                .body("postId", equalTo(400))
+                .body("count", equalTo(2))
+                .body("$", not(hasKey("comments")));
+
+        given()
+                .queryParam("postIds", "400,401,402")
+                .when()
+                .get("/comments/counts")
+                .then()
+                .statusCode(200)
+                .body("400", equalTo(2))
+                .body("401", equalTo(1))
+                .body("402", equalTo(0));
+    }
+
+    @Test
+    @Order(12)
+    void commentsTable_shouldBeIndexedOnPostAndAuthor() {
+        List<String> indexes = jdbc.queryForList(
+                "select index_name from information_schema.indexes where table_name = 'COMMENTS'", String.class);
+
+        Assertions.assertTrue(indexes.contains("IDX_COMMENTS_POST_ID"), indexes::toString);
+        Assertions.assertTrue(indexes.contains("IDX_COMMENTS_AUTHOR_ID"), indexes::toString);
+    }
+
+    @Test
+    @Order(13)
+    void getCommentsByPost_shouldServeRepeatPostLookupsFromNearCacheUntilEvicted() {
+        repo.save(new Comment(null, 500L, 1L, "Cached"));
+        when(postClient.getPostById(500L))
+                .thenReturn(new java.util.HashMap<>(java.util.Map.of("id", 500L, "title", "Mock Post")));
+
+        when().get("/comments/post/{postId}", 500L).then().statusCode(200).body("post.title", equalTo("Mock Post"));
+        when().get("/comments/post/{postId}", 500L).then().statusCode(200).body("post.title", equalTo("Mock Post"));
+        verify(postClient, times(1)).getPostById(500L);
+
+        when().delete("/internal/cache/posts/{id}", 500L).then().statusCode(204);
+
+        when().get("/comments/post/{postId}", 500L).then().statusCode(200);
+        verify(postClient, times(2)).getPostById(500L);
+    }
+
+    @Test
+    @Order(14)
+    void postChangeEvent_shouldEvictPostFromNearCache() {
+        repo.save(new Comment(null, 600L, 1L, "Cached"));
+        when(postClient.getPostById(600L))
+                .thenReturn(new java.util.HashMap<>(java.util.Map.of("id", 600L, "title", "Mock Post")));
+
+        when().get("/comments/post/{postId}", 600L).then().statusCode(200);
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(List.of(java.util.Map.of("id", 1, "aggregateType", "post", "aggregateId", 600, "type", "UPDATED")))
+                .when()
+                .post("/internal/events")
+                .then()
+                .statusCode(204);
+
+        when().get("/comments/post/{postId}", 600L).then().statusCode(200);
+        verify(postClient, times(2)).getPostById(600L);
+    }
+
+    @Test
+    @Order(15)
+    void batch_shouldCreateCommentsFromNdjson() {
+        String body = "{\"postId\":700,\"authorId\":1,\"content\":\"First\"}\n"
+                + "{\"postId\":700,\"authorId\":2,\"content\":\"Second\"}\n";
+
+        given()
+                .contentType("application/x-ndjson")
+                .body(body.getBytes(StandardCharsets.UTF_8))
+                .when()
+                .post("/comments/batch")
+                .then()
+                .statusCode(200)
+                .body("status", contains("CREATED", "CREATED"))
+                .body("id", everyItem(notNullValue()));
+
+        Assertions.assertEquals(2, repo.countByPostId(700L));
+    }
+
+    @Test
+    @Order(16)
+    void conditionalRequests_shouldUseVersionAsETag() {
+        Comment saved = repo.save(new Comment(null, 800L, 1L, "Versioned"));
+
+        String etag = when()
+                .get("/comments/{id}", saved.getId())
+                .then()
+                .statusCode(200)
+                .header("ETag", equalTo("\"0\""))
+                .extract().header("ETag");
+
+        given()
+                .header("If-None-Match", etag)
+                .when()
+                .get("/comments/{id}", saved.getId())
+                .then()
+                .statusCode(304);
+
+        String next = given()
+                .contentType(ContentType.JSON)
+                .header("If-Match", etag)
+                .body(new Comment(null, 800L, 1L, "Edited"))
+                .when()
+                .put("/comments/{id}", saved.getId())
+                .then()
+                .statusCode(200)
+                .header("ETag", equalTo("\"1\""))
+                .extract().header("ETag");
+
+        given()
+                .contentType(ContentType.JSON)
+                .header("If-Match", etag)
+                .body(new Comment(null, 800L, 1L, "Edited"))
+                .when()
+                .put("/comments/{id}", saved.getId())
+                .then()
+                .statusCode(412)
+                .header("ETag", equalTo(next));
+    }
+
+    @Test
+    @Order(17)
+    void listByPost_shouldReturnCommentsWithoutCallingOtherServices() {
+        repo.saveAll(List.of(
+                new Comment(null, 900L, 1L, "First"),
+                new Comment(null, 900L, 2L, "Second"),
+                new Comment(null, 901L, 3L, "Elsewhere")));
+
+        given()
+                .queryParam("postId", 900L)
+                .when()
+                .get("/comments")
+                .then()
+                .statusCode(200)
+                .body("size()", is(2))
+                .body("content", contains("First", "Second"))
+                .body("authorId", contains(1, 2));
+
+        verifyNoInteractions(postClient, userClient);
+    }
+
+    @Test
+    @Order(17)
+    void listByPost_shouldPageByKeyset() {
+        repo.saveAll(List.of(
+                new Comment(null, 910L, 1L, "One"),
+                new Comment(null, 910L, 1L, "Two"),
+                new Comment(null, 910L, 1L, "Three")));
+
+        String cursor = given()
+                .queryParam("postId", 910L)
+                .queryParam("limit", 2)
+                .when()
+                .get("/comments")
+                .then()
+                .statusCode(200)
+                .body("content", contains("One", "Two"))
+                .header("X-Next-Cursor", notNullValue())
+                .extract().header("X-Next-Cursor");
+
+        given()
+                .queryParam("postId", 910L)
+                .queryParam("afterId", cursor)
+                .queryParam("limit", 2)
+                .when()
+                .get("/comments")
+                .then()
+                .statusCode(200)
+                .body("content", equalTo(List.of("Three")))
+                .header("X-Next-Cursor", nullValue());
+    }
+
+    @Test
+    @Order(18)
+    void search_shouldRankByBm25AndFollowWrites() {
+        int both = given().contentType(ContentType.JSON).body(new Comment(null, 1L, 1L, "Axolotl, what an axolotl"))
+                .when().post("/comments").then().statusCode(200).extract().path("id");
+        int once = given().contentType(ContentType.JSON).body(new Comment(null, 1L, 1L, "Is that an axolotl in the long grass by the pond"))
+                .when().post("/comments").then().statusCode(200).extract().path("id");
+        feed.poll();
+
+        given()
+                .queryParam("q", "AXOLOTL")
+                .when()
+                .get("/comments/search")
+                .then()
+                .statusCode(200)
+                .body("total", is(2))
+                .body("results.comment.id", contains(both, once));
+
+        when().delete("/comments/{id}", both).then().statusCode(204);
+        feed.poll();
+
+        given().queryParam("q", "axolotl").when().get("/comments/search").then()
+                .statusCode(200)
+                .body("total", is(1))
+                .body("results.comment.id", contains(once));
+        given().queryParam("q", "").when().get("/comments/search").then().statusCode(400);
+    }
 }
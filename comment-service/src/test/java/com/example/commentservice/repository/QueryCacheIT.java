@@ -0,0 +1,111 @@
+package com.example.commentservice.repository;
+
+import com.example.commentservice.model.Comment;
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import static io.restassured.RestAssured.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * A post's comments are served from the query cache until a comment is created, updated or deleted
+ * through the API, after which the next read sees the change.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class QueryCacheIT {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private CommentRepository repo;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setup() {
+        RestAssured.baseURI = "http://localhost";
+        RestAssured.port = port;
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    @Order(1)
+    void repeatedReads_shouldNotReachTheDatabase() {
+        repo.save(new Comment(null, 100L, 1L, "First"));
+        repo.save(new Comment(null, 100L, 2L, "Second"));
+        when().get("/comments?postId=100").then().statusCode(200).body("content", contains("First", "Second"));
+
+        long statements = statistics.getPrepareStatementCount();
+        long hits = statistics.getQueryCacheHitCount();
+        for (int i = 0; i < 10; i++) {
+            when().get("/comments?postId=100").then().statusCode(200).body("content", contains("First", "Second"));
+        }
+
+        Assertions.assertEquals(statements, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(hits + 10, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    @Order(2)
+    void create_shouldInvalidateCachedResults() {
+        when().get("/comments?postId=200").then().statusCode(200).body("$", empty());
+
+        given().contentType(ContentType.JSON)
+                .body(new Comment(null, 200L, 1L, "New"))
+                .post("/comments").then().statusCode(200);
+
+        when().get("/comments?postId=200").then().statusCode(200).body("content", contains("New"));
+    }
+
+    @Test
+    @Order(3)
+    void update_shouldInvalidateCachedResults() {
+        long id = repo.save(new Comment(null, 300L, 1L, "Before")).getId();
+        when().get("/comments?postId=300").then().body("content", contains("Before"));
+
+        given().contentType(ContentType.JSON)
+                .body(new Comment(null, 300L, 1L, "After"))
+                .put("/comments/" + id).then().statusCode(200);
+
+        when().get("/comments?postId=300").then().body("content", contains("After"));
+        when().get("/comments/" + id).then().body("content", equalTo("After"));
+    }
+
+    @Test
+    @Order(4)
+    void delete_shouldInvalidateCachedResults() {
+        long id = repo.save(new Comment(null, 400L, 1L, "Doomed")).getId();
+        when().get("/comments?postId=400").then().body("content", contains("Doomed"));
+        when().get("/comments/" + id).then().statusCode(200);
+
+        when().delete("/comments/" + id).then().statusCode(204);
+
+        when().get("/comments?postId=400").then().body("$", empty());
+        when().get("/comments/" + id).then().statusCode(404);
+    }
+
+    @Test
+    @Order(5)
+    void findByPostId_shouldLoadCachedIdsFromTheEntityCache() {
+        repo.save(new Comment(null, 500L, 1L, "Cached"));
+        Assertions.assertEquals(1, repo.findByPostId(500L).size());
+
+        long statements = statistics.getPrepareStatementCount();
+        Assertions.assertEquals("Cached", repo.findByPostId(500L).get(0).getContent());
+        Assertions.assertEquals(statements, statistics.getPrepareStatementCount());
+    }
+}
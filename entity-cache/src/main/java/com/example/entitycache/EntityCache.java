@@ -0,0 +1,101 @@
+package com.example.entitycache;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Hibernate's second-level cache for the entity regions named in {@code entity-cache.regions} (the
+ * {@code region} of each {@code @Cache} entity) and its query cache, held in Caffeine through JCache.
+ * Hibernate keeps both in step with writes made through JPA: an update or delete replaces or drops the
+ * entry when it commits, and any write to a table invalidates the cached query results that read it.
+ * Entity and query regions hold at most {@code entity-cache.maximum-size} entries for {@code entity-cache.ttl};
+ * the update timestamps region, one entry per table, is never evicted, since query results are only
+ * checked against what it still holds. Regions missing here fail startup rather than go unbounded.
+ * <p>
+ * The cache is per JVM and only sees writes made through it: an entry cached here stays as it was when
+ * another instance changes the row, and is served that way until the TTL expires, so the TTL is the
+ * bound on cross-instance staleness and is kept short. With read replicas on, rows read from a replica
+ * are never cached (readreplicas.ReplicaCacheMode).
+ * <p>
+ * Hits, misses and puts per region are published as {@code hibernate.second.level.cache.*} and
+ * {@code hibernate.query.cache.*}, and the hit ratio as {@code hibernate.second.level.cache.hit.ratio{region}}.
+ * Auto-configured in every module that depends on this one; off when an R2DBC connection factory is
+ * present, since R2DBC writes would go around it.
+ */
+@AutoConfiguration(after = R2dbcAutoConfiguration.class, before = HibernateJpaAutoConfiguration.class)
+@ConditionalOnProperty("entity-cache.regions")
+@ConditionalOnMissingBean(type = "io.r2dbc.spi.ConnectionFactory")
+public class EntityCache {
+
+  /** One manager per application context, so contexts sharing a JVM never share entries. */
+  @Bean
+  CacheManager entityCacheManager(@Value("${entity-cache.regions}") List<String> regions,
+                                  @Value("${entity-cache.maximum-size:10000}") long maximumSize,
+                                  @Value("${entity-cache.ttl:1m}") Duration ttl) {
+    CacheManager manager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+        .getCacheManager(URI.create("urn:entity-cache:" + UUID.randomUUID()), getClass().getClassLoader());
+    for (String region : bounded(regions)) {
+      manager.createCache(region, new CaffeineConfiguration<>()
+          .setMaximumSize(OptionalLong.of(maximumSize))
+          .setExpireAfterWrite(OptionalLong.of(ttl.toNanos())));
+    }
+    manager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, new CaffeineConfiguration<>());
+    return manager;
+  }
+
+  @Bean
+  HibernatePropertiesCustomizer entityCacheCustomizer(CacheManager entityCacheManager) {
+    return properties -> properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+  }
+
+  @Bean
+  MeterBinder entityCacheHitRatio(EntityManagerFactory entityManagerFactory,
+                                  @Value("${entity-cache.regions}") List<String> regions) {
+    return registry -> {
+      Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+      for (String region : bounded(regions)) {
+        Gauge.builder("hibernate.second.level.cache.hit.ratio", statistics, s -> hitRatio(s.getCacheRegionStatistics(region)))
+            .tag("region", region)
+            .register(registry);
+      }
+    };
+  }
+
+  /** The entity regions plus the query results region, all held to the same size and TTL. */
+  private static List<String> bounded(List<String> regions) {
+    List<String> bounded = new ArrayList<>(regions);
+    bounded.add(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+    return bounded;
+  }
+
+  private static double hitRatio(CacheRegionStatistics region) {
+    if (region == null) return Double.NaN;
+    long lookups = region.getHitCount() + region.getMissCount();
+    return lookups == 0 ? Double.NaN : (double) region.getHitCount() / lookups;
+  }
+}
@@ -0,0 +1,19 @@
+package com.example.etags;
+
+/** Strong ETags derived from an entity's {@code @Version}. */
+public final class ETags {
+  private ETags() {}
+
+  public static String of(Long version) { return "\"" + (version == null ? 0 : version) + "\""; }
+
+  /** {@code If-Match} holds when absent, {@code *}, or listing the current tag; weak tags never match. */
+  public static boolean ifMatch(String header, Long version) {
+    if (header == null) return true;
+    String current = of(version);
+    for (String tag : header.split(",")) {
+      String t = tag.trim();
+      if (t.equals("*") || t.equals(current)) return true;
+    }
+    return false;
+  }
+}
@@ -0,0 +1,401 @@
+package com.example.invertedindex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory full-text index ranked with BM25. Each term's postings are one byte array of
+ * varint-encoded (doc delta, term frequency) pairs, so a posting typically costs two or three bytes.
+ * <p>
+ * Documents get internal numbers in insertion order, which keeps postings append-only: an update
+ * tombstones the old number and appends the document under a new one. Queries skip tombstones, and
+ * once they make up {@code compactRatio} of the index the postings are rewritten without them.
+ * Until then document frequencies still count tombstoned postings, which only nudges the idf.
+ * <p>
+ * Thread-safe: queries share a read lock, writes take the write lock.
+ */
+public class InvertedIndex {
+  static final int MAX_TERM_LENGTH = 64;
+  private static final float K1 = 1.2f;
+  private static final float B = 0.75f;
+  private static final int MIN_TOMBSTONES_TO_COMPACT = 1024;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<String, Postings> terms = new HashMap<>();
+  private final LongIntMap docsById = new LongIntMap();
+  private final BitSet tombstones = new BitSet();
+  private final double compactRatio;
+  private long[] ids = new long[1024];
+  private int[] lengths = new int[1024];
+  private int nextDoc;
+  private int live;
+  private int dead;
+  private long totalLength;
+  private long postingsBytes;
+
+  public InvertedIndex(double compactRatio) { this.compactRatio = compactRatio; }
+
+  /** Adds the document, replacing any earlier version indexed under the same id. */
+  public void put(long id, String text) {
+    Map<String, Integer> frequencies = new HashMap<>();
+    List<String> tokens = tokenize(text);
+    for (String token : tokens) frequencies.merge(token, 1, Integer::sum);
+
+    lock.writeLock().lock();
+    try {
+      removeLocked(id);
+      int doc = nextDoc++;
+      if (doc == ids.length) {
+        ids = Arrays.copyOf(ids, doc * 2);
+        lengths = Arrays.copyOf(lengths, doc * 2);
+      }
+      ids[doc] = id;
+      lengths[doc] = tokens.size();
+      docsById.put(id, doc);
+      live++;
+      totalLength += tokens.size();
+      for (Map.Entry<String, Integer> e : frequencies.entrySet()) {
+        Postings postings = terms.computeIfAbsent(e.getKey(), t -> new Postings());
+        postingsBytes += postings.add(doc, e.getValue());
+      }
+      compactIfNeeded();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public boolean remove(long id) {
+    lock.writeLock().lock();
+    try {
+      boolean removed = removeLocked(id);
+      compactIfNeeded();
+      return removed;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Ranks every live document containing at least one query term and returns the
+   * {@code limit} best from {@code offset}, best first; ties go to the older document.
+   */
+  public Hits search(String query, int offset, int limit) {
+    Set<String> queryTerms = new LinkedHashSet<>(tokenize(query));
+    lock.readLock().lock();
+    try {
+      if (live == 0) return Hits.EMPTY;
+      double avgLength = (double) totalLength / live;
+      List<Cursor> cursors = new ArrayList<>();
+      for (String term : queryTerms) {
+        Postings postings = terms.get(term);
+        if (postings == null) continue;
+        double idf = Math.log(1 + (live - postings.docFreq + 0.5) / (postings.docFreq + 0.5));
+        Cursor cursor = new Cursor(postings, (float) idf);
+        cursor.next();
+        cursors.add(cursor);
+      }
+      if (cursors.isEmpty()) return Hits.EMPTY;
+
+      // document-at-a-time: walk all postings lists in doc order, keeping the top offset+limit in a min-heap
+      int keep = offset + limit;
+      PriorityQueue<Hit> top = new PriorityQueue<>(Math.min(keep, 1024) + 1, Hit.WORST_FIRST);
+      int total = 0;
+      while (true) {
+        int doc = Integer.MAX_VALUE;
+        for (Cursor c : cursors) doc = Math.min(doc, c.doc);
+        if (doc == Integer.MAX_VALUE) break;
+
+        float norm = (float) (K1 * (1 - B + B * lengths[doc] / avgLength));
+        float score = 0;
+        for (Cursor c : cursors) {
+          if (c.doc != doc) continue;
+          score += c.idf * c.tf * (K1 + 1) / (c.tf + norm);
+          c.next();
+        }
+        if (tombstones.get(doc)) continue;
+        total++;
+        if (top.size() < keep) {
+          top.add(new Hit(doc, score));
+        } else if (keep > 0 && score > top.peek().score) {
+          top.poll();
+          top.add(new Hit(doc, score));
+        }
+      }
+
+      // heap entries carry doc numbers; translate to ids on the way out
+      List<Hit> ranked = new ArrayList<>(top.size());
+      while (!top.isEmpty()) {
+        Hit hit = top.poll();
+        ranked.add(new Hit(ids[(int) hit.id], hit.score));
+      }
+      Collections.reverse(ranked);
+      return new Hits(total, offset >= ranked.size() ? Collections.<Hit>emptyList() : ranked.subList(offset, ranked.size()));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try { return live; } finally { lock.readLock().unlock(); }
+  }
+
+  public int termCount() {
+    lock.readLock().lock();
+    try { return terms.size(); } finally { lock.readLock().unlock(); }
+  }
+
+  /** Bytes allocated for postings, including the unused tail of each growing list. */
+  public long postingsBytes() {
+    lock.readLock().lock();
+    try { return postingsBytes; } finally { lock.readLock().unlock(); }
+  }
+
+  /** Lower-cased runs of letters and digits; runs longer than {@value #MAX_TERM_LENGTH} are dropped. */
+  static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<>();
+    if (text == null) return tokens;
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+      if (word && start < 0) {
+        start = i;
+      } else if (!word && start >= 0) {
+        if (i - start <= MAX_TERM_LENGTH) tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+        start = -1;
+      }
+    }
+    return tokens;
+  }
+
+  private boolean removeLocked(long id) {
+    int doc = docsById.remove(id);
+    if (doc < 0) return false;
+    tombstones.set(doc);
+    live--;
+    dead++;
+    totalLength -= lengths[doc];
+    return true;
+  }
+
+  private void compactIfNeeded() {
+    if (dead >= MIN_TOMBSTONES_TO_COMPACT && dead >= compactRatio * nextDoc) compact();
+  }
+
+  /** Renumbers live documents densely and rewrites every postings list without tombstones. */
+  private void compact() {
+    int[] renumbered = new int[nextDoc];
+    long[] newIds = new long[Math.max(1024, live * 2)];
+    int[] newLengths = new int[newIds.length];
+    int n = 0;
+    docsById.clear();
+    for (int doc = 0; doc < nextDoc; doc++) {
+      if (tombstones.get(doc)) {
+        renumbered[doc] = -1;
+        continue;
+      }
+      renumbered[doc] = n;
+      newIds[n] = ids[doc];
+      newLengths[n] = lengths[doc];
+      docsById.put(ids[doc], n);
+      n++;
+    }
+
+    postingsBytes = 0;
+    for (Iterator<Map.Entry<String, Postings>> it = terms.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<String, Postings> entry = it.next();
+      Cursor old = new Cursor(entry.getValue(), 0);
+      Postings rewritten = new Postings();
+      while (old.next()) {
+        if (renumbered[old.doc] >= 0) rewritten.add(renumbered[old.doc], old.tf);
+      }
+      if (rewritten.docFreq == 0) {
+        it.remove();
+      } else {
+        rewritten.trim();
+        entry.setValue(rewritten);
+        postingsBytes += rewritten.data.length;
+      }
+    }
+
+    ids = newIds;
+    lengths = newLengths;
+    tombstones.clear();
+    nextDoc = n;
+    dead = 0;
+  }
+
+  public static final class Hits {
+    static final Hits EMPTY = new Hits(0, Collections.<Hit>emptyList());
+
+    private final int total;
+    private final List<Hit> hits;
+
+    Hits(int total, List<Hit> hits) { this.total = total; this.hits = hits; }
+
+    /** Live documents matching at least one term, not just this page. */
+    public int getTotal() { return total; }
+    public List<Hit> getHits() { return hits; }
+  }
+
+  public static final class Hit {
+    static final Comparator<Hit> WORST_FIRST = (a, b) -> a.score != b.score
+        ? Float.compare(a.score, b.score) : Long.compare(b.id, a.id);
+
+    private final long id;
+    private final float score;
+
+    Hit(long id, float score) { this.id = id; this.score = score; }
+
+    public long getId() { return id; }
+    public float getScore() { return score; }
+  }
+
+  /** One term's documents as varint (doc - previous doc, term frequency) pairs, in doc order. */
+  private static final class Postings {
+    byte[] data = new byte[4];
+    int size;
+    int lastDoc = -1;
+    int docFreq;
+
+    /** Returns how many bytes the backing array grew by. */
+    int add(int doc, int frequency) {
+      int before = data.length;
+      if (size + 10 > data.length) data = Arrays.copyOf(data, Math.max(size + 10, data.length * 3 / 2));
+      size = writeVarInt(data, size, doc - lastDoc);
+      size = writeVarInt(data, size, frequency);
+      lastDoc = doc;
+      docFreq++;
+      return data.length - before;
+    }
+
+    void trim() { data = Arrays.copyOf(data, size); }
+
+    private static int writeVarInt(byte[] out, int pos, int value) {
+      while ((value & ~0x7F) != 0) {
+        out[pos++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      out[pos++] = (byte) value;
+      return pos;
+    }
+  }
+
+  private static final class Cursor {
+    final byte[] data;
+    final int size;
+    final float idf;
+    int pos;
+    int doc = -1;
+    int tf;
+
+    Cursor(Postings postings, float idf) { this.data = postings.data; this.size = postings.size; this.idf = idf; }
+
+    boolean next() {
+      if (pos >= size) {
+        doc = Integer.MAX_VALUE;
+        return false;
+      }
+      doc += readVarInt();
+      tf = readVarInt();
+      return true;
+    }
+
+    private int readVarInt() {
+      int value = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = data[pos++];
+        value |= (b & 0x7F) << shift;
+        if (b >= 0) return value;
+      }
+    }
+  }
+
+  /** Open-addressing id to doc number map; avoids a boxed entry per document. Absent keys map to -1. */
+  static final class LongIntMap {
+    private long[] keys = new long[16];
+    private int[] values = emptyValues(16);
+    private int size;
+
+    int get(long key) {
+      int mask = keys.length - 1;
+      int i = slot(key, mask);
+      while (values[i] >= 0 && keys[i] != key) i = (i + 1) & mask;
+      return values[i];
+    }
+
+    int size() { return size; }
+
+    void put(long key, int value) {
+      if ((size + 1) * 4 > keys.length * 3) resize(keys.length * 2);
+      int mask = keys.length - 1;
+      int i = slot(key, mask);
+      while (values[i] >= 0 && keys[i] != key) i = (i + 1) & mask;
+      if (values[i] < 0) size++;
+      keys[i] = key;
+      values[i] = value;
+    }
+
+    int remove(long key) {
+      int mask = keys.length - 1;
+      int i = slot(key, mask);
+      while (values[i] >= 0 && keys[i] != key) i = (i + 1) & mask;
+      int removed = values[i];
+      if (removed < 0) return -1;
+      values[i] = -1;
+      size--;
+      // shift later entries of the same probe run back so lookups never stop at the hole
+      for (int j = (i + 1) & mask; values[j] >= 0; j = (j + 1) & mask) {
+        int home = slot(keys[j], mask);
+        boolean reachable = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+        if (reachable) continue;
+        keys[i] = keys[j];
+        values[i] = values[j];
+        values[j] = -1;
+        i = j;
+      }
+      return removed;
+    }
+
+    void clear() {
+      keys = new long[16];
+      values = emptyValues(16);
+      size = 0;
+    }
+
+    private void resize(int capacity) {
+      long[] oldKeys = keys;
+      int[] oldValues = values;
+      keys = new long[capacity];
+      values = emptyValues(capacity);
+      size = 0;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldValues[i] >= 0) put(oldKeys[i], oldValues[i]);
+      }
+    }
+
+    private static int slot(long key, int mask) {
+      long h = key * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static int[] emptyValues(int capacity) {
+      int[] values = new int[capacity];
+      Arrays.fill(values, -1);
+      return values;
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package com.example.invertedindex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvertedIndexTests {
+
+    @Test
+    void search_shouldRankByBm25AndBreakTiesByAge() {
+        InvertedIndex index = new InvertedIndex(0.2);
+        index.put(1, "kayak");
+        index.put(2, "kayak kayak");
+        index.put(3, "kayak");
+        index.put(4, "canoe");
+
+        InvertedIndex.Hits hits = index.search("Kayak", 0, 10);
+
+        assertEquals(3, hits.getTotal());
+        assertEquals(List.of(2L, 1L, 3L), ids(hits));
+        assertEquals(List.of(3L), ids(index.search("kayak", 2, 10)));
+    }
+
+    @Test
+    void compaction_shouldPreserveRanking() {
+        InvertedIndex index = new InvertedIndex(0.2);
+        for (long id = 1; id <= 3000; id++) index.put(id, text(id, 0));
+        // 512 removals and 512 updates leave the 1024 tombstones compaction waits for
+        for (long id = 1; id <= 512; id++) index.remove(id);
+        long bytesBeforeCompaction = index.postingsBytes();
+        for (long id = 513; id < 1024; id++) index.put(id, text(id, 1));
+        assertTrue(index.postingsBytes() >= bytesBeforeCompaction, "appending only grows the postings");
+        index.put(1024, text(1024, 1));
+
+        // compaction renumbers in doc order, so a fresh index fed in that order must rank identically
+        InvertedIndex fresh = new InvertedIndex(0.2);
+        for (long id = 1025; id <= 3000; id++) fresh.put(id, text(id, 0));
+        for (long id = 513; id <= 1024; id++) fresh.put(id, text(id, 1));
+
+        assertTrue(index.postingsBytes() < bytesBeforeCompaction, "postings were rewritten without tombstones");
+        assertEquals(fresh.size(), index.size());
+        assertEquals(fresh.termCount(), index.termCount());
+        for (String query : List.of("t0", "t3", "t7 t11", "u1 t2", "t5 u4 t13")) {
+            InvertedIndex.Hits expected = fresh.search(query, 0, 50);
+            InvertedIndex.Hits actual = index.search(query, 0, 50);
+            assertEquals(expected.getTotal(), actual.getTotal(), query);
+            assertEquals(ids(expected), ids(actual), query);
+            for (int i = 0; i < expected.getHits().size(); i++) {
+                assertEquals(expected.getHits().get(i).getScore(), actual.getHits().get(i).getScore(), 1e-6, query);
+            }
+        }
+    }
+
+    @Test
+    void docGapsAndFrequenciesOver127_shouldSurviveVarintEncoding() {
+        InvertedIndex index = new InvertedIndex(0.2);
+        index.put(1, "needle");
+        for (long id = 2; id <= 200; id++) index.put(id, "hay");
+        index.put(201, "needle hay");
+        // 16384 and over takes a third byte
+        for (long id = 202; id <= 20_000; id++) index.put(id, "hay");
+        index.put(20_001, String.join(" ", Collections.nCopies(300, "needle")));
+
+        InvertedIndex.Hits hits = index.search("needle", 0, 10);
+
+        assertEquals(3, hits.getTotal());
+        assertEquals(List.of(20_001L, 1L, 201L), ids(hits));
+        assertEquals(19_999, index.search("hay", 0, 1).getTotal());
+    }
+
+    @Test
+    void longIntMap_shouldStayConsistentThroughRemoveAndReinsertChurn() {
+        InvertedIndex.LongIntMap map = new InvertedIndex.LongIntMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(7);
+
+        // a small key space keeps the table dense, so removals regularly land inside probe runs
+        for (int op = 0; op < 200_000; op++) {
+            long key = random.nextInt(512) * 1_048_576L;
+            if (random.nextInt(3) == 0) {
+                Integer removed = expected.remove(key);
+                assertEquals(removed == null ? -1 : removed, map.remove(key));
+            } else {
+                int value = random.nextInt(Integer.MAX_VALUE);
+                expected.put(key, value);
+                map.put(key, value);
+            }
+            if (op % 1000 == 0) {
+                for (long k = 0; k < 512; k++) {
+                    Integer value = expected.get(k * 1_048_576L);
+                    assertEquals(value == null ? -1 : value, map.get(k * 1_048_576L));
+                }
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+    }
+
+    /** Four terms out of twenty per document, so every term appears in removed, updated and untouched ones. */
+    private static String text(long id, int version) {
+        String prefix = version == 0 ? "t" : "u";
+        return prefix + id % 20 + " t" + id * 7 % 20 + " t" + id * 13 % 20 + " " + prefix + id * 3 % 20;
+    }
+
+    private static List<Long> ids(InvertedIndex.Hits hits) {
+        return hits.getHits().stream().map(InvertedIndex.Hit::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.loadbalancing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Service instances listed in a properties file, one line per service:
+ * {@code post-service=http://localhost:8082,http://localhost:9082}. The file is re-read when its
+ * modification time changes (checked at most once a second), so replicas can be added or removed
+ * while the service runs. If the file goes missing or cannot be parsed the last good list is kept.
+ */
+public class InstanceFile {
+  private static final Logger log = LoggerFactory.getLogger(InstanceFile.class);
+  private static final long CHECK_INTERVAL_NANOS = 1_000_000_000L;
+
+  private final Path path;
+  private volatile Map<String, List<ServiceInstance>> instances = Collections.emptyMap();
+  private volatile FileTime loadedVersion;
+  private volatile long checkedAt = System.nanoTime() - CHECK_INTERVAL_NANOS;
+  private volatile String lastError;
+
+  public InstanceFile(Path path) {
+    this.path = path;
+    reloadIfChanged();
+  }
+
+  public List<ServiceInstance> instances(String serviceId) {
+    if (System.nanoTime() - checkedAt >= CHECK_INTERVAL_NANOS) reloadIfChanged();
+    List<ServiceInstance> list = instances.get(serviceId);
+    return list != null ? list : Collections.<ServiceInstance>emptyList();
+  }
+
+  private void reloadIfChanged() {
+    checkedAt = System.nanoTime();
+    try {
+      FileTime modified = Files.getLastModifiedTime(path);
+      if (modified.equals(loadedVersion)) return;
+      Properties props = new Properties();
+      try (Reader reader = Files.newBufferedReader(path)) {
+        props.load(reader);
+      }
+      Map<String, List<ServiceInstance>> parsed = new HashMap<>();
+      for (String serviceId : props.stringPropertyNames()) {
+        List<ServiceInstance> list = new ArrayList<>();
+        for (String uri : props.getProperty(serviceId).split(",")) {
+          if (uri.trim().isEmpty()) continue;
+          URI parsedUri = URI.create(uri.trim());
+          boolean secure = "https".equals(parsedUri.getScheme());
+          int port = parsedUri.getPort() >= 0 ? parsedUri.getPort() : secure ? 443 : 80;
+          list.add(new DefaultServiceInstance(serviceId + '@' + parsedUri.getHost() + ':' + port, serviceId,
+              parsedUri.getHost(), port, secure));
+        }
+        parsed.put(serviceId, Collections.unmodifiableList(list));
+      }
+      instances = parsed;
+      loadedVersion = modified;
+      lastError = null;
+      log.info("Loaded service instances from {}: {}", path, parsed.keySet());
+    } catch (IOException | IllegalArgumentException e) {
+      // checked every second, so only report a new problem
+      if (!e.toString().equals(lastError)) log.warn("Keeping previous service instances, could not read {}: {}", path, e.toString());
+      lastError = e.toString();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package com.example.loadbalancing;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outstanding requests and passive health per service instance, fed by the load balancer lifecycle of
+ * every load-balanced call. An instance that fails {@code consecutive-failures} calls in a row (an I/O
+ * error or a 5xx) is ejected for {@code base-ejection-time}; each further ejection without a success in
+ * between doubles that, up to {@code max-ejection-time}. Once the time is up it takes traffic again and
+ * a single failure puts it straight back out.
+ * <p>
+ * Published as {@code loadbalancer.instance.outstanding{service,instance}} and
+ * {@code loadbalancer.instance.ejections{service,instance}}.
+ */
+public class InstanceHealth implements LoadBalancerLifecycle<RequestDataContext, ResponseData, ServiceInstance> {
+  private static final Logger log = LoggerFactory.getLogger(InstanceHealth.class);
+
+  private final Map<String, Stats> instances = new ConcurrentHashMap<>();
+  private final MeterRegistry registry;
+  private final int consecutiveFailures;
+  private final long baseEjectionNanos;
+  private final long maxEjectionNanos;
+
+  public InstanceHealth(MeterRegistry registry,
+                        @Value("${instances.ejection.consecutive-failures:3}") int consecutiveFailures,
+                        @Value("${instances.ejection.base-ejection-time:10s}") Duration baseEjectionTime,
+                        @Value("${instances.ejection.max-ejection-time:2m}") Duration maxEjectionTime) {
+    this.registry = registry;
+    this.consecutiveFailures = consecutiveFailures;
+    this.baseEjectionNanos = baseEjectionTime.toNanos();
+    this.maxEjectionNanos = maxEjectionTime.toNanos();
+  }
+
+  int outstanding(ServiceInstance instance) {
+    return stats(instance).outstanding.get();
+  }
+
+  boolean isEjected(ServiceInstance instance) {
+    return stats(instance).ejectedUntil - System.nanoTime() > 0;
+  }
+
+  @Override
+  public void onStart(Request<RequestDataContext> request) { }
+
+  @Override
+  public void onStartRequest(Request<RequestDataContext> request, Response<ServiceInstance> lbResponse) {
+    if (lbResponse.hasServer()) stats(lbResponse.getServer()).outstanding.incrementAndGet();
+  }
+
+  @Override
+  public void onComplete(CompletionContext<ResponseData, ServiceInstance, RequestDataContext> context) {
+    Response<ServiceInstance> lbResponse = context.getLoadBalancerResponse();
+    if (lbResponse == null || !lbResponse.hasServer() || context.status() == CompletionContext.Status.DISCARD) return;
+    ServiceInstance instance = lbResponse.getServer();
+    Stats stats = stats(instance);
+    stats.outstanding.decrementAndGet();
+    ResponseData response = context.getClientResponse();
+    boolean failed = context.status() == CompletionContext.Status.FAILED
+        || (response != null && response.getHttpStatus() != null && response.getHttpStatus().is5xxServerError());
+    if (!failed) {
+      stats.failures.set(0);
+      stats.ejections.set(0);
+      return;
+    }
+    long now = System.nanoTime();
+    if (stats.failures.incrementAndGet() >= consecutiveFailures && stats.ejectedUntil - now <= 0) {
+      int ejections = stats.ejections.incrementAndGet();
+      long ejectFor = Math.min(maxEjectionNanos, baseEjectionNanos << Math.min(ejections - 1, 20));
+      stats.ejectedUntil = now + ejectFor;
+      registry.counter("loadbalancer.instance.ejections", "service", instance.getServiceId(), "instance", address(instance)).increment();
+      log.warn("Ejecting {} instance {} for {} ms after {} consecutive failures", instance.getServiceId(),
+          address(instance), ejectFor / 1_000_000, stats.failures.get());
+    }
+  }
+
+  private Stats stats(ServiceInstance instance) {
+    return instances.computeIfAbsent(instance.getServiceId() + '@' + address(instance), key -> {
+      Stats stats = new Stats();
+      Gauge.builder("loadbalancer.instance.outstanding", stats.outstanding, AtomicInteger::get)
+          .tags("service", instance.getServiceId(), "instance", address(instance))
+          .register(registry);
+      return stats;
+    });
+  }
+
+  private static String address(ServiceInstance instance) {
+    return instance.getHost() + ':' + instance.getPort();
+  }
+
+  private static final class Stats {
+    final AtomicInteger outstanding = new AtomicInteger();
+    final AtomicInteger failures = new AtomicInteger();
+    final AtomicInteger ejections = new AtomicInteger();
+    volatile long ejectedUntil = System.nanoTime();
+  }
+}
@@ -0,0 +1,55 @@
+package com.example.loadbalancing;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Power of two choices: picks two instances at random and sends the request to the one with fewer
+ * requests outstanding from this process. Ejected instances are skipped unless every instance is
+ * ejected, in which case all of them are tried rather than failing the call outright.
+ */
+public class LeastOutstandingLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+  private final ObjectProvider<ServiceInstanceListSupplier> suppliers;
+  private final InstanceHealth health;
+
+  public LeastOutstandingLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> suppliers, InstanceHealth health) {
+    this.suppliers = suppliers;
+    this.health = health;
+  }
+
+  @Override
+  public Mono<Response<ServiceInstance>> choose(Request request) {
+    ServiceInstanceListSupplier supplier = suppliers.getIfAvailable(NoopServiceInstanceListSupplier::new);
+    return supplier.get(request).next().map(this::choose);
+  }
+
+  private Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+    if (instances.isEmpty()) return new EmptyResponse();
+    List<ServiceInstance> healthy = new ArrayList<>(instances.size());
+    for (ServiceInstance instance : instances) {
+      if (!health.isEjected(instance)) healthy.add(instance);
+    }
+    List<ServiceInstance> candidates = healthy.isEmpty() ? instances : healthy;
+    if (candidates.size() == 1) return new DefaultResponse(candidates.get(0));
+
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt(candidates.size());
+    int second = random.nextInt(candidates.size() - 1);
+    if (second >= first) second++;
+    ServiceInstance a = candidates.get(first);
+    ServiceInstance b = candidates.get(second);
+    return new DefaultResponse(health.outstanding(b) < health.outstanding(a) ? b : a);
+  }
+}
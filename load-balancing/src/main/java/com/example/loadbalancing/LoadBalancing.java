@@ -0,0 +1,34 @@
+package com.example.loadbalancing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.nio.file.Paths;
+
+/**
+ * Client-side load balancing for calls that name a service instead of a URL: the Feign clients of the
+ * services, and the {@code lb://<service>} routes and post page calls of the gateway. Auto-configured
+ * in every module that depends on this one.
+ * <p>
+ * Instances come from {@code instances.file} when it is set (see {@link InstanceFile}), otherwise from
+ * the discovery client: by default the static list in
+ * {@code spring.cloud.discovery.client.simple.instances.<service>[n].uri}. Each request goes to the
+ * less busy of two random instances that are not ejected (see {@link LeastOutstandingLoadBalancer} and
+ * {@link InstanceHealth}); circuit breakers and bulkheads, where a service has them, stay per service
+ * around all of its instances.
+ */
+@AutoConfiguration
+@Import(InstanceHealth.class)
+@LoadBalancerClients(defaultConfiguration = ServiceLoadBalancerConfiguration.class)
+public class LoadBalancing {
+
+  @Bean
+  @ConditionalOnProperty("instances.file")
+  InstanceFile instanceFile(@Value("${instances.file}") String path) {
+    return new InstanceFile(Paths.get(path));
+  }
+}
@@ -0,0 +1,44 @@
+package com.example.loadbalancing;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Beans for each service's own load balancer context (see {@link LoadBalancing}). Deliberately not a
+ * {@code @Configuration}: component scanning would otherwise pull it into the application context.
+ */
+class ServiceLoadBalancerConfiguration {
+
+  @Bean
+  ReactorLoadBalancer<ServiceInstance> leastOutstandingLoadBalancer(LoadBalancerClientFactory factory, Environment env,
+                                                                    InstanceHealth health) {
+    String serviceId = env.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+    return new LeastOutstandingLoadBalancer(factory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class), health);
+  }
+
+  @Bean
+  @ConditionalOnProperty("instances.file")
+  ServiceInstanceListSupplier instanceFileSupplier(ObjectProvider<InstanceFile> file, Environment env) {
+    String serviceId = env.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+    return new ServiceInstanceListSupplier() {
+      @Override
+      public String getServiceId() {
+        return serviceId;
+      }
+
+      @Override
+      public Flux<List<ServiceInstance>> get() {
+        return Flux.defer(() -> Flux.just(file.getObject().instances(serviceId)));
+      }
+    };
+  }
+}
@@ -0,0 +1,90 @@
+package com.example.pooledhttpclient;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.cloud.openfeign.FeignAutoConfiguration;
+import org.springframework.cloud.openfeign.loadbalancer.FeignLoadBalancerAutoConfiguration;
+import org.springframework.cloud.openfeign.support.FeignHttpClientProperties;
+import org.springframework.context.annotation.Bean;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Connection pool behind every Feign client. With feign-hc5 on the classpath Spring Cloud OpenFeign sends
+ * all clients through one Apache HttpClient 5; this replaces its connection manager with one that keeps
+ * connections alive (reused LIFO, so idle ones age out), asks for gzip responses, and is sized by
+ * {@code spring.cloud.openfeign.httpclient.*}. Per-client connect/read timeouts still apply per request.
+ * <p>
+ * Pool occupancy is published as {@code httpcomponents.httpclient.pool.*{httpclient=feign}} (leased,
+ * available, pending, max) and the time callers wait for a connection as
+ * {@code httpcomponents.httpclient.pool.lease.wait}.
+ * <p>
+ * Auto-configured in every module that depends on this one, ahead of OpenFeign's own connection manager.
+ */
+@AutoConfiguration(before = {FeignAutoConfiguration.class, FeignLoadBalancerAutoConfiguration.class})
+public class PooledHttpClient {
+
+  @Bean
+  PoolingHttpClientConnectionManager feignConnectionManager(FeignHttpClientProperties properties, MeterRegistry registry) {
+    FeignHttpClientProperties.Hc5Properties hc5 = properties.getHc5();
+    MeteredConnectionManager manager = new MeteredConnectionManager(Timer.builder("httpcomponents.httpclient.pool.lease.wait")
+        .description("Time spent waiting for a pooled connection")
+        .tag("httpclient", "feign")
+        .register(registry));
+    manager.setMaxTotal(properties.getMaxConnections());
+    manager.setDefaultMaxPerRoute(properties.getMaxConnectionsPerRoute());
+    manager.setDefaultConnectionConfig(ConnectionConfig.custom()
+        .setTimeToLive(TimeValue.of(properties.getTimeToLive(), properties.getTimeToLiveUnit()))
+        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+        .build());
+    manager.setDefaultSocketConfig(SocketConfig.custom()
+        .setSoTimeout(Timeout.of(hc5.getSocketTimeout(), hc5.getSocketTimeoutUnit()))
+        .setTcpNoDelay(true)
+        .setSoKeepAlive(true)
+        .build());
+    new PoolingHttpClientConnectionManagerMetricsBinder(manager, "feign").bindTo(registry);
+    return manager;
+  }
+
+  /** Times how long each lease waits for a free connection; near zero unless the pool is exhausted. */
+  static class MeteredConnectionManager extends PoolingHttpClientConnectionManager {
+    private final Timer leaseWait;
+
+    MeteredConnectionManager(Timer leaseWait) {
+      this.leaseWait = leaseWait;
+    }
+
+    @Override
+    public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+      LeaseRequest lease = super.lease(id, route, requestTimeout, state);
+      return new LeaseRequest() {
+        @Override
+        public ConnectionEndpoint get(Timeout timeout) throws InterruptedException, ExecutionException, TimeoutException {
+          long start = System.nanoTime();
+          try {
+            return lease.get(timeout);
+          } finally {
+            leaseWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+          }
+        }
+
+        @Override
+        public boolean cancel() {
+          return lease.cancel();
+        }
+      };
+    }
+  }
+}
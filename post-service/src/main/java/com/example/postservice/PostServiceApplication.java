@@ -1,11 +1,22 @@
 package com.example.postservice;
 
+import com.example.changeevents.ChangeEventRepository;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableFeignClients
+@EnableScheduling
+// Post is mapped for both JPA and R2DBC, so keep JPA from claiming the reactive repositories; declaring this
+// replaces Boot's repository scan, so the shared outbox repository is listed too
+@EnableJpaRepositories(basePackageClasses = {PostServiceApplication.class, ChangeEventRepository.class},
+    excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ReactiveCrudRepository.class))
 public class PostServiceApplication {
   public static void main(String[] args) {
     SpringApplication.run(PostServiceApplication.class, args);
@@ -0,0 +1,88 @@
+package com.example.postservice;
+
+import com.example.postservice.model.Post;
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.spi.ConnectionFactory;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.convert.IdGeneratingEntityCallback;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+import org.springframework.data.r2dbc.mapping.R2dbcMappingContext;
+import org.springframework.data.r2dbc.mapping.event.BeforeConvertCallback;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.RestClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * Wiring for the "reactive" profile, which serves {@code /posts} from WebFlux and R2DBC (see
+ * {@code controller.ReactivePostController}). JPA stays up beside it for the outbox dispatcher and
+ * the search index rebuild, which are background jobs and may block.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveStack {
+
+  /** Tomcat is on the classpath for the servlet stack and would otherwise be picked first. */
+  @Bean
+  NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+    return new NettyReactiveWebServerFactory();
+  }
+
+  /** Boot only offers one to servlet apps; the change event dispatcher posts its webhooks off the request path. */
+  @Bean
+  RestClient.Builder restClientBuilder() {
+    return RestClient.builder();
+  }
+
+  /** Boot backs off its JDBC pool once an R2DBC connection factory exists; JPA still needs one, built as Boot would. */
+  @Bean
+  @ConfigurationProperties("spring.datasource")
+  DataSourceProperties dataSourceProperties() {
+    return new DataSourceProperties();
+  }
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  HikariDataSource dataSource(DataSourceProperties properties) {
+    return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+  }
+
+  /**
+   * Likewise for its JPA transaction manager once the R2DBC one exists, so declare it here. It stays
+   * the default for {@code @Transactional}; reactive code names the R2DBC one through a TransactionalOperator.
+   */
+  @Bean
+  @Primary
+  PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory,
+                                                ObjectProvider<TransactionManagerCustomizers> customizers) {
+    JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+    customizers.ifAvailable(c -> c.customize(transactionManager));
+    return transactionManager;
+  }
+
+  /** Takes ids for new rows from the same sequences Hibernate allocates from ({@code @Sequence}). */
+  @Bean
+  IdGeneratingEntityCallback idGeneratingEntityCallback(R2dbcMappingContext mappingContext, ConnectionFactory connectionFactory,
+                                                        DatabaseClient databaseClient) {
+    return new IdGeneratingEntityCallback(mappingContext, DialectResolver.getDialect(connectionFactory), databaseClient);
+  }
+
+  /** New rows start at version 0, as Hibernate's do; later edits bump it in {@code ReactivePostRepository#saveEdited}. */
+  @Bean
+  BeforeConvertCallback<Post> initialPostVersion() {
+    return (post, table) -> {
+      if (post.getVersion() == null) post.setVersion(0L);
+      return Mono.just(post);
+    };
+  }
+}
@@ -0,0 +1,79 @@
+package com.example.postservice.batch;
+
+import com.example.batchwrites.BatchRowResult;
+import com.example.batchwrites.BatchWriter;
+import com.example.changeevents.ChangeEvent;
+import com.example.postservice.event.ReactiveChangeEventOutbox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * {@link BatchWriter} for the "reactive" profile: the same chunking, per-chunk transactions, row-by-row
+ * replay of a failed chunk and change events, over R2DBC. Rows are pulled from the request body only
+ * as fast as chunks commit.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveBatchWriter {
+  private static final Logger log = LoggerFactory.getLogger(ReactiveBatchWriter.class);
+
+  private final TransactionalOperator tx;
+  private final ReactiveChangeEventOutbox outbox;
+  private final int chunkSize;
+
+  public ReactiveBatchWriter(ReactiveTransactionManager txManager, ReactiveChangeEventOutbox outbox,
+                             @Value("${batch.chunk-size:500}") int chunkSize) {
+    this.tx = TransactionalOperator.create(txManager);
+    this.outbox = outbox; this.chunkSize = chunkSize;
+  }
+
+  /** A row the body cannot be decoded into (malformed input) ends the batch with a failed result. */
+  public <T> Flux<BatchRowResult> write(Flux<T> rows, String aggregateType, Function<T, Mono<BatchRowResult>> writer) {
+    AtomicReference<Throwable> malformed = new AtomicReference<>();
+    return rows
+        // buffer() drops a partly filled chunk on error, so end the row stream normally and report it after
+        .onErrorResume(e -> { malformed.set(e); return Flux.empty(); })
+        .buffer(chunkSize)
+        .concatMap(chunk -> writeChunk(chunk, aggregateType, writer))
+        .concatWith(Mono.defer(() -> malformed.get() == null ? Mono.<BatchRowResult>empty()
+            : Mono.just(BatchRowResult.failed("malformed input: " + message(malformed.get())))))
+        .index((i, r) -> r.at(i.intValue()));
+  }
+
+  private <T> Flux<BatchRowResult> writeChunk(List<T> chunk, String aggregateType, Function<T, Mono<BatchRowResult>> writer) {
+    return Flux.fromIterable(chunk)
+        .concatMap(row -> writeRow(row, aggregateType, writer))
+        .collectList()
+        .as(tx::transactional)
+        .flatMapMany(Flux::fromIterable)
+        .onErrorResume(e -> {
+          log.debug("Chunk of {} {} rows failed, retrying row by row", chunk.size(), aggregateType, e);
+          return Flux.fromIterable(chunk).concatMap(row -> writeRow(row, aggregateType, writer)
+              .as(tx::transactional)
+              .onErrorResume(rowFailure -> Mono.just(BatchRowResult.failed(message(rowFailure)))));
+        });
+  }
+
+  private <T> Mono<BatchRowResult> writeRow(T row, String aggregateType, Function<T, Mono<BatchRowResult>> writer) {
+    return writer.apply(row).flatMap(result -> outbox.record(aggregateType, result.getId(),
+            result.getStatus() == BatchRowResult.Status.CREATED ? ChangeEvent.Type.CREATED : ChangeEvent.Type.UPDATED)
+        .thenReturn(result));
+  }
+
+  private static String message(Throwable e) {
+    Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+    return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+  }
+}
@@ -0,0 +1,53 @@
+package com.example.postservice.client;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.core.registry.EntryAddedEvent;
+import io.github.resilience4j.core.registry.EntryRemovedEvent;
+import io.github.resilience4j.core.registry.EntryReplacedEvent;
+import io.github.resilience4j.core.registry.RegistryEventConsumer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.openfeign.CircuitBreakerNameResolver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Circuit breaker and bulkhead wiring for the Feign clients. Each client gets one breaker and one
+ * semaphore bulkhead named after it ({@code user-service}), configured under
+ * {@code resilience4j.circuitbreaker.configs.<name>} and {@code resilience4j.bulkhead.instances.<name>},
+ * rather than one per method. Both run on the calling thread, so a shed call fails fast with
+ * {@code BulkheadFullException} and exceptions reach the breaker and the fallback unwrapped.
+ */
+@Configuration
+public class ClientResilience {
+  private static final Logger log = LoggerFactory.getLogger(ClientResilience.class);
+
+  @Bean
+  CircuitBreakerNameResolver circuitBreakerNameResolver() {
+    return (feignClientName, target, method) -> feignClientName;
+  }
+
+  /** Counts every breaker state change as {@code resilience4j.circuitbreaker.transitions{name,from,to}}. */
+  @Bean
+  RegistryEventConsumer<CircuitBreaker> circuitBreakerTransitions(MeterRegistry registry) {
+    return new RegistryEventConsumer<CircuitBreaker>() {
+      @Override
+      public void onEntryAddedEvent(EntryAddedEvent<CircuitBreaker> event) {
+        CircuitBreaker breaker = event.getAddedEntry();
+        breaker.getEventPublisher().onStateTransition(e -> {
+          CircuitBreaker.StateTransition transition = e.getStateTransition();
+          log.warn("Circuit breaker {} went from {} to {}", breaker.getName(), transition.getFromState(), transition.getToState());
+          registry.counter("resilience4j.circuitbreaker.transitions", "name", breaker.getName(),
+              "from", transition.getFromState().name(), "to", transition.getToState().name()).increment();
+        });
+      }
+
+      @Override
+      public void onEntryRemovedEvent(EntryRemovedEvent<CircuitBreaker> event) { }
+
+      @Override
+      public void onEntryReplacedEvent(EntryReplacedEvent<CircuitBreaker> event) { }
+    };
+  }
+}
@@ -0,0 +1,68 @@
+package com.example.postservice.client;
+
+import com.example.userclient.UserClient;
+import com.example.userclient.UserClientFallbackFactory;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Non-blocking {@link UserClient} for the "reactive" profile, balanced over the same instances. Calls
+ * share the {@code user-service} bulkhead and circuit breaker with the Feign client (see
+ * {@link ClientResilience}), are bounded by the same read timeout, and fall back to
+ * {@link UserClientFallbackFactory}'s last-known users. As there, a 4xx is an answer: it passes the
+ * breaker as a success and is never masked by the fallback.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveUserClient {
+  private final WebClient http;
+  private final UserClientFallbackFactory lastKnown;
+  private final CircuitBreaker breaker;
+  private final Bulkhead bulkhead;
+  private final Duration readTimeout;
+
+  public ReactiveUserClient(WebClient.Builder builder, UserClientFallbackFactory lastKnown,
+                            CircuitBreakerRegistry breakers, BulkheadRegistry bulkheads,
+                            ReactorLoadBalancerExchangeFilterFunction loadBalancer,
+                            @Value("${spring.cloud.openfeign.client.config.user-service.read-timeout:2000}") long readTimeoutMillis) {
+    this.http = builder.baseUrl("http://user-service").filter(loadBalancer).build();
+    this.lastKnown = lastKnown;
+    this.breaker = breakers.circuitBreaker("user-service", "user-service");
+    this.bulkhead = bulkheads.bulkhead("user-service");
+    this.readTimeout = Duration.ofMillis(readTimeoutMillis);
+  }
+
+  public Mono<Object> getUserById(Long id) {
+    return http.get().uri("/users/{id}", id)
+        .retrieve()
+        .onStatus(HttpStatusCode::is4xxClientError, response -> Mono.empty())
+        .toEntity(Object.class)
+        .timeout(readTimeout)
+        .transformDeferred(BulkheadOperator.of(bulkhead))
+        .transformDeferred(CircuitBreakerOperator.of(breaker))
+        .onErrorResume(e -> Mono.fromCallable(() -> ResponseEntity.ok(lastKnown.create(e).getUserById(id))))
+        .flatMap(response -> {
+          if (response.getStatusCode().is4xxClientError()) {
+            return Mono.error(WebClientResponseException.create(response.getStatusCode().value(), "user " + id,
+                response.getHeaders(), new byte[0], null));
+          }
+          lastKnown.remember(id, response.getBody());
+          return Mono.justOrEmpty(response.getBody());
+        });
+  }
+}
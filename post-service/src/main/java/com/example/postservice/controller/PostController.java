@@ -1,34 +1,160 @@
 package com.example.postservice.controller;
 
+import com.example.batchwrites.BatchRowResult;
+import com.example.batchwrites.BatchWriter;
+import com.example.changeevents.ChangeEvent;
+import com.example.changeevents.ChangeEventOutbox;
+import com.example.etags.ETags;
+import com.example.invertedindex.InvertedIndex;
 import com.example.postservice.model.Post;
 import com.example.postservice.repository.PostRepository;
-import com.example.postservice.client.UserClient;
+import com.example.postservice.search.PostSearchIndex;
+import com.example.userclient.BatchingUserClient;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.OptimisticLockException;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/posts")
+@Profile("!reactive")
 public class PostController {
   private static final Logger log = LoggerFactory.getLogger(PostController.class);
 
+  static final int MAX_PAGE_SIZE = 1000;
+  static final int MAX_SEARCH_PAGE_SIZE = 100;
+  /** Deepest result a search page may reach; ranking keeps every hit up to here in memory. */
+  static final int MAX_SEARCH_DEPTH = 10_000;
+
   private final PostRepository repo;
-  private final UserClient userClient;
+  private final BatchingUserClient userClient;
+  private final ChangeEventOutbox outbox;
+  private final BatchWriter batchWriter;
+  private final EntityManager em;
+  private final TransactionTemplate readOnlyTx;
+  private final ObjectMapper mapper;
+  private final PostSearchIndex searchIndex;
 
   @Autowired
-  public PostController(PostRepository repo, UserClient userClient) { this.repo = repo; this.userClient = userClient; }
+  public PostController(PostRepository repo, BatchingUserClient userClient, ChangeEventOutbox outbox,
+                        BatchWriter batchWriter, EntityManager em, PlatformTransactionManager txManager, ObjectMapper mapper,
+                        PostSearchIndex searchIndex) {
+    this.repo = repo; this.userClient = userClient; this.outbox = outbox; this.batchWriter = batchWriter;
+    this.em = em; this.mapper = mapper; this.searchIndex = searchIndex;
+    this.readOnlyTx = new TransactionTemplate(txManager);
+    this.readOnlyTx.setReadOnly(true);
+  }
 
+  /**
+   * Keyset page of posts ordered by id. Pass the {@code X-Next-Cursor} response header
+   * back as {@code afterId} to fetch the next page; the header is absent on the last page.
+   */
   @GetMapping
-  public List<Post> all() { return repo.findAll(); }
+  public ResponseEntity<List<Post>> all(@RequestParam(value = "afterId", defaultValue = "0") Long afterId,
+                                        @RequestParam(value = "limit", defaultValue = "100") int limit) {
+    int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    List<Post> page = repo.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(size));
+    ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+    if (page.size() == size) ok.header("X-Next-Cursor", String.valueOf(page.get(size - 1).getId()));
+    return ok.body(page);
+  }
+
+  /**
+   * Streams every post as newline-delimited JSON straight from a JDBC cursor.
+   * Rows are detached as soon as they are written, so heap use does not grow with the table.
+   */
+  @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> stream() {
+    StreamingResponseBody body = out -> readOnlyTx.executeWithoutResult(status -> {
+      try (Stream<Post> rows = repo.streamAll()) {
+        rows.forEach(p -> {
+          try {
+            out.write(mapper.writeValueAsBytes(p));
+            out.write('\n');
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          em.detach(p);
+        });
+      }
+    });
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+  }
+
+  /**
+   * Bulk lookup used by other services to prefetch many posts in one round trip. Posts already in the
+   * entity cache are taken from it; one query loads the rest.
+   */
+  @GetMapping(params = "ids")
+  public ResponseEntity<List<Post>> byIds(@RequestParam("ids") List<Long> ids) {
+    if (ids.size() > MAX_PAGE_SIZE) return ResponseEntity.badRequest().build();
+    List<Post> posts = readOnlyTx.execute(status ->
+        em.unwrap(Session.class).byMultipleIds(Post.class).with(CacheMode.NORMAL).multiLoad(ids));
+    posts.removeIf(Objects::isNull);
+    return ResponseEntity.ok(posts);
+  }
 
+  /**
+   * Posts matching any term of {@code q} in title or content, best BM25 score first, as
+   * {@code {total, page, size, results: [{score, post}]}}. Reflects writes once their change events
+   * have been dispatched.
+   */
+  @GetMapping("/search")
+  public ResponseEntity<Map<String, Object>> search(@RequestParam("q") String q,
+                                                    @RequestParam(value = "page", defaultValue = "0") int page,
+                                                    @RequestParam(value = "size", defaultValue = "20") int size) {
+    if (q.trim().isEmpty() || page < 0 || size < 1 || size > MAX_SEARCH_PAGE_SIZE
+        || (long) (page + 1) * size > MAX_SEARCH_DEPTH) return ResponseEntity.badRequest().build();
+    InvertedIndex.Hits hits = searchIndex.search(q, page * size, size);
+    Map<Long, Post> posts = repo.findAllById(hits.getHits().stream().map(InvertedIndex.Hit::getId).collect(Collectors.toList()))
+        .stream().collect(Collectors.toMap(Post::getId, Function.identity()));
+    List<Map<String, Object>> results = new ArrayList<>();
+    for (InvertedIndex.Hit hit : hits.getHits()) {
+      Post post = posts.get(hit.getId());
+      if (post != null) results.add(Map.of("score", hit.getScore(), "post", post));
+    }
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("total", hits.getTotal());
+    body.put("page", page);
+    body.put("size", size);
+    body.put("results", results);
+    return ResponseEntity.ok(body);
+  }
+
+  /** Carries a strong ETag; a matching {@code If-None-Match} gets 304 without a body. */
   @GetMapping("/{id}")
   public ResponseEntity<?> get(@PathVariable("id") Long id) {
-    return repo.findById(id).map(p -> ResponseEntity.ok(p)).orElse(ResponseEntity.notFound().build());
+    return repo.findById(id).map(p -> ResponseEntity.ok().eTag(ETags.of(p.getVersion())).body(p)).orElse(ResponseEntity.notFound().build());
   }
 
   @GetMapping("/{id}/with-author")
@@ -44,22 +170,66 @@ public class PostController {
   }
 
   @PostMapping
-  public Post create(@RequestBody Post post) { return repo.save(post); }
+  @Transactional
+  public Post create(@RequestBody Post post) {
+    post.setVersion(null);
+    Post saved = repo.save(post);
+    outbox.record("post", saved.getId(), ChangeEvent.Type.CREATED);
+    return saved;
+  }
 
+  /**
+   * Creates or updates posts from a JSON array or an NDJSON stream: rows without an id are inserted,
+   * rows with one update that post (and fail if they carry a stale {@code version}). Returns one result
+   * per input row, in input order.
+   */
+  @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+  public List<BatchRowResult> batch(InputStream body) throws IOException {
+    MappingIterator<Post> rows = mapper.readerFor(Post.class).readValues(body);
+    return batchWriter.write(rows, "post", row -> {
+      if (row.getId() == null) return BatchRowResult.created(repo.save(new Post(null, row.getTitle(), row.getContent(), row.getAuthorId())).getId());
+      Post post = repo.findById(row.getId())
+          .orElseThrow(() -> new EntityNotFoundException("post " + row.getId() + " not found"));
+      if (row.getVersion() != null && !row.getVersion().equals(post.getVersion())) {
+        throw new OptimisticLockException("post " + row.getId() + " is at version " + post.getVersion());
+      }
+      post.setTitle(row.getTitle());
+      post.setContent(row.getContent());
+      post.setAuthorId(row.getAuthorId());
+      return BatchRowResult.updated(post.getId());
+    });
+  }
+
+  /** With {@code If-Match}, updates only if the client holds the current version; otherwise 412. */
   @PutMapping("/{id}")
-  public ResponseEntity<Post> update(@PathVariable("id") Long id, @RequestBody Post p) {
+  @Transactional
+  public ResponseEntity<Post> update(@PathVariable("id") Long id, @RequestBody Post p,
+                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     return repo.findById(id).map(post -> {
+      if (!ETags.ifMatch(ifMatch, post.getVersion())) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).eTag(ETags.of(post.getVersion())).<Post>build();
+      }
       post.setTitle(p.getTitle());
       post.setContent(p.getContent());
       post.setAuthorId(p.getAuthorId());
-      return ResponseEntity.ok(repo.save(post));
+      Post saved = repo.saveAndFlush(post);
+      outbox.record("post", id, ChangeEvent.Type.UPDATED);
+      return ResponseEntity.ok().eTag(ETags.of(saved.getVersion())).body(saved);
     }).orElse(ResponseEntity.notFound().build());
   }
 
   @DeleteMapping("/{id}")
+  @Transactional
   public ResponseEntity<Void> delete(@PathVariable("id") Long id) {
     if (!repo.existsById(id)) return ResponseEntity.notFound().build();
     repo.deleteById(id);
+    outbox.record("post", id, ChangeEvent.Type.DELETED);
     return ResponseEntity.noContent().build();
   }
+
+  /** A concurrent update won between our read and the write; the client's copy is stale. */
+  @ExceptionHandler(OptimisticLockingFailureException.class)
+  public ResponseEntity<Void> staleVersion(OptimisticLockingFailureException e) {
+    return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+  }
 }
@@ -0,0 +1,191 @@
+package com.example.postservice.controller;
+
+import com.example.batchwrites.BatchRowResult;
+import com.example.changeevents.ChangeEvent;
+import com.example.etags.ETags;
+import com.example.invertedindex.InvertedIndex;
+import com.example.postservice.batch.ReactiveBatchWriter;
+import com.example.postservice.client.ReactiveUserClient;
+import com.example.postservice.event.ReactiveChangeEventOutbox;
+import com.example.postservice.model.Post;
+import com.example.postservice.repository.ReactivePostRepository;
+import com.example.postservice.search.PostSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * {@link PostController} on WebFlux and R2DBC, active with the "reactive" profile: the same endpoints
+ * and responses, but no request holds a thread while it waits on the database or on user-service.
+ * Lists are streamed from the driver as the client reads them. Change events still go through the
+ * outbox, so dispatch and the search index work as they do for the servlet stack.
+ */
+@RestController
+@RequestMapping("/posts")
+@Profile("reactive")
+public class ReactivePostController {
+  private static final Logger log = LoggerFactory.getLogger(ReactivePostController.class);
+
+  private final ReactivePostRepository repo;
+  private final ReactiveUserClient userClient;
+  private final ReactiveChangeEventOutbox outbox;
+  private final ReactiveBatchWriter batchWriter;
+  private final TransactionalOperator tx;
+  private final PostSearchIndex searchIndex;
+
+  public ReactivePostController(ReactivePostRepository repo, ReactiveUserClient userClient, ReactiveChangeEventOutbox outbox,
+                                ReactiveBatchWriter batchWriter, ReactiveTransactionManager txManager, PostSearchIndex searchIndex) {
+    this.repo = repo; this.userClient = userClient; this.outbox = outbox; this.batchWriter = batchWriter;
+    this.tx = TransactionalOperator.create(txManager);
+    this.searchIndex = searchIndex;
+  }
+
+  /** Keyset page of posts ordered by id; see {@link PostController#all}. Collected, since the cursor header depends on the page size. */
+  @GetMapping
+  public Mono<ResponseEntity<List<Post>>> all(@RequestParam(value = "afterId", defaultValue = "0") Long afterId,
+                                              @RequestParam(value = "limit", defaultValue = "100") int limit) {
+    int size = Math.max(1, Math.min(limit, PostController.MAX_PAGE_SIZE));
+    return repo.findPageAfter(afterId, size).collectList().map(page -> {
+      ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+      if (page.size() == size) ok.header("X-Next-Cursor", String.valueOf(page.get(size - 1).getId()));
+      return ok.body(page);
+    });
+  }
+
+  /** Every post as newline-delimited JSON, written as rows arrive; a slow reader slows the query, not the heap. */
+  @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<Post> stream() {
+    return repo.streamAll();
+  }
+
+  @GetMapping(params = "ids")
+  public ResponseEntity<Flux<Post>> byIds(@RequestParam("ids") List<Long> ids) {
+    if (ids.size() > PostController.MAX_PAGE_SIZE) return ResponseEntity.badRequest().build();
+    return ResponseEntity.ok(repo.findAllById(ids));
+  }
+
+  @GetMapping("/search")
+  public Mono<ResponseEntity<Map<String, Object>>> search(@RequestParam("q") String q,
+                                                          @RequestParam(value = "page", defaultValue = "0") int page,
+                                                          @RequestParam(value = "size", defaultValue = "20") int size) {
+    if (q.trim().isEmpty() || page < 0 || size < 1 || size > PostController.MAX_SEARCH_PAGE_SIZE
+        || (long) (page + 1) * size > PostController.MAX_SEARCH_DEPTH) return Mono.just(ResponseEntity.badRequest().build());
+    InvertedIndex.Hits hits = searchIndex.search(q, page * size, size);
+    return repo.findAllById(hits.getHits().stream().map(InvertedIndex.Hit::getId).collect(Collectors.toList()))
+        .collectMap(Post::getId, Function.identity())
+        .map(posts -> {
+          List<Map<String, Object>> results = new ArrayList<>();
+          for (InvertedIndex.Hit hit : hits.getHits()) {
+            Post post = posts.get(hit.getId());
+            if (post != null) results.add(Map.of("score", hit.getScore(), "post", post));
+          }
+          Map<String, Object> body = new LinkedHashMap<>();
+          body.put("total", hits.getTotal());
+          body.put("page", page);
+          body.put("size", size);
+          body.put("results", results);
+          return ResponseEntity.ok(body);
+        });
+  }
+
+  /** Carries a strong ETag; a matching {@code If-None-Match} gets 304 without a body. */
+  @GetMapping("/{id}")
+  public Mono<ResponseEntity<Post>> get(@PathVariable("id") Long id) {
+    return repo.findById(id)
+        .map(p -> ResponseEntity.ok().eTag(ETags.of(p.getVersion())).body(p))
+        .defaultIfEmpty(ResponseEntity.notFound().build());
+  }
+
+  @GetMapping("/{id}/with-author")
+  public Mono<ResponseEntity<Map<String, Object>>> getWithAuthor(@PathVariable("id") Long id) {
+
+    log.info("Fetching post with author, postId={}", id);
+
+    return repo.findById(id)
+        .flatMap(p -> userClient.getUserById(p.getAuthorId())
+            .onErrorResume(e -> Mono.just(Map.of("error", "unable to fetch user")))
+            .map(author -> ResponseEntity.ok(Map.<String, Object>of("post", p, "author", author))))
+        .defaultIfEmpty(ResponseEntity.notFound().build());
+  }
+
+  @PostMapping
+  public Mono<Post> create(@RequestBody Post post) {
+    post.setVersion(null);
+    return repo.save(post)
+        .flatMap(saved -> outbox.record("post", saved.getId(), ChangeEvent.Type.CREATED).thenReturn(saved))
+        .as(tx::transactional);
+  }
+
+  /** See {@link PostController#batch}; the JSON array or NDJSON body is decoded row by row as it arrives. */
+  @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+  public Flux<BatchRowResult> batch(@RequestBody Flux<Post> rows) {
+    return batchWriter.write(rows, "post", row -> {
+      if (row.getId() == null) {
+        return repo.save(new Post(null, row.getTitle(), row.getContent(), row.getAuthorId()))
+            .map(saved -> BatchRowResult.created(saved.getId()));
+      }
+      return repo.findById(row.getId())
+          .switchIfEmpty(Mono.error(() -> new DataRetrievalFailureException("post " + row.getId() + " not found")))
+          .flatMap(post -> {
+            if (row.getVersion() != null && !row.getVersion().equals(post.getVersion())) {
+              return Mono.error(new OptimisticLockingFailureException("post " + row.getId() + " is at version " + post.getVersion()));
+            }
+            post.setTitle(row.getTitle());
+            post.setContent(row.getContent());
+            post.setAuthorId(row.getAuthorId());
+            return repo.saveEdited(post).map(saved -> BatchRowResult.updated(saved.getId()));
+          });
+    });
+  }
+
+  /** With {@code If-Match}, updates only if the client holds the current version; otherwise 412. */
+  @PutMapping("/{id}")
+  public Mono<ResponseEntity<Post>> update(@PathVariable("id") Long id, @RequestBody Post p,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    return repo.findById(id).flatMap(post -> {
+      if (!ETags.ifMatch(ifMatch, post.getVersion())) {
+        return Mono.just(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).eTag(ETags.of(post.getVersion())).<Post>build());
+      }
+      post.setTitle(p.getTitle());
+      post.setContent(p.getContent());
+      post.setAuthorId(p.getAuthorId());
+      return repo.saveEdited(post)
+          .flatMap(saved -> outbox.record("post", id, ChangeEvent.Type.UPDATED)
+              .thenReturn(ResponseEntity.ok().eTag(ETags.of(saved.getVersion())).body(saved)));
+    }).defaultIfEmpty(ResponseEntity.notFound().build()).as(tx::transactional);
+  }
+
+  @DeleteMapping("/{id}")
+  public Mono<ResponseEntity<Void>> delete(@PathVariable("id") Long id) {
+    return repo.existsById(id).flatMap(exists -> {
+      if (!exists) return Mono.just(ResponseEntity.notFound().<Void>build());
+      return repo.deleteById(id)
+          .then(outbox.record("post", id, ChangeEvent.Type.DELETED))
+          .thenReturn(ResponseEntity.noContent().<Void>build());
+    }).as(tx::transactional);
+  }
+
+  /** A concurrent update won between our read and the write; the client's copy is stale. */
+  @ExceptionHandler(OptimisticLockingFailureException.class)
+  public ResponseEntity<Void> staleVersion(OptimisticLockingFailureException e) {
+    return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+  }
+}
@@ -0,0 +1,31 @@
+package com.example.postservice.event;
+
+import com.example.changeevents.ChangeEvent;
+import com.example.changeevents.ChangeEventOutbox;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import reactor.core.publisher.Mono;
+
+/** {@link ChangeEventOutbox} for the "reactive" profile; the rows it writes are drained by the same dispatcher. */
+@Component
+@Profile("reactive")
+public class ReactiveChangeEventOutbox {
+  private final R2dbcEntityTemplate template;
+  private final TransactionalOperator mandatory;
+
+  public ReactiveChangeEventOutbox(R2dbcEntityTemplate template, ReactiveTransactionManager txManager) {
+    this.template = template;
+    this.mandatory = TransactionalOperator.create(txManager,
+        new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_MANDATORY));
+  }
+
+  /** Must join the caller's transaction so the event commits or rolls back with the change. */
+  public Mono<Void> record(String aggregateType, Long aggregateId, ChangeEvent.Type type) {
+    return template.insert(new ChangeEvent(aggregateType, aggregateId, type)).then().as(mandatory::transactional);
+  }
+}
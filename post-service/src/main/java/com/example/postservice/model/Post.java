@@ -1,21 +1,34 @@
 package com.example.postservice.model;
 
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @NoArgsConstructor
-@AllArgsConstructor
 @Table(name = "posts")
+@org.springframework.data.relational.core.mapping.Table("posts") // same row for R2DBC under the "reactive" profile
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "posts")
 public class Post {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @org.springframework.data.annotation.Id
+  @org.springframework.data.relational.core.mapping.Sequence("posts_seq")
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "posts_seq")
+  @SequenceGenerator(name = "posts_seq", sequenceName = "posts_seq", allocationSize = 50)
   private Long id;
   private String title;
   @Column(length = 4000)
   private String content;
   private Long authorId;
+  /** Bumped on every update; doubles as the optimistic lock and the ETag. */
+  @Version
+  private Long version;
+
+  public Post(Long id, String title, String content, Long authorId) {
+    this.id = id; this.title = title; this.content = content; this.authorId = authorId;
+  }
 
   // getters/setters
   public Long getId() { return id; }
@@ -26,4 +39,6 @@ public class Post {
   public void setContent(String content) { this.content = content; }
   public Long getAuthorId() { return authorId; }
   public void setAuthorId(Long authorId) { this.authorId = authorId; }
+  public Long getVersion() { return version; }
+  public void setVersion(Long version) { this.version = version; }
 }
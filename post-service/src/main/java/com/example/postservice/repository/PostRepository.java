@@ -1,7 +1,26 @@
 package com.example.postservice.repository;
 
 import com.example.postservice.model.Post;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface PostRepository extends JpaRepository<Post, Long> {
+  // keyset page: rows strictly after the cursor, in id order
+  @Transactional(readOnly = true)
+  List<Post> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+  // server-side cursor; must be consumed inside a transaction
+  @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+  @Query("select p from Post p order by p.id")
+  Stream<Post> streamAll();
 }
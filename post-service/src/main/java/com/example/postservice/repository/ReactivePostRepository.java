@@ -0,0 +1,42 @@
+package com.example.postservice.repository;
+
+import com.example.postservice.model.Post;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC view of the {@code posts} table for the "reactive" profile; mirrors {@link PostRepository}.
+ * Spring Data JPA rejects Spring Data's {@code @Version} on a shared entity, so edits go through
+ * {@link #saveEdited} rather than {@code save}, which would not check or bump the version.
+ */
+public interface ReactivePostRepository extends R2dbcRepository<Post, Long> {
+  // keyset page: rows strictly after the cursor, in id order
+  @Query("SELECT * FROM posts WHERE id > :afterId ORDER BY id LIMIT :limit")
+  Flux<Post> findPageAfter(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+  // rows are pulled from the driver as the subscriber requests them
+  @Query("SELECT * FROM posts ORDER BY id")
+  Flux<Post> streamAll();
+
+  // matches only while the row is still at the version that was read, and bumps it
+  @Modifying
+  @Query("UPDATE posts SET title = :title, content = :content, author_id = :authorId, version = version + 1"
+      + " WHERE id = :id AND version = :version")
+  Mono<Integer> updateAtVersion(@Param("id") Long id, @Param("version") Long version, @Param("title") String title,
+                                @Param("content") String content, @Param("authorId") Long authorId);
+
+  /** Writes an edited post read earlier; fails with {@link OptimisticLockingFailureException} if it changed since. */
+  default Mono<Post> saveEdited(Post post) {
+    return updateAtVersion(post.getId(), post.getVersion(), post.getTitle(), post.getContent(), post.getAuthorId())
+        .flatMap(updated -> {
+          if (updated == 0) return Mono.error(new OptimisticLockingFailureException("post " + post.getId() + " changed concurrently"));
+          post.setVersion(post.getVersion() + 1);
+          return Mono.just(post);
+        });
+  }
+}
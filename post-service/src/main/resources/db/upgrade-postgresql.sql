@@ -0,0 +1,17 @@
+-- Brings a database created by an earlier release up to the current mapping. Runs at every startup,
+-- after Hibernate's ddl-auto=update and any data.sql, on PostgreSQL only (batchwrites.SchemaUpgrade).
+
+-- Ids come from pooled sequences (allocationSize 50) rather than identity columns. ddl-auto creates a
+-- missing sequence at 1, below the ids already in the table, so move it past them. Hibernate takes the
+-- block (n - 50, n] from each nextval n; setval(max(id)) makes the next block start at max(id) + 1.
+CREATE SEQUENCE IF NOT EXISTS posts_seq START WITH 1 INCREMENT BY 50;
+SELECT setval('posts_seq', (SELECT max(id) FROM posts)) WHERE (SELECT max(id) FROM posts) >= (SELECT last_value FROM posts_seq);
+CREATE SEQUENCE IF NOT EXISTS change_events_seq START WITH 1 INCREMENT BY 50;
+SELECT setval('change_events_seq', (SELECT max(id) FROM change_events)) WHERE (SELECT max(id) FROM change_events) >= (SELECT last_value FROM change_events_seq);
+
+-- Rows written before @Version was mapped have a NULL version, which Hibernate cannot compare or bump.
+UPDATE posts SET version = 0 WHERE version IS NULL;
+
+-- Dispatched change events stay until the retention runs out (com.example.changeevents.ChangeEventFeed);
+-- keep the dispatcher's claim scan to the rows still pending.
+CREATE INDEX IF NOT EXISTS change_events_pending ON change_events (id) WHERE dispatched_at IS NULL;
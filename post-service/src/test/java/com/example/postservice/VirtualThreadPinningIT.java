@@ -0,0 +1,103 @@
+package com.example.postservice;
+
+import com.example.changeevents.ChangeEventDispatcher;
+import com.example.userclient.UserClient;
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs concurrent writes, reads, searches and author lookups with the {@code virtual-threads} profile and
+ * records JFR {@code jdk.VirtualThreadPinned} events meanwhile. A pinned virtual thread blocks its carrier,
+ * so any pin with one of our frames on the stack (a JDBC, Hibernate or HTTP call inside {@code synchronized})
+ * fails the test. Needs Java 21 (build with {@code -P java21}); skipped on older JVMs.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"test", "virtual-threads"})
+@EnabledForJreRange(min = JRE.JAVA_21)
+class VirtualThreadPinningIT {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ChangeEventDispatcher dispatcher;
+
+    @MockitoBean
+    private UserClient userClient;
+
+    @Test
+    void requestPaths_shouldNotPinCarrierThreads() throws Exception {
+        RestAssured.baseURI = "http://localhost";
+        RestAssured.port = port;
+        when(userClient.getUserById(anyLong())).thenAnswer(inv -> {
+            Thread.sleep(5);
+            return Map.of("id", inv.getArgument(0), "username", "author");
+        });
+
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        try (RecordingStream events = new RecordingStream()) {
+            events.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(1)).withStackTrace();
+            events.onEvent("jdk.VirtualThreadPinned", pinned::add);
+            events.startAsync();
+
+            ExecutorService clients = Executors.newFixedThreadPool(32);
+            try {
+                List<Future<?>> calls = new ArrayList<>();
+                for (int i = 0; i < 200; i++) {
+                    int n = i;
+                    calls.add(clients.submit(() -> {
+                        int id = given().contentType(ContentType.JSON)
+                                .body("{\"title\":\"Pinning " + n + "\",\"content\":\"virtual threads\",\"authorId\":" + (n % 7 + 1) + "}")
+                                .post("/posts").then().statusCode(200).extract().path("id");
+                        given().get("/posts/{id}", id).then().statusCode(200);
+                        given().get("/posts/{id}/with-author", id).then().statusCode(200);
+                        given().queryParam("q", "pinning").get("/posts/search").then().statusCode(200);
+                    }));
+                }
+                for (Future<?> call : calls) call.get();
+            } finally {
+                clients.shutdownNow();
+            }
+            dispatcher.dispatchPending();
+            Thread.sleep(2000); // JFR streams flush about once a second
+        }
+
+        List<String> ours = pinned.stream()
+                .filter(e -> e.getStackTrace() != null && e.getStackTrace().getFrames().stream()
+                        .anyMatch(f -> f.getMethod().getType().getName().startsWith("com.example.")))
+                .map(e -> e.getStackTrace().getFrames().stream().limit(20).map(VirtualThreadPinningIT::frame)
+                        .collect(Collectors.joining("\n  at ", "pinned for " + e.getDuration().toMillis() + " ms\n  at ", "")))
+                .collect(Collectors.toList());
+        assertEquals(List.of(), ours);
+    }
+
+    private static String frame(RecordedFrame f) {
+        return f.getMethod().getType().getName() + "." + f.getMethod().getName() + ":" + f.getLineNumber();
+    }
+}
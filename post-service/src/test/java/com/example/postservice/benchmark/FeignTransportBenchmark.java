@@ -0,0 +1,117 @@
+package com.example.postservice.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import feign.Client;
+import feign.Feign;
+import feign.RequestLine;
+import feign.hc5.ApacheHttp5Client;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A bulk author lookup ({@code GET /users?ids=...}, about 6 KB of JSON) from 32 threads through Feign's
+ * default {@code HttpURLConnection} client versus the pooled Apache HttpClient 5 transport the services
+ * now use. The stub answers from a 64-thread pool and gzips when asked, as the services do.
+ * Run in sample-time mode for p99 and in throughput mode for calls per second:
+ * {@code -Djmh.args="FeignTransportBenchmark -bm sample -bm thrpt"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(32)
+@Fork(1)
+public class FeignTransportBenchmark {
+
+    interface Users {
+        @RequestLine("GET /users?ids={ids}")
+        String getUsersByIds(@feign.Param("ids") String ids);
+    }
+
+    @Param({"default", "hc5"})
+    public String transport;
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private CloseableHttpClient httpClient;
+    private Users users;
+    private byte[] body;
+    private byte[] gzippedBody;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int id = 1; id <= 50; id++) {
+            if (id > 1) json.append(',');
+            json.append("{\"id\":").append(id).append(",\"username\":\"user").append(id)
+                .append("\",\"email\":\"user").append(id).append("@example.com\",\"bio\":\"Writes about bread, bicycles and the occasional database.\"}");
+        }
+        body = json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(body);
+        }
+        gzippedBody = gzipped.toByteArray();
+
+        System.setProperty("sun.net.httpserver.nodelay", "true"); // otherwise Nagle adds ~40 ms per response
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        serverThreads = Executors.newFixedThreadPool(64);
+        server.setExecutor(serverThreads);
+        server.createContext("/users", this::respond);
+        server.start();
+
+        Client client;
+        if (transport.equals("hc5")) {
+            // same pool sizing as spring.cloud.openfeign.httpclient.* in application.properties
+            httpClient = HttpClients.custom()
+                    .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                            .setMaxConnTotal(200)
+                            .setMaxConnPerRoute(50)
+                            .build())
+                    .disableCookieManagement()
+                    .build();
+            client = new ApacheHttp5Client(httpClient);
+        } else {
+            client = new Client.Default(null, null);
+        }
+        users = Feign.builder().client(client).target(Users.class, "http://localhost:" + server.getAddress().getPort());
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        if (httpClient != null) httpClient.close();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Benchmark
+    public String bulkLookup() {
+        return users.getUsersByIds("1,2,3,4,5,6,7,8,9,10");
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        byte[] payload = gzip ? gzippedBody : body;
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        if (gzip) exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(200, payload.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(payload);
+        }
+    }
+}
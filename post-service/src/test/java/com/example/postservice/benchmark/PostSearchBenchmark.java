@@ -0,0 +1,79 @@
+package com.example.postservice.benchmark;
+
+import com.example.invertedindex.InvertedIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.AuxCounters.Type;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of the search index over synthetic posts: 60 words each, drawn from a 50k-word
+ * vocabulary with a Zipf-like skew, so {@code w0} is in most documents and {@code w40000} in a few.
+ * One million documents take about 150 MB of postings, hence the larger heap. The index's size is
+ * reported next to each result as the {@code documents}, {@code terms} and {@code postingsMegabytes}
+ * secondary metrics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PostSearchBenchmark {
+    private static final int VOCABULARY = 50_000;
+    private static final int WORDS_PER_POST = 60;
+
+    @Param({"1000000"})
+    public int posts;
+
+    @Param({"w40000", "w500", "w10 w2000", "w3 w7 w50"})
+    public String query;
+
+    private InvertedIndex index;
+
+    @Setup(Level.Trial)
+    public void build() {
+        index = new InvertedIndex(0.2);
+        SplittableRandom random = new SplittableRandom(42);
+        StringBuilder text = new StringBuilder();
+        for (int id = 1; id <= posts; id++) {
+            text.setLength(0);
+            for (int w = 0; w < WORDS_PER_POST; w++) {
+                // inverse-CDF of a power law: small word numbers are far more frequent
+                int word = (int) (Math.pow(VOCABULARY, random.nextDouble()) - 1);
+                text.append('w').append(word).append(' ');
+            }
+            index.put(id, text.toString());
+        }
+    }
+
+    @Benchmark
+    public InvertedIndex.Hits firstPage(IndexSize size) {
+        return index.search(query, 0, 20);
+    }
+
+    /** Not counters at all: these read the index, which EVENTS reports as-is rather than per second. */
+    @State(Scope.Thread)
+    @AuxCounters(Type.EVENTS)
+    public static class IndexSize {
+        private InvertedIndex index;
+
+        @Setup(Level.Iteration)
+        public void read(PostSearchBenchmark benchmark) {
+            index = benchmark.index;
+        }
+
+        public long documents() {
+            return index.size();
+        }
+
+        public long terms() {
+            return index.termCount();
+        }
+
+        public long postingsMegabytes() {
+            return index.postingsBytes() >> 20;
+        }
+    }
+}
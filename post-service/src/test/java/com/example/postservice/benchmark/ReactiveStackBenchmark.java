@@ -0,0 +1,153 @@
+package com.example.postservice.benchmark;
+
+import com.example.postservice.PostServiceApplication;
+import com.example.postservice.model.Post;
+import com.example.postservice.repository.PostRepository;
+import com.sun.management.OperatingSystemMXBean;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resource use of the servlet stack (Tomcat, JPA, Feign) versus the {@code reactive} profile (Netty,
+ * R2DBC, WebClient) under the same load: 200 callers each issuing {@code GET /posts/{id}/with-author}
+ * against a stub user-service that takes 50 ms. Callers are closed-loop, so both stacks see the same
+ * offered concurrency; read the latency distribution together with what is printed after each
+ * iteration: peak live threads, CPU time per request and heap in use. Add {@code -prof gc} for
+ * allocation per request:
+ * {@code mvn -P benchmark -pl post-service test-compile exec:exec -Djmh.args="ReactiveStackBenchmark -bm sample -prof gc"}.
+ * The CPU figure includes the in-process callers and stub, which are the same for both stacks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(200)
+@Fork(value = 1, jvmArgsAppend = "-Xss512k")
+public class ReactiveStackBenchmark {
+
+    @Param({"servlet", "reactive"})
+    public String stack;
+
+    @Param({"50"})
+    public int authorLatencyMs;
+
+    private HttpServer userService;
+    private ExecutorService userServiceThreads;
+    private ConfigurableApplicationContext context;
+    private HttpClient http;
+    private final List<URI> posts = new ArrayList<>();
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final OperatingSystemMXBean os = ManagementFactory.getPlatformMXBean(OperatingSystemMXBean.class);
+    private final AtomicLong requests = new AtomicLong();
+    private long cpuAtStart;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        userService = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        userServiceThreads = Executors.newCachedThreadPool();
+        userService.setExecutor(userServiceThreads);
+        userService.createContext("/users", this::respond);
+        userService.start();
+
+        List<String> profiles = new ArrayList<>();
+        if (stack.equals("reactive")) profiles.add("reactive");
+        profiles.add("test");
+        context = new SpringApplicationBuilder(PostServiceApplication.class)
+                .profiles(profiles.toArray(new String[0]))
+                .run("--server.port=0", "--spring.jpa.show-sql=false", "--logging.level.root=WARN",
+                        "--user-service.url=http://localhost:" + userService.getAddress().getPort(),
+                        "--user-client.batch.window-ms=1",
+                        "--resilience4j.bulkhead.instances.user-service.max-concurrent-calls=400");
+        PostRepository repo = context.getBean(PostRepository.class);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        for (int i = 0; i < 1000; i++) {
+            Post saved = repo.save(new Post(null, "Post " + i, "Content " + i, (long) (i % 100 + 1)));
+            posts.add(URI.create("http://localhost:" + port + "/posts/" + saved.getId() + "/with-author"));
+        }
+        http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetUsage() {
+        threads.resetPeakThreadCount();
+        requests.set(0);
+        cpuAtStart = os.getProcessCpuTime();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportUsage() {
+        long cpuNanos = os.getProcessCpuTime() - cpuAtStart;
+        System.out.printf("%n  %s: peak threads %d, cpu %.3f ms/request, heap used %d MB%n", stack,
+                threads.getPeakThreadCount(), cpuNanos / 1e6 / Math.max(1, requests.get()),
+                memory.getHeapMemoryUsage().getUsed() >> 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+        userService.stop(0);
+        userServiceThreads.shutdownNow();
+    }
+
+    @Benchmark
+    public int postWithAuthor() throws IOException, InterruptedException {
+        URI uri = posts.get(ThreadLocalRandom.current().nextInt(posts.size()));
+        requests.incrementAndGet();
+        return http.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        try {
+            Thread.sleep(authorLatencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getQuery();
+        StringBuilder body = new StringBuilder();
+        if (query != null && query.startsWith("ids=")) {
+            body.append('[');
+            for (String id : query.substring(4).split(",")) {
+                if (body.length() > 1) body.append(',');
+                body.append("{\"id\":").append(id).append(",\"username\":\"user").append(id).append("\"}");
+            }
+            body.append(']');
+        } else {
+            String id = path.substring(path.lastIndexOf('/') + 1);
+            body.append("{\"id\":").append(id).append(",\"username\":\"user").append(id).append("\"}");
+        }
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.postservice.benchmark;
+
+import com.example.postservice.PostServiceApplication;
+import com.example.postservice.model.Post;
+import com.example.postservice.repository.PostRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code GET /posts/{id}/with-author} from 400 concurrent callers, with post-service on Tomcat's default
+ * 200 platform threads versus the {@code virtual-threads} profile. Each request reads the post from the
+ * in-memory test database and blocks on an author lookup against a stub user-service that takes 50 ms,
+ * so the platform pool saturates long before the CPU does. Needs Java 21 for the virtual run:
+ * {@code mvn -P benchmark,java21 -pl post-service test-compile exec:exec -Djmh.args="VirtualThreadsBenchmark -bm sample -bm thrpt"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(400)
+@Fork(value = 1, jvmArgsAppend = "-Xss512k")
+public class VirtualThreadsBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"50"})
+    public int authorLatencyMs;
+
+    private HttpServer userService;
+    private ExecutorService userServiceThreads;
+    private ConfigurableApplicationContext context;
+    private HttpClient http;
+    private final List<URI> posts = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        if (threads.equals("virtual") && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("the virtual-threads run needs Java 21");
+        }
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        userService = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        userServiceThreads = Executors.newCachedThreadPool();
+        userService.setExecutor(userServiceThreads);
+        userService.createContext("/users", this::respond);
+        userService.start();
+
+        List<String> profiles = new ArrayList<>(List.of("test"));
+        if (threads.equals("virtual")) profiles.add("virtual-threads");
+        context = new SpringApplicationBuilder(PostServiceApplication.class)
+                .profiles(profiles.toArray(new String[0]))
+                .properties("server.port=0", "spring.jpa.show-sql=false", "logging.level.root=WARN",
+                        "user-service.url=http://localhost:" + userService.getAddress().getPort(),
+                        "user-client.batch.window-ms=1")
+                .run();
+        PostRepository repo = context.getBean(PostRepository.class);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        for (int i = 0; i < 1000; i++) {
+            Post saved = repo.save(new Post(null, "Post " + i, "Content " + i, (long) (i % 100 + 1)));
+            posts.add(URI.create("http://localhost:" + port + "/posts/" + saved.getId() + "/with-author"));
+        }
+        http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+        userService.stop(0);
+        userServiceThreads.shutdownNow();
+    }
+
+    @Benchmark
+    public int postWithAuthor() throws IOException, InterruptedException {
+        URI uri = posts.get(ThreadLocalRandom.current().nextInt(posts.size()));
+        return http.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        try {
+            Thread.sleep(authorLatencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getQuery();
+        StringBuilder body = new StringBuilder();
+        if (query != null && query.startsWith("ids=")) {
+            body.append('[');
+            for (String id : query.substring(4).split(",")) {
+                if (body.length() > 1) body.append(',');
+                body.append("{\"id\":").append(id).append(",\"username\":\"user").append(id).append("\"}");
+            }
+            body.append(']');
+        } else {
+            String id = path.substring(path.lastIndexOf('/') + 1);
+            body.append("{\"id\":").append(id).append(",\"username\":\"user").append(id).append("\"}");
+        }
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
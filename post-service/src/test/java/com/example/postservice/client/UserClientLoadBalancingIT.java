@@ -0,0 +1,117 @@
+package com.example.postservice.client;
+
+import com.example.userclient.UserClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the Feign user-service client against two stub instances, checking that calls are spread,
+ * that a slow instance gets fewer of them, and that a failing one is ejected and later readmitted.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class UserClientLoadBalancingIT {
+
+    private static final UserClientResilienceIT.UserServiceStub first = UserClientResilienceIT.UserServiceStub.start();
+    private static final UserClientResilienceIT.UserServiceStub second = UserClientResilienceIT.UserServiceStub.start();
+
+    @DynamicPropertySource
+    static void twoUserServices(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:balancing;DB_CLOSE_DELAY=-1");
+        // an indexed list binds from one property source, so both entries go here
+        registry.add("spring.cloud.discovery.client.simple.instances.user-service[0].uri", () -> "http://localhost:" + first.port());
+        registry.add("spring.cloud.discovery.client.simple.instances.user-service[1].uri", () -> "http://localhost:" + second.port());
+        registry.add("instances.ejection.base-ejection-time", () -> "2s");
+    }
+
+    @Autowired
+    private UserClient userClient;
+
+    @Autowired
+    private MeterRegistry meters;
+
+    @BeforeEach
+    void reset() {
+        first.reset();
+        second.reset();
+    }
+
+    @AfterAll
+    static void stopStubs() {
+        first.server.stop(0);
+        second.server.stop(0);
+    }
+
+    @Test
+    @Order(1)
+    void calls_shouldBeSpreadOverInstances() {
+        for (int i = 0; i < 40; i++) {
+            assertNotNull(userClient.getUserById((long) i));
+        }
+
+        assertEquals(40, first.hits.get() + second.hits.get());
+        assertTrue(first.hits.get() > 0 && second.hits.get() > 0,
+            "first got " + first.hits.get() + ", second got " + second.hits.get());
+    }
+
+    @Test
+    @Order(2)
+    void slowInstance_shouldGetFewerConcurrentCalls() throws Exception {
+        first.delayMillis = 400;
+        second.delayMillis = 20;
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> callers = new ArrayList<>();
+            for (int caller = 0; caller < 4; caller++) {
+                callers.add(pool.submit(() -> {
+                    for (long id = 0; id < 10; id++) assertNotNull(userClient.getUserById(id));
+                }));
+            }
+            for (Future<?> caller : callers) caller.get();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertTrue(second.hits.get() > first.hits.get(),
+            "slow instance got " + first.hits.get() + ", fast one got " + second.hits.get());
+    }
+
+    @Test
+    @Order(3)
+    void failingInstance_shouldBeEjectedThenReadmitted() throws InterruptedException {
+        double ejections = meters.counter("loadbalancer.instance.ejections", "service", "user-service",
+            "instance", "localhost:" + first.port()).count();
+        first.status = 500;
+        for (int i = 0; i < 20; i++) {
+            try {
+                userClient.getUserById(1L);
+            } catch (RuntimeException e) {
+                // calls that reached the failing instance
+            }
+        }
+        assertEquals(3, first.hits.get(), "ejected after three consecutive failures");
+        assertEquals(ejections + 1, meters.counter("loadbalancer.instance.ejections", "service", "user-service",
+            "instance", "localhost:" + first.port()).count());
+
+        first.status = 200;
+        Thread.sleep(2100);
+        for (int i = 0; i < 20; i++) {
+            assertNotNull(userClient.getUserById(1L));
+        }
+        assertTrue(first.hits.get() > 3, "readmitted instance should take calls again");
+    }
+}
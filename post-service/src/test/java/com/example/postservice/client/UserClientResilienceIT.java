@@ -0,0 +1,255 @@
+package com.example.postservice.client;
+
+import com.example.userclient.BatchingUserClient;
+import com.example.userclient.UserClient;
+import com.sun.net.httpserver.HttpServer;
+import feign.FeignException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the real Feign user-service client against a local stub server whose latency and status
+ * code each test controls, checking timeouts, the bulkhead, the circuit breaker and the fallback.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class UserClientResilienceIT {
+
+    private static final UserServiceStub stub = UserServiceStub.start();
+
+    @DynamicPropertySource
+    static void stubbedUserService(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:resilience;DB_CLOSE_DELAY=-1");
+        registry.add("user-service.url", () -> "http://localhost:" + stub.port());
+        registry.add("spring.cloud.openfeign.client.config.user-service.read-timeout", () -> "300");
+        registry.add("resilience4j.bulkhead.instances.user-service.max-concurrent-calls", () -> "2");
+        registry.add("resilience4j.circuitbreaker.configs.user-service.sliding-window-size", () -> "4");
+        registry.add("resilience4j.circuitbreaker.configs.user-service.minimum-number-of-calls", () -> "4");
+        registry.add("resilience4j.circuitbreaker.configs.user-service.wait-duration-in-open-state", () -> "500ms");
+        registry.add("resilience4j.circuitbreaker.configs.user-service.permitted-number-of-calls-in-half-open-state", () -> "1");
+    }
+
+    @Autowired
+    private UserClient userClient;
+
+    @Autowired
+    private BatchingUserClient batchingUserClient;
+
+    @Autowired
+    private CircuitBreakerRegistry breakers;
+
+    @Autowired
+    private MeterRegistry meters;
+
+    @BeforeEach
+    void reset() {
+        stub.reset();
+        breakers.find("user-service").ifPresent(CircuitBreaker::reset);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.server.stop(0);
+    }
+
+    @Test
+    @Order(1)
+    void readTimeout_shouldFailFastWhenNothingIsKnown() {
+        userClient.getUserById(900L); // first call builds the client and its connection pool; time only the second
+        stub.delayMillis = 1500;
+
+        long start = System.nanoTime();
+        assertThrows(RuntimeException.class, () -> userClient.getUserById(900L));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 1000, "call took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    @Order(2)
+    void lastKnownUser_shouldBeServedWhileUserServiceFails() {
+        Object fresh = batchingUserClient.getUserById(1L);
+        double served = fallbacks("served");
+
+        stub.status = 503;
+        Object fallback = batchingUserClient.getUserById(1L);
+        Map<Long, Object> bulk = batchingUserClient.getUsersByIds(List.of(1L));
+
+        assertEquals(fresh, fallback);
+        assertEquals(fresh, bulk.get(1L));
+        assertEquals(served + 2, fallbacks("served"));
+        assertThrows(FeignException.ServiceUnavailable.class, () -> batchingUserClient.getUserById(2L));
+    }
+
+    @Test
+    @Order(3)
+    void clientErrors_shouldNotBeMaskedNorTripTheBreaker() {
+        batchingUserClient.getUserById(3L);
+
+        stub.status = 404;
+        for (int i = 0; i < 6; i++) {
+            assertThrows(FeignException.NotFound.class, () -> userClient.getUserById(3L));
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breakers.find("user-service").orElseThrow().getState());
+    }
+
+    @Test
+    @Order(4)
+    void breaker_shouldOpenOnFailuresAndCloseAfterHalfOpenProbe() throws InterruptedException {
+        double opened = transitions("CLOSED", "OPEN");
+        double closed = transitions("HALF_OPEN", "CLOSED");
+
+        stub.status = 500;
+        for (int i = 0; i < 4; i++) {
+            assertThrows(FeignException.InternalServerError.class, () -> userClient.getUserById(99L));
+        }
+        CircuitBreaker breaker = breakers.find("user-service").orElseThrow();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(opened + 1, transitions("CLOSED", "OPEN"));
+
+        int hits = stub.hits.get();
+        assertThrows(RuntimeException.class, () -> userClient.getUserById(99L));
+        assertEquals(hits, stub.hits.get(), "an open breaker must not reach user-service");
+
+        stub.status = 200;
+        Thread.sleep(600);
+        assertNotNull(userClient.getUserById(99L));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(closed + 1, transitions("HALF_OPEN", "CLOSED"));
+    }
+
+    @Test
+    @Order(5)
+    void bulkhead_shouldCapConcurrentCalls() throws Exception {
+        stub.delayMillis = 200;
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<Object>> calls = new ArrayList<>();
+        try {
+            for (int i = 0; i < 6; i++) {
+                long id = 1000 + i;
+                calls.add(pool.submit(() -> {
+                    go.await();
+                    return userClient.getUserById(id);
+                }));
+            }
+            go.countDown();
+            int rejected = 0;
+            for (Future<Object> call : calls) {
+                try {
+                    call.get();
+                } catch (Exception e) {
+                    rejected++;
+                }
+            }
+            assertTrue(rejected > 0, "some calls should have been shed");
+            assertTrue(stub.maxInFlight.get() <= 2, "user-service saw " + stub.maxInFlight.get() + " concurrent calls");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private double fallbacks(String outcome) {
+        return meters.counter("feign.fallback", "client", "user-service", "outcome", outcome).count();
+    }
+
+    private double transitions(String from, String to) {
+        return meters.counter("resilience4j.circuitbreaker.transitions", "name", "user-service", "from", from, "to", to).count();
+    }
+
+    /** Answers {@code /users/{id}} and {@code /users?ids=} with a configurable delay and status. */
+    static class UserServiceStub {
+        final HttpServer server;
+        final AtomicInteger hits = new AtomicInteger();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        volatile int status;
+        volatile long delayMillis;
+
+        private UserServiceStub(HttpServer server) {
+            this.server = server;
+        }
+
+        static UserServiceStub start() {
+            try {
+                HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+                UserServiceStub stub = new UserServiceStub(server);
+                server.createContext("/users", stub::handle);
+                server.setExecutor(Executors.newCachedThreadPool());
+                server.start();
+                stub.reset();
+                return stub;
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        int port() {
+            return server.getAddress().getPort();
+        }
+
+        void reset() {
+            status = 200;
+            delayMillis = 0;
+            hits.set(0);
+            maxInFlight.set(0);
+        }
+
+        private void handle(com.sun.net.httpserver.HttpExchange exchange) throws IOException {
+            hits.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                if (delayMillis > 0) Thread.sleep(delayMillis);
+                String body;
+                String query = exchange.getRequestURI().getQuery();
+                if (query != null && query.startsWith("ids=")) {
+                    List<String> users = new ArrayList<>();
+                    for (String id : query.substring(4).split(",")) users.add(user(id));
+                    body = "[" + String.join(",", users) + "]";
+                } else {
+                    String path = exchange.getRequestURI().getPath();
+                    body = user(path.substring(path.lastIndexOf('/') + 1));
+                }
+                byte[] bytes = (status == 200 ? body : "{}").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+                exchange.close();
+            }
+        }
+
+        private static String user(String id) {
+            return "{\"id\":" + id + ",\"username\":\"user" + id + "\"}";
+        }
+    }
+}
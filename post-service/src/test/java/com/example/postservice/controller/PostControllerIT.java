@@ -1,5 +1,10 @@
 package com.example.postservice.controller;
 
+import com.example.changeevents.ChangeEvent;
+import com.example.changeevents.ChangeEventDispatcher;
+import com.example.changeevents.ChangeEventFeed;
+import com.example.changeevents.ChangeEventRepository;
+import com.example.changeevents.ChangeEventSubscriber;
 import com.example.postservice.model.Post;
 import com.example.postservice.repository.PostRepository;
 import io.restassured.RestAssured;
@@ -7,11 +12,24 @@ import io.restassured.http.ContentType;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import static io.restassured.RestAssured.*;
 import static org.hamcrest.Matchers.*;
@@ -32,9 +50,50 @@ class PostControllerIT {
     @Autowired
     private PostRepository repo;
 
+    @Autowired
+    private com.example.userclient.BatchingUserClient batchingUserClient;
+
+    @Autowired
+    private ChangeEventRepository changeEvents;
+
+    @Autowired
+    private ChangeEventDispatcher dispatcher;
+
+    @Autowired
+    private ChangeEventFeed feed;
+
+    @Autowired
+    private org.springframework.jdbc.core.JdbcTemplate jdbc;
+
+    @Autowired
+    private io.micrometer.core.instrument.MeterRegistry registry;
+
+    @Autowired
+    private RecordingSubscriber subscriber;
+
+    /** In-process subscriber standing in for downstream caches. */
+    @TestConfiguration
+    static class SubscriberConfig {
+        @Bean
+        RecordingSubscriber recordingSubscriber() { return new RecordingSubscriber(); }
+    }
+
+    static class RecordingSubscriber implements ChangeEventSubscriber {
+        final List<ChangeEvent> received = new CopyOnWriteArrayList<>();
+        volatile boolean failing;
+        volatile boolean calledInTransaction;
+
+        @Override
+        public void onEvents(List<ChangeEvent> events) {
+            calledInTransaction |= TransactionSynchronizationManager.isActualTransactionActive();
+            if (failing) throw new IllegalStateException("subscriber down");
+            received.addAll(events);
+        }
+    }
+
     // Mock external Feign client
     @MockitoBean
-    private com.example.postservice.client.UserClient userClient;
+    private com.example.userclient.UserClient userClient;
 
     @BeforeEach
     void setup() {
@@ -138,4 +197,327 @@ class PostControllerIT {
                 .body("author.id", equalTo(42))
                 .body("author.name", equalTo("Mock User"));
     }
+
+    @Test
+    @Order(7)
+    void getAllPosts_shouldPageWithKeysetCursor() {
+        repo.saveAll(List.of(
+                new Post(null, "P1", "A", 1L),
+                new Post(null, "P2", "B", 1L),
+                new Post(null, "P3", "C", 1L)
+        ));
+
+        String cursor = given()
+                .queryParam("limit", 2)
+                .when()
+                .get("/posts")
+                .then()
+                .statusCode(200)
+                .body("size()", is(2))
+                .body("[1].title", equalTo("P2"))
+                .header("X-Next-Cursor", notNullValue())
+                .extract().header("X-Next-Cursor");
+
+        given()
+                .queryParam("afterId", cursor)
+                .queryParam("limit", 2)
+                .when()
+                .get("/posts")
+                .then()
+                .statusCode(200)
+                .body("size()", is(1))
+                .body("[0].title", equalTo("P3"))
+                .header("X-Next-Cursor", nullValue());
+    }
+
+    @Test
+    @Order(8)
+    void streamPosts_shouldWriteOneJsonObjectPerLine() {
+        repo.saveAll(List.of(
+                new Post(null, "First", "Content A", 1L),
+                new Post(null, "Second", "Content B", 2L)
+        ));
+
+        String body = when()
+                .get("/posts/stream")
+                .then()
+                .statusCode(200)
+                .contentType("application/x-ndjson")
+                .extract().asString();
+
+        String[] lines = body.split("\n");
+        Assertions.assertEquals(2, lines.length);
+        Assertions.assertTrue(lines[0].contains("\"title\":\"First\""));
+    }
+
+    @Test
+    @Order(9)
+    @SuppressWarnings("unchecked")
+    void batchingUserClient_shouldCoalesceConcurrentLookupsIntoOneBulkCall() throws Exception {
+        when(userClient.getUsersByIds(anyCollection())).thenAnswer(inv -> ((Collection<Long>) inv.getArgument(0)).stream()
+                .map(id -> Map.<String, Object>of("id", id, "name", "User " + id))
+                .collect(Collectors.toList()));
+
+        ExecutorService callers = Executors.newFixedThreadPool(3);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> results = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            long userId = id;
+            results.add(callers.submit(() -> { start.await(); return batchingUserClient.getUserById(userId); }));
+        }
+        start.countDown();
+
+        for (int i = 0; i < results.size(); i++) {
+            Assertions.assertEquals("User " + (i + 1), ((Map<String, Object>) results.get(i).get()).get("name"));
+        }
+        callers.shutdown();
+        verify(userClient, times(1)).getUsersByIds(anyCollection());
+        verify(userClient, never()).getUserById(anyLong());
+    }
+
+    @Test
+    @Order(10)
+    void writes_shouldBeRecordedInOutboxAndDispatchedToSubscribers() {
+        changeEvents.deleteAll();
+        subscriber.received.clear();
+
+        int id = given()
+                .contentType(ContentType.JSON)
+                .body(new Post(null, "Evented", "Body", 1L))
+                .when()
+                .post("/posts")
+                .then()
+                .statusCode(200)
+                .extract().path("id");
+        given()
+                .contentType(ContentType.JSON)
+                .body(new Post(null, "Evented again", "Body", 1L))
+                .when()
+                .put("/posts/{id}", id)
+                .then()
+                .statusCode(200);
+        when()
+                .delete("/posts/{id}", id)
+                .then()
+                .statusCode(204);
+
+        Assertions.assertEquals(3, changeEvents.count());
+
+        dispatcher.dispatchPending();
+
+        Assertions.assertEquals(0, changeEvents.countByDispatchedAtIsNull());
+        Assertions.assertEquals(
+                List.of(ChangeEvent.Type.CREATED, ChangeEvent.Type.UPDATED, ChangeEvent.Type.DELETED),
+                subscriber.received.stream().map(ChangeEvent::getType).collect(Collectors.toList()));
+        Assertions.assertTrue(subscriber.received.stream().allMatch(e -> e.getAggregateId() == id && "post".equals(e.getAggregateType())));
+    }
+
+    @Test
+    @Order(11)
+    void getPostsByIds_shouldReturnOnlyRequestedPosts() {
+        List<Post> saved = repo.saveAll(List.of(
+                new Post(null, "P1", "A", 1L),
+                new Post(null, "P2", "B", 1L),
+                new Post(null, "P3", "C", 1L)
+        ));
+
+        given()
+                .queryParam("ids", saved.get(0).getId() + "," + saved.get(2).getId() + ",999")
+                .when()
+                .get("/posts")
+                .then()
+                .statusCode(200)
+                .body("size()", is(2))
+                .body("title", containsInAnyOrder("P1", "P3"));
+    }
+
+    @Test
+    @Order(12)
+    void batch_shouldWriteJsonArrayAndReportEachRow() {
+        changeEvents.deleteAll();
+        Post existing = repo.save(new Post(null, "Old", "Body", 1L));
+        String tooLong = "x".repeat(300);
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(List.of(
+                        Map.of("title", "New", "content", "Body", "authorId", 1),
+                        Map.of("id", existing.getId(), "title", "Renamed", "content", "Body", "authorId", 1),
+                        Map.of("title", tooLong, "content", "Body", "authorId", 1),
+                        Map.of("id", 999999, "title", "Ghost", "content", "Body", "authorId", 1)))
+                .when()
+                .post("/posts/batch")
+                .then()
+                .statusCode(200)
+                .body("status", contains("CREATED", "UPDATED", "FAILED", "FAILED"))
+                .body("index", contains(0, 1, 2, 3))
+                .body("[0].id", notNullValue())
+                .body("[3].error", containsString("not found"));
+
+        Assertions.assertEquals(2, repo.count());
+        Assertions.assertEquals("Renamed", repo.findById(existing.getId()).get().getTitle());
+        Assertions.assertEquals(2, changeEvents.count());
+    }
+
+    @Test
+    @Order(13)
+    void batch_shouldAcceptNdjsonAndStopAtMalformedLine() {
+        String body = "{\"title\":\"A\",\"content\":\"1\",\"authorId\":1}\n"
+                + "{\"title\":\"B\",\"content\":\"2\",\"authorId\":1}\n"
+                + "{\"title\":\n";
+
+        given()
+                .contentType("application/x-ndjson")
+                .body(body.getBytes(StandardCharsets.UTF_8))
+                .when()
+                .post("/posts/batch")
+                .then()
+                .statusCode(200)
+                .body("status", contains("CREATED", "CREATED", "FAILED"))
+                .body("[2].error", containsString("malformed input"));
+
+        Assertions.assertEquals(2, repo.count());
+    }
+
+    @Test
+    @Order(14)
+    void conditionalRequests_shouldUseVersionAsETag() {
+        Post saved = repo.save(new Post(null, "Versioned", "Body", 1L));
+
+        String etag = when()
+                .get("/posts/{id}", saved.getId())
+                .then()
+                .statusCode(200)
+                .header("ETag", equalTo("\"0\""))
+                .extract().header("ETag");
+
+        given()
+                .header("If-None-Match", etag)
+                .when()
+                .get("/posts/{id}", saved.getId())
+                .then()
+                .statusCode(304);
+
+        String next = given()
+                .contentType(ContentType.JSON)
+                .header("If-Match", etag)
+                .body(new Post(null, "Edited", "Body", 1L))
+                .when()
+                .put("/posts/{id}", saved.getId())
+                .then()
+                .statusCode(200)
+                .header("ETag", equalTo("\"1\""))
+                .extract().header("ETag");
+
+        given()
+                .contentType(ContentType.JSON)
+                .header("If-Match", etag)
+                .body(new Post(null, "Edited", "Body", 1L))
+                .when()
+                .put("/posts/{id}", saved.getId())
+                .then()
+                .statusCode(412)
+                .header("ETag", equalTo(next));
+    }
+
+    @Test
+    @Order(15)
+    void search_shouldRankByBm25AndFollowWrites() {
+        int both = given().contentType(ContentType.JSON).body(new Post(null, "Quokka care", "Feeding a quokka", 1L))
+                .when().post("/posts").then().statusCode(200).extract().path("id");
+        int once = given().contentType(ContentType.JSON).body(new Post(null, "Wildlife", "Saw one quokka near the beach", 1L))
+                .when().post("/posts").then().statusCode(200).extract().path("id");
+        given().contentType(ContentType.JSON).body(new Post(null, "Unrelated", "Nothing here", 1L))
+                .when().post("/posts").then().statusCode(200);
+        feed.poll();
+
+        given()
+                .queryParam("q", "Quokka")
+                .when()
+                .get("/posts/search")
+                .then()
+                .statusCode(200)
+                .body("total", is(2))
+                .body("results.post.id", contains(both, once))
+                .body("results[0].score", greaterThan(0f));
+        given()
+                .queryParam("q", "quokka")
+                .queryParam("page", 1)
+                .queryParam("size", 1)
+                .when()
+                .get("/posts/search")
+                .then()
+                .statusCode(200)
+                .body("results.post.id", contains(once));
+
+        given().contentType(ContentType.JSON).body(new Post(null, "Wildlife", "Saw a wombat instead", 1L))
+                .when().put("/posts/{id}", once).then().statusCode(200);
+        when().delete("/posts/{id}", both).then().statusCode(204);
+        feed.poll();
+
+        given().queryParam("q", "quokka").when().get("/posts/search").then()
+                .statusCode(200)
+                .body("total", is(0));
+        given().queryParam("q", "wombat").when().get("/posts/search").then()
+                .statusCode(200)
+                .body("results.post.id", contains(once));
+        given().queryParam("q", " ").when().get("/posts/search").then().statusCode(400);
+        given().queryParam("q", "quokka").queryParam("size", 101).when().get("/posts/search").then().statusCode(400);
+    }
+
+    @Test
+    @Order(16)
+    void failedDelivery_shouldCountAttemptsPerEventOutsideTheTransaction() {
+        changeEvents.deleteAll();
+        subscriber.received.clear();
+        subscriber.failing = true;
+        try {
+            int first = given().contentType(ContentType.JSON).body(new Post(null, "First", "Body", 1L))
+                    .when().post("/posts").then().statusCode(200).extract().path("id");
+            for (int i = 0; i < 4; i++) dispatcher.dispatchPending();
+            int second = given().contentType(ContentType.JSON).body(new Post(null, "Second", "Body", 1L))
+                    .when().post("/posts").then().statusCode(200).extract().path("id");
+
+            dispatcher.dispatchPending();
+
+            // the fifth failure drops the first event; the second has failed once and stays queued
+            List<ChangeEvent> left = changeEvents.findAll().stream().filter(e -> e.getDispatchedAt() == null).collect(Collectors.toList());
+            Assertions.assertEquals(List.of((long) second), left.stream().map(ChangeEvent::getAggregateId).collect(Collectors.toList()));
+            Assertions.assertEquals(1, left.get(0).getAttempts());
+            Assertions.assertNull(left.get(0).getClaimedUntil());
+            Assertions.assertNotEquals(first, second);
+        } finally {
+            subscriber.failing = false;
+        }
+
+        dispatcher.dispatchPending();
+
+        Assertions.assertEquals(0, changeEvents.countByDispatchedAtIsNull());
+        Assertions.assertEquals(1, subscriber.received.size());
+        Assertions.assertFalse(subscriber.calledInTransaction, "no connection is held while subscribers run");
+    }
+
+    @Test
+    @Order(17)
+    void search_shouldFollowEveryCommittedWriteWhoeverDispatchesIt() {
+        feed.poll();
+        double before = registry.counter("change_events.feed.delivered").count();
+        int first = given().contentType(ContentType.JSON).body(new Post(null, "Numbat", "Body", 1L))
+                .when().post("/posts").then().statusCode(200).extract().path("id");
+        // another instance's dispatcher took the row; this instance still sees it
+        dispatcher.dispatchPending();
+        feed.poll();
+        int late = given().contentType(ContentType.JSON).body(new Post(null, "Numbat again", "Body", 1L))
+                .when().post("/posts").then().statusCode(200).extract().path("id");
+        // committed behind the high-water mark, as a long transaction or a slow clock on another instance would
+        jdbc.update("update change_events set occurred_at = occurred_at - interval '5' second where aggregate_id = ?", late);
+
+        feed.poll();
+        feed.poll();
+
+        Assertions.assertEquals(2, registry.counter("change_events.feed.delivered").count() - before, "each event once");
+        given().queryParam("q", "numbat").when().get("/posts/search").then()
+                .statusCode(200)
+                .body("results.post.id", containsInAnyOrder(first, late));
+    }
 }
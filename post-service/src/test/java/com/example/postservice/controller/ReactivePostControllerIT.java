@@ -0,0 +1,458 @@
+package com.example.postservice.controller;
+
+import com.example.changeevents.ChangeEvent;
+import com.example.changeevents.ChangeEventDispatcher;
+import com.example.changeevents.ChangeEventFeed;
+import com.example.changeevents.ChangeEventRepository;
+import com.example.changeevents.ChangeEventSubscriber;
+import com.example.postservice.model.Post;
+import com.example.postservice.repository.ReactivePostRepository;
+import com.sun.net.httpserver.HttpServer;
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static io.restassured.RestAssured.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * The {@link PostControllerIT} scenarios against the "reactive" profile: WebFlux on Netty, R2DBC and
+ * a WebClient to a stub user-service. Runs on its own in-memory database.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"reactive", "test"})
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ReactivePostControllerIT {
+
+    private static final HttpServer userService = startUserService();
+    private static volatile int userServiceStatus = 200;
+
+    @DynamicPropertySource
+    static void reactiveDatabase(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:reactive;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE");
+        registry.add("spring.r2dbc.url", () -> "r2dbc:h2:mem:///reactive?options=DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE");
+        registry.add("user-service.url", () -> "http://localhost:" + userService.getAddress().getPort());
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ReactivePostRepository repo;
+
+    @Autowired
+    private ChangeEventRepository changeEvents;
+
+    @Autowired
+    private ChangeEventDispatcher dispatcher;
+
+    @Autowired
+    private ChangeEventFeed feed;
+
+    @Autowired
+    private RecordingSubscriber subscriber;
+
+    /** In-process subscriber standing in for downstream caches. */
+    @TestConfiguration
+    static class SubscriberConfig {
+        @Bean
+        RecordingSubscriber recordingSubscriber() { return new RecordingSubscriber(); }
+    }
+
+    static class RecordingSubscriber implements ChangeEventSubscriber {
+        final List<ChangeEvent> received = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onEvents(List<ChangeEvent> events) { received.addAll(events); }
+    }
+
+    @BeforeEach
+    void setup() {
+        RestAssured.baseURI = "http://localhost";
+        RestAssured.port = port;
+        userServiceStatus = 200;
+        repo.deleteAll().block();
+    }
+
+    @AfterAll
+    static void stopUserService() {
+        userService.stop(0);
+    }
+
+    @Test
+    @Order(1)
+    void createPost_shouldReturnCreatedPost() {
+        given()
+                .contentType(ContentType.JSON)
+                .body(new Post(null, "My first post", "Hello world!", 1L))
+                .when()
+                .post("/posts")
+                .then()
+                .statusCode(200)
+                .body("id", notNullValue())
+                .body("title", equalTo("My first post"))
+                .body("content", equalTo("Hello world!"))
+                .body("authorId", equalTo(1));
+    }
+
+    @Test
+    @Order(2)
+    void getAllPosts_shouldReturnList() {
+        saveAll(new Post(null, "First", "Content A", 1L), new Post(null, "Second", "Content B", 2L));
+
+        when()
+                .get("/posts")
+                .then()
+                .statusCode(200)
+                .body("size()", is(2))
+                .body("[0].title", equalTo("First"));
+    }
+
+    @Test
+    @Order(3)
+    void getPostById_shouldReturnPost() {
+        Post saved = repo.save(new Post(null, "Find me", "Here I am", 1L)).block();
+
+        when()
+                .get("/posts/{id}", saved.getId())
+                .then()
+                .statusCode(200)
+                .body("id", equalTo(saved.getId().intValue()))
+                .body("title", equalTo("Find me"));
+        when()
+                .get("/posts/{id}", saved.getId() + 1000)
+                .then()
+                .statusCode(404);
+    }
+
+    @Test
+    @Order(4)
+    void updatePost_shouldModifyExisting() {
+        Post saved = repo.save(new Post(null, "Old title", "Old content", 1L)).block();
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(new Post(null, "New title", "Updated content", 2L))
+                .when()
+                .put("/posts/{id}", saved.getId())
+                .then()
+                .statusCode(200)
+                .body("title", equalTo("New title"))
+                .body("authorId", equalTo(2));
+    }
+
+    @Test
+    @Order(5)
+    void deletePost_shouldRemoveIt() {
+        Post saved = repo.save(new Post(null, "Delete me", "Will be gone", 1L)).block();
+
+        when()
+                .delete("/posts/{id}", saved.getId())
+                .then()
+                .statusCode(204);
+
+        Assertions.assertFalse(repo.existsById(saved.getId()).block());
+        when().delete("/posts/{id}", saved.getId()).then().statusCode(404);
+    }
+
+    @Test
+    @Order(6)
+    void getPostWithAuthor_shouldReturnPostAndAuthorFromUserService() {
+        Post saved = repo.save(new Post(null, "Post with author", "Author details", 42L)).block();
+
+        when()
+                .get("/posts/{id}/with-author", saved.getId())
+                .then()
+                .statusCode(200)
+                .body("post.id", equalTo(saved.getId().intValue()))
+                .body("post.title", equalTo("Post with author"))
+                .body("author.id", equalTo(42))
+                .body("author.name", equalTo("User 42"));
+    }
+
+    @Test
+    @Order(7)
+    void getAllPosts_shouldPageWithKeysetCursor() {
+        saveAll(new Post(null, "P1", "A", 1L), new Post(null, "P2", "B", 1L), new Post(null, "P3", "C", 1L));
+
+        String cursor = given()
+                .queryParam("limit", 2)
+                .when()
+                .get("/posts")
+                .then()
+                .statusCode(200)
+                .body("size()", is(2))
+                .body("[1].title", equalTo("P2"))
+                .header("X-Next-Cursor", notNullValue())
+                .extract().header("X-Next-Cursor");
+
+        given()
+                .queryParam("afterId", cursor)
+                .queryParam("limit", 2)
+                .when()
+                .get("/posts")
+                .then()
+                .statusCode(200)
+                .body("size()", is(1))
+                .body("[0].title", equalTo("P3"))
+                .header("X-Next-Cursor", nullValue());
+    }
+
+    @Test
+    @Order(8)
+    void streamPosts_shouldWriteOneJsonObjectPerLine() {
+        saveAll(new Post(null, "First", "Content A", 1L), new Post(null, "Second", "Content B", 2L));
+
+        String body = when()
+                .get("/posts/stream")
+                .then()
+                .statusCode(200)
+                .contentType("application/x-ndjson")
+                .extract().asString();
+
+        String[] lines = body.split("\n");
+        Assertions.assertEquals(2, lines.length);
+        Assertions.assertTrue(lines[0].contains("\"title\":\"First\""));
+    }
+
+    @Test
+    @Order(9)
+    void getPostWithAuthor_shouldServeLastKnownUserOnlyWhileUserServiceIsDown() {
+        Post known = repo.save(new Post(null, "Known author", "Body", 42L)).block();
+        Post unknown = repo.save(new Post(null, "Unknown author", "Body", 7L)).block();
+        userServiceStatus = 503;
+
+        when().get("/posts/{id}/with-author", known.getId()).then()
+                .statusCode(200)
+                .body("author.name", equalTo("User 42"));
+        when().get("/posts/{id}/with-author", unknown.getId()).then()
+                .statusCode(200)
+                .body("author.error", equalTo("unable to fetch user"));
+
+        // a 4xx is an answer, not an outage: the last-known user is not served in its place
+        userServiceStatus = 404;
+        when().get("/posts/{id}/with-author", known.getId()).then()
+                .statusCode(200)
+                .body("author.error", equalTo("unable to fetch user"));
+    }
+
+    @Test
+    @Order(10)
+    void writes_shouldBeRecordedInOutboxAndDispatchedToSubscribers() {
+        changeEvents.deleteAll();
+        subscriber.received.clear();
+
+        int id = given()
+                .contentType(ContentType.JSON)
+                .body(new Post(null, "Evented", "Body", 1L))
+                .when()
+                .post("/posts")
+                .then()
+                .statusCode(200)
+                .extract().path("id");
+        given()
+                .contentType(ContentType.JSON)
+                .body(new Post(null, "Evented again", "Body", 1L))
+                .when()
+                .put("/posts/{id}", id)
+                .then()
+                .statusCode(200);
+        when()
+                .delete("/posts/{id}", id)
+                .then()
+                .statusCode(204);
+
+        Assertions.assertEquals(3, changeEvents.count());
+
+        dispatcher.dispatchPending();
+
+        Assertions.assertEquals(0, changeEvents.countByDispatchedAtIsNull());
+        Assertions.assertEquals(
+                List.of(ChangeEvent.Type.CREATED, ChangeEvent.Type.UPDATED, ChangeEvent.Type.DELETED),
+                subscriber.received.stream().map(ChangeEvent::getType).collect(Collectors.toList()));
+        Assertions.assertTrue(subscriber.received.stream().allMatch(e -> e.getAggregateId() == id && "post".equals(e.getAggregateType())));
+    }
+
+    @Test
+    @Order(11)
+    void getPostsByIds_shouldReturnOnlyRequestedPosts() {
+        List<Post> saved = saveAll(new Post(null, "P1", "A", 1L), new Post(null, "P2", "B", 1L), new Post(null, "P3", "C", 1L));
+
+        given()
+                .queryParam("ids", saved.get(0).getId() + "," + saved.get(2).getId() + ",999")
+                .when()
+                .get("/posts")
+                .then()
+                .statusCode(200)
+                .body("size()", is(2))
+                .body("title", containsInAnyOrder("P1", "P3"));
+    }
+
+    @Test
+    @Order(12)
+    void batch_shouldWriteJsonArrayAndReportEachRow() {
+        changeEvents.deleteAll();
+        Post existing = repo.save(new Post(null, "Old", "Body", 1L)).block();
+        String tooLong = "x".repeat(300);
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(List.of(
+                        Map.of("title", "New", "content", "Body", "authorId", 1),
+                        Map.of("id", existing.getId(), "title", "Renamed", "content", "Body", "authorId", 1),
+                        Map.of("title", tooLong, "content", "Body", "authorId", 1),
+                        Map.of("id", 999999, "title", "Ghost", "content", "Body", "authorId", 1)))
+                .when()
+                .post("/posts/batch")
+                .then()
+                .statusCode(200)
+                .body("status", contains("CREATED", "UPDATED", "FAILED", "FAILED"))
+                .body("index", contains(0, 1, 2, 3))
+                .body("[0].id", notNullValue())
+                .body("[3].error", containsString("not found"));
+
+        Assertions.assertEquals(2, repo.count().block());
+        Assertions.assertEquals("Renamed", repo.findById(existing.getId()).block().getTitle());
+        Assertions.assertEquals(2, changeEvents.count());
+    }
+
+    @Test
+    @Order(13)
+    void batch_shouldAcceptNdjsonAndStopAtMalformedLine() {
+        String body = "{\"title\":\"A\",\"content\":\"1\",\"authorId\":1}\n"
+                + "{\"title\":\"B\",\"content\":\"2\",\"authorId\":1}\n"
+                + "{\"title\":\n";
+
+        given()
+                .contentType("application/x-ndjson")
+                .body(body.getBytes(StandardCharsets.UTF_8))
+                .when()
+                .post("/posts/batch")
+                .then()
+                .statusCode(200)
+                .body("status", contains("CREATED", "CREATED", "FAILED"))
+                .body("[2].error", containsString("malformed input"));
+
+        Assertions.assertEquals(2, repo.count().block());
+    }
+
+    @Test
+    @Order(14)
+    void conditionalRequests_shouldUseVersionAsETag() {
+        Post saved = repo.save(new Post(null, "Versioned", "Body", 1L)).block();
+
+        String etag = when()
+                .get("/posts/{id}", saved.getId())
+                .then()
+                .statusCode(200)
+                .header("ETag", equalTo("\"0\""))
+                .extract().header("ETag");
+
+        given()
+                .header("If-None-Match", etag)
+                .when()
+                .get("/posts/{id}", saved.getId())
+                .then()
+                .statusCode(304);
+
+        String next = given()
+                .contentType(ContentType.JSON)
+                .header("If-Match", etag)
+                .body(new Post(null, "Edited", "Body", 1L))
+                .when()
+                .put("/posts/{id}", saved.getId())
+                .then()
+                .statusCode(200)
+                .header("ETag", equalTo("\"1\""))
+                .extract().header("ETag");
+
+        given()
+                .contentType(ContentType.JSON)
+                .header("If-Match", etag)
+                .body(new Post(null, "Edited", "Body", 1L))
+                .when()
+                .put("/posts/{id}", saved.getId())
+                .then()
+                .statusCode(412)
+                .header("ETag", equalTo(next));
+    }
+
+    @Test
+    @Order(15)
+    void search_shouldRankByBm25AndFollowWrites() {
+        int both = given().contentType(ContentType.JSON).body(new Post(null, "Quokka care", "Feeding a quokka", 1L))
+                .when().post("/posts").then().statusCode(200).extract().path("id");
+        int once = given().contentType(ContentType.JSON).body(new Post(null, "Wildlife", "Saw one quokka near the beach", 1L))
+                .when().post("/posts").then().statusCode(200).extract().path("id");
+        given().contentType(ContentType.JSON).body(new Post(null, "Unrelated", "Nothing here", 1L))
+                .when().post("/posts").then().statusCode(200);
+        feed.poll();
+
+        given()
+                .queryParam("q", "Quokka")
+                .when()
+                .get("/posts/search")
+                .then()
+                .statusCode(200)
+                .body("total", is(2))
+                .body("results.post.id", contains(both, once))
+                .body("results[0].score", greaterThan(0f));
+
+        given().contentType(ContentType.JSON).body(new Post(null, "Wildlife", "Saw a wombat instead", 1L))
+                .when().put("/posts/{id}", once).then().statusCode(200);
+        when().delete("/posts/{id}", both).then().statusCode(204);
+        feed.poll();
+
+        given().queryParam("q", "quokka").when().get("/posts/search").then()
+                .statusCode(200)
+                .body("total", is(0));
+        given().queryParam("q", "wombat").when().get("/posts/search").then()
+                .statusCode(200)
+                .body("results.post.id", contains(once));
+        given().queryParam("q", " ").when().get("/posts/search").then().statusCode(400);
+    }
+
+    private List<Post> saveAll(Post... posts) {
+        return repo.saveAll(List.of(posts)).collectList().block();
+    }
+
+    /** Answers {@code GET /users/{id}} with {@code {id, name}}, or an empty body with {@link #userServiceStatus}. */
+    private static HttpServer startUserService() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/users", exchange -> {
+                String path = exchange.getRequestURI().getPath();
+                String id = path.substring(path.lastIndexOf('/') + 1);
+                int status = userServiceStatus;
+                byte[] body = (status == 200 ? "{\"id\":" + id + ",\"name\":\"User " + id + "\"}" : "{}")
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.readreplicas;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read/write split, on when {@code datasource.replicas.urls} lists one or more JDBC URLs. Read-only
+ * transactions (Spring Data's finders, and methods marked {@code @Transactional(readOnly = true)})
+ * read from the replicas; everything else, including work outside a transaction, uses the primary
+ * configured under {@code spring.datasource}. Replicas share its credentials, driver and
+ * {@code spring.datasource.hikari} settings and get their own pools of
+ * {@code datasource.replicas.maximum-pool-size}, published as {@code hikaricp.*}. Their
+ * {@code datasource.replicas.connection-timeout} is kept short, since a read that cannot get a replica
+ * connection goes to the primary anyway, and a replica that fails to give one is left out for
+ * {@code datasource.replicas.ejection-time}. Transactions routed to a replica read the entity and query
+ * caches but never fill them ({@link ReplicaCacheMode}).
+ * <p>
+ * Auto-configured in every module that depends on this one, ahead of Boot's data source and JPA
+ * transaction manager, which back off. Like Boot's pool it stays off in an application that also has an
+ * R2DBC connection factory, which keeps its own data sources and reads from the primary.
+ */
+@AutoConfiguration(after = R2dbcAutoConfiguration.class, before = {DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class})
+@ConditionalOnProperty("datasource.replicas.urls")
+@ConditionalOnMissingBean(type = "io.r2dbc.spi.ConnectionFactory")
+public class ReadReplicas {
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+  }
+
+  @Bean
+  ReadYourWrites readYourWrites(@Value("${datasource.read-your-writes.window:2s}") Duration window) {
+    return new ReadYourWrites(window);
+  }
+
+  @Bean
+  ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                                    ReadYourWrites readYourWrites, MeterRegistry registry, Environment environment,
+                                                    @Value("${datasource.replicas.urls}") List<String> urls,
+                                                    @Value("${datasource.replicas.maximum-pool-size:10}") int maximumPoolSize,
+                                                    @Value("${datasource.replicas.connection-timeout:250ms}") Duration connectionTimeout,
+                                                    @Value("${datasource.replicas.ejection-time:30s}") Duration ejectionTime) {
+    Binder binder = Binder.get(environment);
+    List<HikariDataSource> replicas = new ArrayList<>();
+    for (String url : urls) {
+      if (url.trim().isEmpty()) continue;
+      HikariDataSource replica = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+      binder.bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+      replica.setJdbcUrl(url.trim());
+      replica.setPoolName("replica-" + replicas.size());
+      replica.setMaximumPoolSize(maximumPoolSize);
+      replica.setConnectionTimeout(connectionTimeout.toMillis());
+      // a replica that is down when its pool starts fails like any other, rather than with an unchecked exception
+      replica.setInitializationFailTimeout(-1);
+      replica.setReadOnly(true);
+      replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+      replicas.add(replica);
+    }
+    return new ReplicaRoutingDataSource(primaryDataSource, replicas, readYourWrites, registry, ejectionTime);
+  }
+
+  /** Replaces Boot's JPA transaction manager. */
+  @Bean
+  PlatformTransactionManager transactionManager(ReplicaRoutingDataSource replicaRoutingDataSource,
+                                                ObjectProvider<TransactionManagerCustomizers> customizers) {
+    JpaTransactionManager transactionManager = new ReplicaCacheMode(replicaRoutingDataSource);
+    customizers.ifAvailable(c -> c.customize(transactionManager));
+    return transactionManager;
+  }
+
+  /** What JPA and everything else injects; defers the connection until the first statement so routing sees the transaction. */
+  @Bean
+  @Primary
+  DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+    return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+  }
+}
@@ -0,0 +1,72 @@
+package com.example.readreplicas;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Keeps a client that has just written on the primary for {@code window}, long enough for the
+ * replicas to catch up, so it reads back what it wrote. A committed write sets the
+ * {@value #COOKIE} cookie to the end of that window; requests carrying an unexpired one, and the rest
+ * of the writing request itself, read from the primary. Work outside an HTTP request is never pinned.
+ */
+public class ReadYourWrites extends OncePerRequestFilter {
+  public static final String COOKIE = "primary-until";
+  private static final String PINNED = ReadYourWrites.class.getName() + ".pinned";
+  private static final String WROTE = "wrote";
+
+  private final Duration window;
+
+  public ReadYourWrites(Duration window) {
+    this.window = window;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    Cookie[] cookies = request.getCookies();
+    if (cookies != null) {
+      for (Cookie cookie : cookies) {
+        if (COOKIE.equals(cookie.getName()) && unexpired(cookie.getValue())) request.setAttribute(PINNED, Boolean.TRUE);
+      }
+    }
+    chain.doFilter(request, response);
+  }
+
+  boolean isPinned() {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    return attributes != null && attributes.getAttribute(PINNED, RequestAttributes.SCOPE_REQUEST) != null;
+  }
+
+  /** Called after a write commits; a response already on the wire keeps only the in-request pin. */
+  void pin() {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (!(attributes instanceof ServletRequestAttributes)
+        || WROTE.equals(attributes.getAttribute(PINNED, RequestAttributes.SCOPE_REQUEST))) return;
+    attributes.setAttribute(PINNED, WROTE, RequestAttributes.SCOPE_REQUEST);
+    HttpServletResponse response = ((ServletRequestAttributes) attributes).getResponse();
+    if (response == null || response.isCommitted()) return;
+    Cookie cookie = new Cookie(COOKIE, String.valueOf(System.currentTimeMillis() + window.toMillis()));
+    cookie.setPath("/");
+    cookie.setHttpOnly(true);
+    cookie.setMaxAge((int) Math.max(1, window.getSeconds() + 1));
+    response.addCookie(cookie);
+  }
+
+  private static boolean unexpired(String until) {
+    try {
+      return Long.parseLong(until) > System.currentTimeMillis();
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+}
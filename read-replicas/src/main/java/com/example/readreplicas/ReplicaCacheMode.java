@@ -0,0 +1,34 @@
+package com.example.readreplicas;
+
+import jakarta.persistence.CacheStoreMode;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.hibernate.jpa.SpecHints.HINT_SPEC_CACHE_STORE_MODE;
+
+/**
+ * Keeps what replicas return out of Hibernate's entity and query caches. A transaction that will read
+ * from a replica has its session's store mode set to {@link CacheStoreMode#BYPASS}: it is still
+ * answered from entries already cached, but never caches a row that may lag the primary, which would
+ * otherwise be served for the cache's TTL, to clients pinned by {@link ReadYourWrites} as well. Every
+ * other transaction uses the cache as usual. A session property rather than a {@code CacheMode}, which
+ * Hibernate rederives from the properties on every {@code find}.
+ */
+class ReplicaCacheMode extends JpaTransactionManager {
+  private final ReplicaRoutingDataSource routing;
+
+  ReplicaCacheMode(ReplicaRoutingDataSource routing) {
+    this.routing = routing;
+  }
+
+  @Override
+  protected void doBegin(Object transaction, TransactionDefinition definition) {
+    super.doBegin(transaction, definition);
+    // the session outlives the transaction under open-in-view, so set the mode either way
+    EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(obtainEntityManagerFactory());
+    holder.getEntityManager().setProperty(HINT_SPEC_CACHE_STORE_MODE,
+        routing.readsFromReplica(definition.isReadOnly()) ? CacheStoreMode.BYPASS : CacheStoreMode.USE);
+  }
+}
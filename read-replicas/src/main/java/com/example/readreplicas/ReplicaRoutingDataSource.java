@@ -0,0 +1,154 @@
+package com.example.readreplicas;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out replica connections inside read-only transactions and primary connections everywhere
+ * else. Replicas are used in turn; one that cannot give a connection is left out for
+ * {@code ejectFor}, and the read goes to the next one or, with none left, to the primary instead of
+ * failing. Requests pinned by {@link ReadYourWrites} read from the primary too, and the commit of a
+ * transaction that used the primary pins the current request. Connections for other credentials
+ * always come from the primary.
+ * <p>
+ * Must sit behind a {@code LazyConnectionDataSourceProxy}: the transaction manager asks for a
+ * connection before the read-only flag is visible, the proxy defers that to the first statement.
+ * Connections are counted in {@code datasource.connections.routed{target}}, reads that fell back to
+ * the primary in {@code datasource.replica.unavailable}, and ejections in
+ * {@code datasource.replica.ejections{pool}}.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+  private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+  private final DataSource primary;
+  private final List<Replica> replicas = new ArrayList<>();
+  private final long ejectNanos;
+  private final ReadYourWrites readYourWrites;
+  private final AtomicInteger next = new AtomicInteger();
+  private final Counter toPrimary;
+  private final Counter toReplica;
+  private final Counter replicaUnavailable;
+
+  public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas, ReadYourWrites readYourWrites,
+                                  MeterRegistry registry, Duration ejectFor) {
+    this.primary = primary;
+    replicas.forEach(pool -> this.replicas.add(new Replica(pool, registry)));
+    this.ejectNanos = ejectFor.toNanos();
+    this.readYourWrites = readYourWrites;
+    this.toPrimary = registry.counter("datasource.connections.routed", "target", "primary");
+    this.toReplica = registry.counter("datasource.connections.routed", "target", "replica");
+    this.replicaUnavailable = registry.counter("datasource.replica.unavailable");
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    if (readsFromReplica()) {
+      for (int tried = 0; tried < replicas.size(); tried++) {
+        Replica replica = nextReplica();
+        if (replica == null) break;
+        try {
+          Connection connection = replica.pool.getConnection();
+          toReplica.increment();
+          return connection;
+        } catch (SQLException e) {
+          log.warn("Replica {} unavailable, leaving it out for {} ms: {}", replica.pool.getPoolName(), ejectNanos / 1_000_000,
+              e.toString());
+          replica.eject(System.nanoTime() + ejectNanos);
+        }
+      }
+      replicaUnavailable.increment();
+    } else {
+      pinAfterCommit();
+    }
+    toPrimary.increment();
+    return primary.getConnection();
+  }
+
+  /** Replicas share the primary's credentials, so a connection for any others is the primary's to give or refuse. */
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    pinAfterCommit();
+    toPrimary.increment();
+    return primary.getConnection(username, password);
+  }
+
+  @Override
+  public void close() {
+    replicas.forEach(replica -> replica.pool.close());
+  }
+
+  /** The next replica in turn that is not ejected, or null when every one is. */
+  private Replica nextReplica() {
+    long now = System.nanoTime();
+    int start = next.getAndIncrement();
+    for (int i = 0; i < replicas.size(); i++) {
+      Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+      if (!replica.isEjected(now)) return replica;
+    }
+    return null;
+  }
+
+  private boolean readsFromReplica() {
+    return readsFromReplica(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+  }
+
+  /** Whether a transaction of this kind, begun on the current request, is routed to a replica. */
+  boolean readsFromReplica(boolean readOnly) {
+    return !replicas.isEmpty() && readOnly && !readYourWrites.isPinned();
+  }
+
+  /** Once per read-write transaction: its commit keeps this client on the primary until replicas catch up. */
+  private void pinAfterCommit() {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()
+        || TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+        || TransactionSynchronizationManager.hasResource(this)) return;
+    TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        readYourWrites.pin();
+      }
+
+      @Override
+      public void afterCompletion(int status) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(ReplicaRoutingDataSource.this);
+      }
+    });
+  }
+
+  private static final class Replica {
+    final HikariDataSource pool;
+    final Counter ejections;
+    volatile long ejectedUntil;
+
+    Replica(HikariDataSource pool, MeterRegistry registry) {
+      this.pool = pool;
+      this.ejections = registry.counter("datasource.replica.ejections", "pool", pool.getPoolName());
+      this.ejectedUntil = System.nanoTime();
+    }
+
+    boolean isEjected(long now) {
+      return now - ejectedUntil < 0;
+    }
+
+    void eject(long until) {
+      ejectedUntil = until;
+      ejections.increment();
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package com.example.sqlinstrumentation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Flags requests that ran the same SELECT {@code threshold} or more times, the shape of a lazy load or
+ * lookup inside a loop that one query could have done. Each one found is logged and counted in
+ * {@code datasource.n_plus_one{uri,method}}. Only statements on the request thread are seen; batched
+ * executions are not counted.
+ */
+public class NPlusOneDetector extends OncePerRequestFilter {
+  private static final Logger log = LoggerFactory.getLogger(NPlusOneDetector.class);
+  private static final ThreadLocal<Map<String, Repeats>> SELECTS = new ThreadLocal<>();
+
+  private final MeterRegistry registry;
+  private final int threshold;
+
+  public NPlusOneDetector(MeterRegistry registry, int threshold) {
+    this.registry = registry;
+    this.threshold = threshold;
+  }
+
+  /** Called for every SELECT; a no-op off the request thread. */
+  static void record(String sql, String method) {
+    Map<String, Repeats> selects = SELECTS.get();
+    if (selects != null) selects.computeIfAbsent(sql, s -> new Repeats(method)).count++;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    Map<String, Repeats> selects = new HashMap<>();
+    SELECTS.set(selects);
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      SELECTS.remove();
+      report(request, selects);
+    }
+  }
+
+  private void report(HttpServletRequest request, Map<String, Repeats> selects) {
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+    for (Map.Entry<String, Repeats> select : selects.entrySet()) {
+      Repeats repeats = select.getValue();
+      if (repeats.count < threshold) continue;
+      registry.counter("datasource.n_plus_one", "uri", uri, "method", repeats.method).increment();
+      log.warn("Possible N+1 select http_method={} uri={} method={} executions={} sql=\"{}\"", request.getMethod(), uri,
+          repeats.method, repeats.count, select.getKey());
+    }
+  }
+
+  private static final class Repeats {
+    final String method;
+    int count;
+
+    Repeats(String method) { this.method = method; }
+  }
+}
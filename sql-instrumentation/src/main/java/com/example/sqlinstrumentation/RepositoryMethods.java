@@ -0,0 +1,43 @@
+package com.example.sqlinstrumentation;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+/**
+ * Names the Spring Data repository method running on this thread, as {@code UserRepository.findById},
+ * so {@link StatementMetrics} can attribute each statement to it. The outermost repository call wins,
+ * and it spans a transaction the repository opens itself; statements Hibernate defers to the commit of
+ * a caller's transaction, and queries made through the EntityManager directly, count as {@value #NONE}.
+ */
+public class RepositoryMethods implements BeanPostProcessor {
+  public static final String NONE = "none";
+  private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+  static String current() {
+    String method = CURRENT.get();
+    return method == null ? NONE : method;
+  }
+
+  @Override
+  public Object postProcessBeforeInitialization(Object bean, String beanName) {
+    if (bean instanceof RepositoryFactoryBeanSupport) {
+      ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+          factory.addRepositoryProxyPostProcessor((proxy, repository) ->
+              proxy.addAdvice(0, naming(repository.getRepositoryInterface().getSimpleName()))));
+    }
+    return bean;
+  }
+
+  private static MethodInterceptor naming(String repository) {
+    return invocation -> {
+      if (CURRENT.get() != null) return invocation.proceed();
+      CURRENT.set(repository + "." + invocation.getMethod().getName());
+      try {
+        return invocation.proceed();
+      } finally {
+        CURRENT.remove();
+      }
+    };
+  }
+}
@@ -0,0 +1,54 @@
+package com.example.sqlinstrumentation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Statement-level visibility that does not cost what {@code spring.jpa.show-sql} does: the
+ * {@code dataSource} bean, whichever configuration declared it, is wrapped in a datasource-proxy that
+ * reports to {@link StatementMetrics}. Statements at or over {@code sql.slow-statement.threshold} are
+ * logged at a {@code sql.slow-statement.sample-rate} rate; a request running one SELECT
+ * {@code sql.n-plus-one.threshold} times is reported by {@link NPlusOneDetector}. Auto-configured in
+ * every module that depends on this one.
+ */
+@AutoConfiguration
+public class SqlInstrumentation {
+
+  @Bean
+  static RepositoryMethods repositoryMethods() {
+    return new RepositoryMethods();
+  }
+
+  @Bean
+  static BeanPostProcessor statementTimingDataSource(ObjectProvider<StatementMetrics> statementMetrics) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!"dataSource".equals(beanName) || !(bean instanceof DataSource)) return bean;
+        return ProxyDataSourceBuilder.create(beanName, (DataSource) bean).listener(statementMetrics.getObject()).build();
+      }
+    };
+  }
+
+  @Bean
+  StatementMetrics statementMetrics(MeterRegistry registry,
+                                    @Value("${sql.slow-statement.threshold:200ms}") Duration threshold,
+                                    @Value("${sql.slow-statement.sample-rate:0.1}") double sampleRate) {
+    return new StatementMetrics(registry, threshold, sampleRate);
+  }
+
+  @Bean
+  @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+  NPlusOneDetector nPlusOneDetector(MeterRegistry registry, @Value("${sql.n-plus-one.threshold:10}") int threshold) {
+    return new NPlusOneDetector(registry, threshold);
+  }
+}
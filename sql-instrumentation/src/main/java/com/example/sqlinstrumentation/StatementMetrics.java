@@ -0,0 +1,68 @@
+package com.example.sqlinstrumentation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.QueryType;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every JDBC statement into {@code datasource.statements{method,type,outcome}}, a histogram
+ * tagged with the repository method that ran it (see {@link RepositoryMethods}). Statements taking
+ * {@code slowThreshold} or longer are counted in {@code datasource.statements.slow{method}}, and a
+ * {@code sampleRate} share of them logged with their SQL, never their parameters. SELECTs also feed
+ * the {@link NPlusOneDetector}.
+ */
+public class StatementMetrics implements QueryExecutionListener {
+  private static final Logger log = LoggerFactory.getLogger(StatementMetrics.class);
+  private static final String STARTED = StatementMetrics.class.getName() + ".started";
+
+  private final MeterRegistry registry;
+  private final Timer.MeterProvider<Timer> timers;
+  private final long slowNanos;
+  private final double sampleRate;
+
+  public StatementMetrics(MeterRegistry registry, Duration slowThreshold, double sampleRate) {
+    this.registry = registry;
+    this.timers = Timer.builder("datasource.statements")
+        .publishPercentileHistogram()
+        .minimumExpectedValue(Duration.ofMillis(1))
+        .maximumExpectedValue(Duration.ofSeconds(10))
+        .withRegistry(registry);
+    this.slowNanos = slowThreshold.toNanos();
+    this.sampleRate = sampleRate;
+  }
+
+  @Override
+  public void beforeQuery(ExecutionInfo execution, List<QueryInfo> queries) {
+    execution.addCustomValue(STARTED, System.nanoTime());
+  }
+
+  @Override
+  public void afterQuery(ExecutionInfo execution, List<QueryInfo> queries) {
+    long nanos = System.nanoTime() - execution.getCustomValue(STARTED, Long.class);
+    String method = RepositoryMethods.current();
+    String sql = queries.isEmpty() ? "" : queries.get(0).getQuery();
+    QueryType type = QueryUtils.getQueryType(sql);
+    timers.withTags("method", method, "type", type.name().toLowerCase(Locale.ROOT),
+        "outcome", execution.isSuccess() ? "success" : "error").record(nanos, TimeUnit.NANOSECONDS);
+    if (nanos >= slowNanos) {
+      registry.counter("datasource.statements.slow", "method", method).increment();
+      if (ThreadLocalRandom.current().nextDouble() < sampleRate) {
+        log.warn("Slow statement method={} type={} elapsed_ms={} batch_size={} sql=\"{}\"", method,
+            type.name().toLowerCase(Locale.ROOT), nanos / 1_000_000, execution.isBatch() ? execution.getBatchSize() : 1, sql);
+      }
+    }
+    if (type == QueryType.SELECT && !execution.isBatch()) NPlusOneDetector.record(sql, method);
+  }
+}
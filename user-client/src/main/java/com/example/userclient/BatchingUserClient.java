@@ -0,0 +1,123 @@
+package com.example.userclient;
+
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Front for {@link UserClient} that coalesces concurrent single-user lookups.
+ * The first caller of a batch waits {@code user-client.batch.window-ms} for others to join,
+ * then resolves every collected id with one {@code GET /users?ids=...} call. Every user resolved
+ * is handed to {@link UserClientFallbackFactory} as last-known-good data.
+ */
+public class BatchingUserClient {
+  private final UserClient delegate;
+  private final UserClientFallbackFactory lastKnown;
+  private final long windowMillis;
+  private final int maxBatchSize;
+  private final long timeoutMillis;
+
+  private Batch open;
+
+  public BatchingUserClient(UserClient delegate, UserClientFallbackFactory lastKnown,
+                            @Value("${user-client.batch.window-ms:5}") long windowMillis,
+                            @Value("${user-client.batch.max-size:100}") int maxBatchSize,
+                            @Value("${user-client.batch.timeout-ms:2000}") long timeoutMillis) {
+    this.delegate = delegate;
+    this.lastKnown = lastKnown;
+    this.windowMillis = windowMillis;
+    this.maxBatchSize = maxBatchSize;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  public Object getUserById(Long id) {
+    Batch batch;
+    CompletableFuture<Object> call;
+    boolean leader = false, full = false;
+    synchronized (this) {
+      if (open == null) { open = new Batch(); leader = true; }
+      batch = open;
+      call = batch.calls.computeIfAbsent(id, k -> new CompletableFuture<>());
+      if (batch.calls.size() >= maxBatchSize) { open = null; full = true; }
+    }
+    if (full) {
+      dispatch(batch);
+    } else if (leader) {
+      pause();
+      synchronized (this) {
+        if (open == batch) open = null; else batch = null; // already dispatched by whoever filled it
+      }
+      if (batch != null) dispatch(batch);
+    }
+    return await(call);
+  }
+
+  /** Resolves many ids directly, chunked to the batch size; ids user-service does not know are left out. */
+  public Map<Long, Object> getUsersByIds(Collection<Long> ids) {
+    List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+    Map<Long, Object> users = new LinkedHashMap<>();
+    for (int i = 0; i < distinct.size(); i += maxBatchSize) {
+      for (Map<String, Object> user : delegate.getUsersByIds(distinct.subList(i, Math.min(i + maxBatchSize, distinct.size())))) {
+        Long id = ((Number) user.get("id")).longValue();
+        users.put(id, user);
+        lastKnown.remember(id, user);
+      }
+    }
+    return users;
+  }
+
+  private void dispatch(Batch batch) {
+    try {
+      if (batch.calls.size() == 1) {
+        Map.Entry<Long, CompletableFuture<Object>> only = batch.calls.entrySet().iterator().next();
+        Object user = delegate.getUserById(only.getKey());
+        lastKnown.remember(only.getKey(), user);
+        only.getValue().complete(user);
+        return;
+      }
+      Map<Long, Object> users = getUsersByIds(batch.calls.keySet());
+      batch.calls.forEach((id, call) -> {
+        Object user = users.get(id);
+        if (user != null) call.complete(user);
+        else call.completeExceptionally(new NoSuchElementException("user " + id + " not found"));
+      });
+    } catch (RuntimeException e) {
+      batch.calls.values().forEach(call -> call.completeExceptionally(e));
+    }
+  }
+
+  private void pause() {
+    try {
+      Thread.sleep(windowMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private Object await(CompletableFuture<Object> call) {
+    try {
+      return call.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+    } catch (TimeoutException e) {
+      throw new IllegalStateException("user lookup timed out after " + timeoutMillis + " ms", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class Batch {
+    final Map<Long, CompletableFuture<Object>> calls = new LinkedHashMap<>();
+  }
+}
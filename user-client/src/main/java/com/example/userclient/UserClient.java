@@ -0,0 +1,24 @@
+package com.example.userclient;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.cloud.openfeign.FeignClient;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * user-service over HTTP, spread over its instances (see loadbalancing.LoadBalancing). Calls go through the
+ * {@code user-service} bulkhead and circuit breaker of the calling service (its client.ClientResilience);
+ * failures fall back to {@link UserClientFallbackFactory}.
+ */
+@FeignClient(name = "user-service", fallbackFactory = UserClientFallbackFactory.class)
+public interface UserClient {
+  @GetMapping("/users/{id}")
+  Object getUserById(@PathVariable("id") Long id);
+
+  @GetMapping("/users")
+  List<Map<String, Object>> getUsersByIds(@RequestParam("ids") Collection<Long> ids);
+}
@@ -0,0 +1,73 @@
+package com.example.userclient;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import feign.FeignException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.openfeign.FallbackFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Last-known-good users for when user-service times out, fails, is shed by the bulkhead or is
+ * short-circuited by the breaker. {@link BatchingUserClient} remembers every user it resolves; the
+ * fallback serves those and rethrows the original failure for users it never saw. A 4xx is an answer,
+ * not an outage, and is always rethrown. Outcomes are counted as {@code feign.fallback{client,outcome}}.
+ */
+public class UserClientFallbackFactory implements FallbackFactory<UserClient> {
+  private final Cache<Long, Object> lastKnown;
+  private final MeterRegistry registry;
+
+  public UserClientFallbackFactory(MeterRegistry registry,
+                                   @Value("${user-client.last-known.maximum-size:10000}") long maximumSize,
+                                   @Value("${user-client.last-known.ttl:1h}") Duration ttl) {
+    this.registry = registry;
+    this.lastKnown = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl).recordStats().build();
+    CaffeineCacheMetrics.monitor(registry, lastKnown, "user-last-known");
+  }
+
+  /** Records a user as returned by user-service; a user served from here is not re-recorded, so it still expires. */
+  public void remember(Long id, Object user) {
+    if (user != null && lastKnown.asMap().get(id) != user) lastKnown.put(id, user);
+  }
+
+  @Override
+  public UserClient create(Throwable cause) {
+    return new UserClient() {
+      @Override
+      public Object getUserById(Long id) {
+        Object user = cause instanceof FeignException.FeignClientException ? null : lastKnown.getIfPresent(id);
+        if (user == null) throw rethrow(cause);
+        count("served");
+        return user;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public List<Map<String, Object>> getUsersByIds(Collection<Long> ids) {
+        List<Map<String, Object>> users = new ArrayList<>();
+        if (!(cause instanceof FeignException.FeignClientException)) {
+          lastKnown.getAllPresent(ids).values().forEach(user -> users.add((Map<String, Object>) user));
+        }
+        if (users.isEmpty() && !ids.isEmpty()) throw rethrow(cause);
+        count(users.size() < ids.size() ? "partial" : "served");
+        return users;
+      }
+    };
+  }
+
+  private RuntimeException rethrow(Throwable cause) {
+    count("rethrown");
+    return cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+  }
+
+  private void count(String outcome) {
+    registry.counter("feign.fallback", "client", "user-service", "outcome", outcome).increment();
+  }
+}
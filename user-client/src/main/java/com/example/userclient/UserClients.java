@@ -0,0 +1,17 @@
+package com.example.userclient;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.context.annotation.Import;
+
+/**
+ * The services' way to user-service: the {@link UserClient} Feign client, {@link BatchingUserClient} in
+ * front of it, and {@link UserClientFallbackFactory} with the last-known users it falls back to. Tuned
+ * with the {@code user-client.*} properties; the bulkhead and circuit breaker around the calls stay with
+ * each application. Auto-configured in every module that depends on this one.
+ */
+@AutoConfiguration
+@EnableFeignClients(clients = UserClient.class)
+@Import({UserClientFallbackFactory.class, BatchingUserClient.class})
+public class UserClients {
+}
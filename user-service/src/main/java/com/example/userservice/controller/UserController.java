@@ -1,42 +1,172 @@
 package com.example.userservice.controller;
 
+import com.example.batchwrites.BatchRowResult;
+import com.example.batchwrites.BatchWriter;
+import com.example.changeevents.ChangeEvent;
+import com.example.changeevents.ChangeEventOutbox;
+import com.example.etags.ETags;
 import com.example.userservice.model.User;
 import com.example.userservice.repository.UserRepository;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.OptimisticLockException;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/users")
 public class UserController {
+  static final int MAX_PAGE_SIZE = 1000;
+
   private final UserRepository repo;
-  public UserController(UserRepository repo) { this.repo = repo; }
+  private final ChangeEventOutbox outbox;
+  private final BatchWriter batchWriter;
+  private final EntityManager em;
+  private final TransactionTemplate readOnlyTx;
+  private final ObjectMapper mapper;
+
+  public UserController(UserRepository repo, ChangeEventOutbox outbox, BatchWriter batchWriter,
+                        EntityManager em, PlatformTransactionManager txManager, ObjectMapper mapper) {
+    this.repo = repo; this.outbox = outbox; this.batchWriter = batchWriter; this.em = em; this.mapper = mapper;
+    this.readOnlyTx = new TransactionTemplate(txManager);
+    this.readOnlyTx.setReadOnly(true);
+  }
 
+  /**
+   * Keyset page of users ordered by id. Pass the {@code X-Next-Cursor} response header
+   * back as {@code afterId} to fetch the next page; the header is absent on the last page.
+   */
   @GetMapping
-  public List<User> all() { return repo.findAll(); }
+  public ResponseEntity<List<User>> all(@RequestParam(value = "afterId", defaultValue = "0") Long afterId,
+                                        @RequestParam(value = "limit", defaultValue = "100") int limit) {
+    int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    List<User> page = repo.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(size));
+    ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+    if (page.size() == size) ok.header("X-Next-Cursor", String.valueOf(page.get(size - 1).getId()));
+    return ok.body(page);
+  }
 
+  /**
+   * Streams every user as newline-delimited JSON straight from a JDBC cursor.
+   * Rows are detached as soon as they are written, so heap use does not grow with the table.
+   */
+  @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> stream() {
+    StreamingResponseBody body = out -> readOnlyTx.executeWithoutResult(status -> {
+      try (Stream<User> rows = repo.streamAll()) {
+        rows.forEach(u -> {
+          try {
+            out.write(mapper.writeValueAsBytes(u));
+            out.write('\n');
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          em.detach(u);
+        });
+      }
+    });
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+  }
+
+  /**
+   * Bulk lookup used by other services to resolve many authors in one round trip. Users already in the
+   * entity cache are taken from it; one query loads the rest.
+   */
+  @GetMapping(params = "ids")
+  public ResponseEntity<List<User>> byIds(@RequestParam("ids") List<Long> ids) {
+    if (ids.size() > MAX_PAGE_SIZE) return ResponseEntity.badRequest().build();
+    List<User> users = readOnlyTx.execute(status ->
+        em.unwrap(Session.class).byMultipleIds(User.class).with(CacheMode.NORMAL).multiLoad(ids));
+    users.removeIf(Objects::isNull);
+    return ResponseEntity.ok(users);
+  }
+
+  /** Carries a strong ETag; a matching {@code If-None-Match} gets 304 without a body. */
   @GetMapping("/{id}")
   public ResponseEntity<User> get(@PathVariable("id") Long id) {
-    return repo.findById(id).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+    return repo.findById(id).map(user -> ResponseEntity.ok().eTag(ETags.of(user.getVersion())).body(user))
+        .orElse(ResponseEntity.notFound().build());
   }
 
   @PostMapping
-  public User create(@RequestBody User user) { return repo.save(user); }
+  @Transactional
+  public User create(@RequestBody User user) {
+    user.setVersion(null);
+    User saved = repo.save(user);
+    outbox.record("user", saved.getId(), ChangeEvent.Type.CREATED);
+    return saved;
+  }
+
+  /**
+   * Creates or updates users from a JSON array or an NDJSON stream: rows without an id are inserted,
+   * rows with one update that user (and fail if they carry a stale {@code version}). Returns one result
+   * per input row, in input order.
+   */
+  @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+  public List<BatchRowResult> batch(InputStream body) throws IOException {
+    MappingIterator<User> rows = mapper.readerFor(User.class).readValues(body);
+    return batchWriter.write(rows, "user", row -> {
+      if (row.getId() == null) return BatchRowResult.created(repo.save(new User(null, row.getName(), row.getEmail())).getId());
+      User user = repo.findById(row.getId())
+          .orElseThrow(() -> new EntityNotFoundException("user " + row.getId() + " not found"));
+      if (row.getVersion() != null && !row.getVersion().equals(user.getVersion())) {
+        throw new OptimisticLockException("user " + row.getId() + " is at version " + user.getVersion());
+      }
+      user.setName(row.getName());
+      user.setEmail(row.getEmail());
+      return BatchRowResult.updated(user.getId());
+    });
+  }
 
+  /** With {@code If-Match}, updates only if the client holds the current version; otherwise 412. */
   @PutMapping("/{id}")
-  public ResponseEntity<User> update(@PathVariable("id") Long id, @RequestBody User u) {
+  @Transactional
+  public ResponseEntity<User> update(@PathVariable("id") Long id, @RequestBody User u,
+                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     return repo.findById(id).map(user -> {
+      if (!ETags.ifMatch(ifMatch, user.getVersion())) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).eTag(ETags.of(user.getVersion())).<User>build();
+      }
       user.setName(u.getName());
       user.setEmail(u.getEmail());
-      return ResponseEntity.ok(repo.save(user));
+      User saved = repo.saveAndFlush(user);
+      outbox.record("user", id, ChangeEvent.Type.UPDATED);
+      return ResponseEntity.ok().eTag(ETags.of(saved.getVersion())).body(saved);
     }).orElse(ResponseEntity.notFound().build());
   }
 
   @DeleteMapping("/{id}")
+  @Transactional
   public ResponseEntity<Void> delete(@PathVariable("id") Long id) {
     if (!repo.existsById(id)) return ResponseEntity.notFound().build();
     repo.deleteById(id);
+    outbox.record("user", id, ChangeEvent.Type.DELETED);
     return ResponseEntity.noContent().build();
   }
+
+  /** A concurrent update won between our read and the write; the client's copy is stale. */
+  @ExceptionHandler(OptimisticLockingFailureException.class)
+  public ResponseEntity<Void> staleVersion(OptimisticLockingFailureException e) {
+    return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+  }
 }
@@ -1,20 +1,30 @@
 package com.example.userservice.model;
 
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @NoArgsConstructor
-@AllArgsConstructor
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 public class User {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+  @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
   private Long id;
 
   private String name;
   private String email;
+  /** Bumped on every update; doubles as the optimistic lock and the ETag. */
+  @Version
+  private Long version;
+
+  public User(Long id, String name, String email) {
+    this.id = id; this.name = name; this.email = email;
+  }
 
   // getters/setters
   public Long getId() { return id; }
@@ -23,4 +33,6 @@ public class User {
   public void setName(String name) { this.name = name; }
   public String getEmail() { return email; }
   public void setEmail(String email) { this.email = email; }
+  public Long getVersion() { return version; }
+  public void setVersion(Long version) { this.version = version; }
 }
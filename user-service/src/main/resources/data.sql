@@ -1,4 +1,5 @@
-INSERT INTO users (name, email) VALUES
-                                    ('Alice', 'alice@example.com'),
-                                    ('Bob', 'bob@example.com'),
-                                    ('Charlie', 'charlie@example.com');
+INSERT INTO users (id, name, email, version) VALUES
+                                    (1, 'Alice', 'alice@example.com', 0),
+                                    (2, 'Bob', 'bob@example.com', 0),
+                                    (3, 'Charlie', 'charlie@example.com', 0)
+ON CONFLICT (id) DO NOTHING;
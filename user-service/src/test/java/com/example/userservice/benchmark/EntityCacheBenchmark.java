@@ -0,0 +1,101 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.UserServiceApplication;
+import com.example.userservice.controller.UserController;
+import com.example.userservice.model.User;
+import com.example.userservice.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Author lookups as post-service and comment-service make them, {@code GET /users/{id}} and the
+ * {@code GET /users?ids=} bulk lookup over a hot set of users, with the second-level cache off and on.
+ * Each iteration also prints the SQL statements sent per operation, the round trips the cache saves;
+ * against the in-memory test database a round trip costs far less than against Postgres, so the
+ * statement count is the figure that carries over.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityCacheBenchmark {
+
+    @Param({"off", "on"})
+    public String cache;
+
+    @Param({"1000"})
+    public int users;
+
+    @Param({"20"})
+    public int authorsPerPage;
+
+    private ConfigurableApplicationContext context;
+    private UserController controller;
+    private Statistics statistics;
+    private final List<Long> ids = new ArrayList<>();
+    private final AtomicLong operations = new AtomicLong();
+    private long statementsAtStart;
+
+    @Setup(Level.Trial)
+    public void start() {
+        boolean enabled = cache.equals("on");
+        context = new SpringApplicationBuilder(UserServiceApplication.class)
+                .profiles("test")
+                // arguments, since defaults set through properties() lose to the application's own files
+                .run("--server.port=0", "--spring.jpa.show-sql=false", "--logging.level.root=WARN",
+                        "--spring.jpa.properties.hibernate.cache.use_second_level_cache=" + enabled,
+                        "--spring.jpa.properties.hibernate.cache.use_query_cache=" + enabled);
+        controller = context.getBean(UserController.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        UserRepository repo = context.getBean(UserRepository.class);
+        for (int i = 0; i < users; i++) {
+            ids.add(repo.save(new User(null, "User " + i, "user" + i + "@example.com")).getId());
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounts() {
+        operations.set(0);
+        statementsAtStart = statistics.getPrepareStatementCount();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportRoundTrips() {
+        System.out.printf("%n  cache %s: %.2f statements/op, second-level hit ratio %.3f%n", cache,
+                (double) (statistics.getPrepareStatementCount() - statementsAtStart) / Math.max(1, operations.get()),
+                (double) statistics.getSecondLevelCacheHitCount()
+                        / Math.max(1, statistics.getSecondLevelCacheHitCount() + statistics.getSecondLevelCacheMissCount()));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<User> findById() {
+        operations.incrementAndGet();
+        return controller.get(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+    }
+
+    @Benchmark
+    public ResponseEntity<List<User>> bulkLookup() {
+        operations.incrementAndGet();
+        List<Long> page = new ArrayList<>(authorsPerPage);
+        for (int i = 0; i < authorsPerPage; i++) page.add(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+        return controller.byIds(page);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.userservice.controller;
 
+import com.example.changeevents.ChangeEvent;
+import com.example.changeevents.ChangeEventRepository;
 import com.example.userservice.model.User;
 import com.example.userservice.repository.UserRepository;
 import io.restassured.RestAssured;
@@ -30,6 +32,9 @@ class UserControllerIT {
     @Autowired
     private UserRepository repo;
 
+    @Autowired
+    private ChangeEventRepository changeEvents;
+
     @BeforeEach
     void setup() {
         RestAssured.baseURI = "http://localhost";
@@ -123,4 +128,166 @@ class UserControllerIT {
                 .then()
                 .statusCode(404);
     }
+
+    @Test
+    @Order(7)
+    void getAllUsers_shouldPageWithKeysetCursor() {
+        repo.saveAll(List.of(
+                new User(null, "U1", "u1@example.com"),
+                new User(null, "U2", "u2@example.com"),
+                new User(null, "U3", "u3@example.com")
+        ));
+
+        String cursor = given()
+                .queryParam("limit", 2)
+                .when()
+                .get("/users")
+                .then()
+                .statusCode(200)
+                .body("size()", is(2))
+                .body("[1].name", equalTo("U2"))
+                .header("X-Next-Cursor", notNullValue())
+                .extract().header("X-Next-Cursor");
+
+        given()
+                .queryParam("afterId", cursor)
+                .queryParam("limit", 2)
+                .when()
+                .get("/users")
+                .then()
+                .statusCode(200)
+                .body("size()", is(1))
+                .body("[0].name", equalTo("U3"))
+                .header("X-Next-Cursor", nullValue());
+    }
+
+    @Test
+    @Order(8)
+    void streamUsers_shouldWriteOneJsonObjectPerLine() {
+        repo.saveAll(List.of(
+                new User(null, "John", "john@example.com"),
+                new User(null, "Jane", "jane@example.com")
+        ));
+
+        String body = when()
+                .get("/users/stream")
+                .then()
+                .statusCode(200)
+                .contentType("application/x-ndjson")
+                .extract().asString();
+
+        String[] lines = body.split("\n");
+        Assertions.assertEquals(2, lines.length);
+        Assertions.assertTrue(lines[0].contains("\"name\":\"John\""));
+    }
+
+    @Test
+    @Order(9)
+    void getUsersByIds_shouldReturnOnlyRequestedUsers() {
+        List<User> saved = repo.saveAll(List.of(
+                new User(null, "A", "a@example.com"),
+                new User(null, "B", "b@example.com"),
+                new User(null, "C", "c@example.com")
+        ));
+
+        given()
+                .queryParam("ids", saved.get(0).getId() + "," + saved.get(2).getId() + ",999")
+                .when()
+                .get("/users")
+                .then()
+                .statusCode(200)
+                .body("size()", is(2))
+                .body("name", containsInAnyOrder("A", "C"));
+    }
+
+    @Test
+    @Order(10)
+    void updateUser_shouldRecordChangeEventInSameTransaction() {
+        changeEvents.deleteAll();
+        User saved = repo.save(new User(null, "Evented", "evented@example.com"));
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(new User(null, "Renamed", "evented@example.com"))
+                .when()
+                .put("/users/{id}", saved.getId())
+                .then()
+                .statusCode(200);
+        given()
+                .contentType(ContentType.JSON)
+                .body(new User(null, "Nobody", "nobody@example.com"))
+                .when()
+                .put("/users/{id}", 999L)
+                .then()
+                .statusCode(404);
+
+        List<ChangeEvent> events = changeEvents.findAll();
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertEquals("user", events.get(0).getAggregateType());
+        Assertions.assertEquals(saved.getId(), events.get(0).getAggregateId());
+        Assertions.assertEquals(ChangeEvent.Type.UPDATED, events.get(0).getType());
+    }
+
+    @Test
+    @Order(11)
+    void batch_shouldCreateUsersAndRetryFailedChunkRowByRow() {
+        changeEvents.deleteAll();
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(List.of(
+                        new User(null, "A", "a@example.com"),
+                        new User(null, "x".repeat(300), "bad@example.com"),
+                        new User(null, "C", "c@example.com")))
+                .when()
+                .post("/users/batch")
+                .then()
+                .statusCode(200)
+                .body("status", contains("CREATED", "FAILED", "CREATED"))
+                .body("[1].error", notNullValue());
+
+        Assertions.assertEquals(2, repo.count());
+        Assertions.assertEquals(2, changeEvents.count());
+    }
+
+    @Test
+    @Order(12)
+    void conditionalRequests_shouldUseVersionAsETag() {
+        User saved = repo.save(new User(null, "Versioned", "versioned@example.com"));
+
+        String etag = when()
+                .get("/users/{id}", saved.getId())
+                .then()
+                .statusCode(200)
+                .header("ETag", equalTo("\"0\""))
+                .extract().header("ETag");
+
+        given()
+                .header("If-None-Match", etag)
+                .when()
+                .get("/users/{id}", saved.getId())
+                .then()
+                .statusCode(304);
+
+        String next = given()
+                .contentType(ContentType.JSON)
+                .header("If-Match", etag)
+                .body(new User(null, "Edited", "edited@example.com"))
+                .when()
+                .put("/users/{id}", saved.getId())
+                .then()
+                .statusCode(200)
+                .header("ETag", equalTo("\"1\""))
+                .extract().header("ETag");
+
+        given()
+                .contentType(ContentType.JSON)
+                .header("If-Match", etag)
+                .body(new User(null, "Edited", "edited@example.com"))
+                .when()
+                .put("/users/{id}", saved.getId())
+                .then()
+                .statusCode(412)
+                .header("ETag", equalTo(next));
+    }
 }
@@ -0,0 +1,180 @@
+package com.example.userservice.datasource;
+
+import com.example.readreplicas.ReadYourWrites;
+import com.example.userservice.model.User;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.List;
+
+import static io.restassured.RestAssured.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Runs user-service against two H2 databases, a primary and a "replica" that only catches up when a
+ * test calls {@link #replicate()}, so replication lag is under the test's control. A second replica
+ * points at a server that is not there. The entity cache is on, as in production; tests that look
+ * for the replica's answer clear it first, as on an instance that did not take the write.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ReadReplicaIT {
+    private static final String REPLICA_URL = "jdbc:h2:mem:rw-replica;DB_CLOSE_DELAY=-1";
+    private static final String DEAD_REPLICA_URL = "jdbc:h2:tcp://localhost:1/nowhere";
+
+    @DynamicPropertySource
+    static void primaryAndReplica(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:rw-primary;DB_CLOSE_DELAY=-1");
+        registry.add("datasource.replicas.urls", () -> REPLICA_URL + "," + DEAD_REPLICA_URL);
+        registry.add("datasource.replicas.ejection-time", () -> "10m");
+        registry.add("datasource.read-your-writes.window", () -> "30s");
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private HikariDataSource primaryDataSource;
+
+    @Autowired
+    private MeterRegistry meters;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @BeforeEach
+    void setup() {
+        RestAssured.baseURI = "http://localhost";
+        RestAssured.port = port;
+        new JdbcTemplate(primaryDataSource).update("delete from users");
+        replicate();
+    }
+
+    @Test
+    @Order(1)
+    void newUser_shouldBeReadBackByItsWriterBeforeTheReplicaHasIt() {
+        Response created = given()
+                .contentType(ContentType.JSON)
+                .body(new User(null, "Alice", "alice@example.com"))
+                .post("/users");
+        created.then().statusCode(200).cookie(ReadYourWrites.COOKIE, notNullValue());
+        long id = created.jsonPath().getLong("id");
+
+        clearEntityCache();
+        when().get("/users/" + id).then().statusCode(404);
+        given().cookie(ReadYourWrites.COOKIE, created.getCookie(ReadYourWrites.COOKIE))
+                .get("/users/" + id).then().statusCode(200).body("name", equalTo("Alice"));
+
+        replicate();
+        when().get("/users/" + id).then().statusCode(200).body("name", equalTo("Alice"));
+    }
+
+    @Test
+    @Order(2)
+    void reads_shouldComeFromTheReplica() {
+        replica.update("insert into users (id, name, email, version) values (900001, 'Only On Replica', 'r@example.com', 0)");
+
+        when().get("/users").then().statusCode(200).body("name", hasItem("Only On Replica"));
+        when().get("/users/900001").then().statusCode(200);
+        given().cookie(ReadYourWrites.COOKIE, String.valueOf(System.currentTimeMillis() + 60_000))
+                .get("/users/900001").then().statusCode(404);
+    }
+
+    @Test
+    @Order(3)
+    void writes_shouldGoToThePrimaryOnly() {
+        long id = given()
+                .contentType(ContentType.JSON)
+                .body(new User(null, "Bob", "bob@example.com"))
+                .post("/users").jsonPath().getLong("id");
+        replicate();
+
+        given().contentType(ContentType.JSON)
+                .body(new User(null, "Robert", "bob@example.com"))
+                .put("/users/" + id).then().statusCode(200);
+
+        List<String> names = replica.queryForList("select name from users where id = ?", String.class, id);
+        Assertions.assertEquals(List.of("Bob"), names);
+        clearEntityCache();
+        when().get("/users/" + id).then().body("name", equalTo("Bob"));
+        replicate();
+        when().get("/users/" + id).then().body("name", equalTo("Robert"));
+    }
+
+    @Test
+    @Order(4)
+    void expiredCookie_shouldReadFromTheReplicaAgain() {
+        long id = given()
+                .contentType(ContentType.JSON)
+                .body(new User(null, "Carol", "carol@example.com"))
+                .post("/users").jsonPath().getLong("id");
+        clearEntityCache();
+
+        given().cookie(ReadYourWrites.COOKIE, String.valueOf(System.currentTimeMillis() - 1))
+                .get("/users/" + id).then().statusCode(404);
+    }
+
+    @Test
+    @Order(5)
+    void deadReplica_shouldBeLeftOutAfterItsFirstFailure() {
+        replica.update("insert into users (id, name, email, version) values (900002, 'Still Served', 's@example.com', 0)");
+
+        for (int i = 0; i < 6; i++) {
+            when().get("/users/900002").then().statusCode(200).body("name", equalTo("Still Served"));
+        }
+
+        Assertions.assertEquals(1, meters.counter("datasource.replica.ejections", "pool", "replica-1").count());
+        Assertions.assertEquals(0, meters.counter("datasource.replica.unavailable").count());
+    }
+
+    @Test
+    @Order(6)
+    void laggingReplicaReads_shouldNotBeCachedForTheWriter() {
+        long id = given()
+                .contentType(ContentType.JSON)
+                .body(new User(null, "Dave", "dave@example.com"))
+                .post("/users").jsonPath().getLong("id");
+        replicate();
+        Response updated = given().contentType(ContentType.JSON)
+                .body(new User(null, "David", "dave@example.com"))
+                .put("/users/" + id);
+        updated.then().statusCode(200);
+        clearEntityCache();
+
+        when().get("/users/" + id).then().body("name", equalTo("Dave"));
+        when().get("/users").then().body("name", hasItem("Dave"));
+
+        given().cookie(ReadYourWrites.COOKIE, updated.getCookie(ReadYourWrites.COOKIE))
+                .get("/users/" + id).then().body("name", equalTo("David"));
+        given().cookie(ReadYourWrites.COOKIE, updated.getCookie(ReadYourWrites.COOKIE))
+                .get("/users").then().body("name", hasItem("David"));
+    }
+
+    /** Entity and query regions alike. */
+    private void clearEntityCache() {
+        entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class).evictAllRegions();
+    }
+
+    /** Copies the primary's schema and rows over the replica, standing in for streaming replication. */
+    private void replicate() {
+        List<String> script = new JdbcTemplate(primaryDataSource).queryForList("script", String.class);
+        replica.execute("drop all objects");
+        for (String statement : script) replica.execute(statement);
+    }
+}
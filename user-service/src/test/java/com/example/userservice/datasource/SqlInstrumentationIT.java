@@ -0,0 +1,124 @@
+package com.example.userservice.datasource;
+
+import com.example.sqlinstrumentation.RepositoryMethods;
+import com.example.userservice.model.User;
+import com.example.userservice.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static io.restassured.RestAssured.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Statements are timed per repository method, slow ones are logged, and a request repeating one
+ * SELECT is reported as a possible N+1. Every statement counts as slow here.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.datasource.url=jdbc:h2:mem:sql-instrumentation;DB_CLOSE_DELAY=-1",
+                "sql.slow-statement.threshold=0ms", "sql.slow-statement.sample-rate=1.0", "sql.n-plus-one.threshold=5"})
+@ActiveProfiles("test")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@ExtendWith(OutputCaptureExtension.class)
+class SqlInstrumentationIT {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository repo;
+
+    @Autowired
+    private MeterRegistry meters;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setup() {
+        RestAssured.baseURI = "http://localhost";
+        RestAssured.port = port;
+    }
+
+    @Test
+    @Order(1)
+    void statements_shouldBeTimedPerRepositoryMethod() {
+        long before = selects("UserRepository.findByIdGreaterThanOrderByIdAsc");
+
+        when().get("/users?limit=5").then().statusCode(200);
+
+        Assertions.assertEquals(before + 1, selects("UserRepository.findByIdGreaterThanOrderByIdAsc"));
+        Timer timer = meters.get("datasource.statements")
+                .tags("method", "UserRepository.findByIdGreaterThanOrderByIdAsc", "type", "select", "outcome", "success").timer();
+        Assertions.assertTrue(timer.totalTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    @Order(2)
+    void slowStatements_shouldBeCountedAndLoggedWithoutParameters(CapturedOutput output) {
+        double before = meters.counter("datasource.statements.slow", "method", "UserRepository.findByIdGreaterThanOrderByIdAsc").count();
+
+        when().get("/users?afterId=424242&limit=5").then().statusCode(200);
+
+        Assertions.assertEquals(before + 1,
+                meters.counter("datasource.statements.slow", "method", "UserRepository.findByIdGreaterThanOrderByIdAsc").count());
+        Assertions.assertTrue(output.getOut().contains("Slow statement method=UserRepository.findByIdGreaterThanOrderByIdAsc type=select"));
+        Assertions.assertFalse(output.getOut().contains("424242"), "bind parameters stay out of the log");
+    }
+
+    @Test
+    @Order(3)
+    void repeatedSelectInOneRequest_shouldBeReportedAsNPlusOne(CapturedOutput output) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 6; i++) ids.add(repo.save(new User(null, "User " + i, "user" + i + "@example.com")).getId());
+        entityManagerFactory.getCache().evictAll();
+        double before = nPlusOnes("/users/batch", "UserRepository.findById");
+
+        String rows = ids.stream()
+                .map(id -> "{\"id\":" + id + ",\"name\":\"Renamed\",\"email\":\"renamed@example.com\"}")
+                .collect(Collectors.joining(",", "[", "]"));
+        given().contentType(ContentType.JSON).body(rows).post("/users/batch")
+                .then().statusCode(200).body("status", everyItem(equalTo("UPDATED")));
+
+        Assertions.assertEquals(before + 1, nPlusOnes("/users/batch", "UserRepository.findById"));
+        Assertions.assertTrue(output.getOut().contains("Possible N+1 select http_method=POST uri=/users/batch method=UserRepository.findById executions=6"));
+    }
+
+    @Test
+    @Order(4)
+    void oneQueryPerRequest_shouldNotBeReported() {
+        double before = nPlusOnes("/users", RepositoryMethods.NONE);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 6; i++) ids.add(repo.save(new User(null, "Bulk " + i, "bulk" + i + "@example.com")).getId());
+        entityManagerFactory.getCache().evictAll();
+
+        given().queryParam("ids", ids.stream().map(String::valueOf).collect(Collectors.joining(",")))
+                .get("/users").then().statusCode(200).body("$", hasSize(6));
+
+        Assertions.assertEquals(before, nPlusOnes("/users", RepositoryMethods.NONE));
+    }
+
+    private long selects(String method) {
+        Timer timer = meters.find("datasource.statements").tags("method", method, "type", "select").timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private double nPlusOnes(String uri, String method) {
+        return meters.counter("datasource.n_plus_one", "uri", uri, "method", method).count();
+    }
+}
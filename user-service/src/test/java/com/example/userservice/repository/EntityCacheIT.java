@@ -0,0 +1,120 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.model.User;
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import static io.restassured.RestAssured.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Reads of a user are served from the second-level cache without touching the database, and the
+ * update and delete endpoints leave no stale entry behind.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class EntityCacheIT {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository repo;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setup() {
+        RestAssured.baseURI = "http://localhost";
+        RestAssured.port = port;
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    @Order(1)
+    void repeatedReads_shouldNotReachTheDatabase() {
+        long id = repo.save(new User(null, "Alice", "alice@example.com")).getId();
+        when().get("/users/" + id).then().statusCode(200).body("name", equalTo("Alice"));
+
+        long statements = statistics.getPrepareStatementCount();
+        long hits = statistics.getSecondLevelCacheHitCount();
+        for (int i = 0; i < 10; i++) {
+            when().get("/users/" + id).then().statusCode(200).body("name", equalTo("Alice"));
+        }
+
+        Assertions.assertEquals(statements, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(hits + 10, statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    @Order(2)
+    void bulkLookup_shouldOnlyQueryUsersMissingFromTheCache() {
+        long cached = repo.save(new User(null, "Dan", "dan@example.com")).getId();
+        long uncached = repo.save(new User(null, "Eve", "eve@example.com")).getId();
+        entityManagerFactory.getCache().evict(User.class, uncached);
+        when().get("/users/" + cached).then().statusCode(200);
+
+        long hits = statistics.getSecondLevelCacheHitCount();
+        long statements = statistics.getPrepareStatementCount();
+        given().queryParam("ids", cached + "," + uncached + ",999999")
+                .get("/users").then().statusCode(200)
+                .body("name", containsInAnyOrder("Dan", "Eve"));
+        Assertions.assertEquals(hits + 1, statistics.getSecondLevelCacheHitCount());
+        Assertions.assertEquals(statements + 1, statistics.getPrepareStatementCount(), "one query for the two misses");
+
+        statements = statistics.getPrepareStatementCount();
+        given().queryParam("ids", cached + "," + uncached)
+                .get("/users").then().statusCode(200)
+                .body("name", containsInAnyOrder("Dan", "Eve"));
+        Assertions.assertEquals(statements, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @Order(3)
+    void update_shouldReplaceTheCachedUser() {
+        long id = repo.save(new User(null, "Bob", "bob@example.com")).getId();
+        when().get("/users/" + id).then().body("name", equalTo("Bob"));
+
+        given().contentType(ContentType.JSON)
+                .body(new User(null, "Robert", "bob@example.com"))
+                .put("/users/" + id).then().statusCode(200);
+
+        when().get("/users/" + id).then().statusCode(200)
+                .body("name", equalTo("Robert"))
+                .header("ETag", equalTo("\"1\""));
+    }
+
+    @Test
+    @Order(4)
+    void delete_shouldEvictTheCachedUser() {
+        long id = repo.save(new User(null, "Carol", "carol@example.com")).getId();
+        when().get("/users/" + id).then().statusCode(200);
+
+        when().delete("/users/" + id).then().statusCode(204);
+
+        when().get("/users/" + id).then().statusCode(404);
+    }
+
+    @Test
+    @Order(5)
+    void cacheStatistics_shouldBePublishedPerRegion() {
+        when().get("/actuator/metrics/hibernate.second.level.cache.requests?tag=region:users&tag=result:hit")
+                .then().statusCode(200)
+                .body("measurements[0].value", greaterThan(0f));
+        when().get("/actuator/metrics/hibernate.second.level.cache.hit.ratio?tag=region:users")
+                .then().statusCode(200)
+                .body("measurements[0].value", both(greaterThan(0f)).and(lessThanOrEqualTo(1f)));
+    }
+}